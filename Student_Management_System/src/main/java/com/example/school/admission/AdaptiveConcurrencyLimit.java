@@ -0,0 +1,57 @@
+package com.example.school.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global in-flight limit adjusted AIMD-style from observed latency: each request finishing under the
+ * target grows the limit by 1/limit (about +1 per limit's worth of requests), each one over the target
+ * shrinks it by the backoff ratio. Lower-priority traffic may only fill a share of the current limit,
+ * so the rest stays available to the priority lane.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limitBits;
+    private final double minLimit;
+    private final double maxLimit;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+
+    AdaptiveConcurrencyLimit(double initialLimit, double minLimit, double maxLimit, long targetLatencyNanos, double backoffRatio) {
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.backoffRatio = backoffRatio;
+    }
+
+    /** Reserves a slot if fewer than {@code share * limit} requests are in flight. */
+    boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit() * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) return false;
+            if (inFlight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    void release(long latencyNanos) {
+        inFlight.decrementAndGet();
+        while (true) {
+            long bits = limitBits.get();
+            double limit = Double.longBitsToDouble(bits);
+            double next = latencyNanos > targetLatencyNanos ? limit * backoffRatio : limit + 1.0 / limit;
+            next = Math.max(minLimit, Math.min(maxLimit, next));
+            if (next == limit || limitBits.compareAndSet(bits, Double.doubleToLongBits(next))) return;
+        }
+    }
+
+    double limit() {
+        return Double.longBitsToDouble(limitBits.get());
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
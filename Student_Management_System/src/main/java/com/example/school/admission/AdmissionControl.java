@@ -0,0 +1,172 @@
+package com.example.school.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission decisions for authenticated API calls: a token bucket per user, then a slot under the
+ * global adaptive concurrency limit. Teachers and read-only requests form the priority lane and may
+ * use the whole limit; student writes (e.g. enroll during registration) only get
+ * {@code student-write-share} of it, so they cannot starve rosters and listings.
+ * <p>
+ * Buckets idle long enough to be full again are swept. If the table is still full of active users,
+ * newcomers share one overflow bucket rather than each getting a fresh one, so a flood of new
+ * accounts is limited as a whole.
+ */
+@Component
+public class AdmissionControl {
+
+    public enum Outcome { ADMITTED, RATE_LIMITED, OVERLOADED }
+
+    private static final int SWEEP_EVERY_NEW_KEYS = 1024;
+
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final double userRate;
+    private final double userBurst;
+    private final double teacherRate;
+    private final double teacherBurst;
+    private final double studentWriteShare;
+    private final int maxTrackedUsers;
+    private final LongSupplier nanoClock;
+    private final TokenBucket overflow;
+    private final AtomicInteger newKeysSinceSweep = new AtomicInteger();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final Counter rateLimited;
+    private final Counter overflowed;
+    private final Counter shedPriority;
+    private final Counter shedStudentWrite;
+    private final Timer priorityLatency;
+    private final Timer standardLatency;
+
+    @Autowired
+    public AdmissionControl(@Value("${school.admission.user-rate:10}") double userRate,
+                            @Value("${school.admission.user-burst:20}") double userBurst,
+                            @Value("${school.admission.teacher-rate:50}") double teacherRate,
+                            @Value("${school.admission.teacher-burst:100}") double teacherBurst,
+                            @Value("${school.admission.initial-limit:100}") int initialLimit,
+                            @Value("${school.admission.min-limit:10}") int minLimit,
+                            @Value("${school.admission.max-limit:200}") int maxLimit,
+                            @Value("${school.admission.target-latency:250ms}") Duration targetLatency,
+                            @Value("${school.admission.student-write-share:0.7}") double studentWriteShare,
+                            @Value("${school.admission.max-tracked-users:100000}") int maxTrackedUsers,
+                            @Value("${school.admission.overflow-rate:100}") double overflowRate,
+                            @Value("${school.admission.overflow-burst:200}") double overflowBurst,
+                            MeterRegistry meterRegistry) {
+        this(userRate, userBurst, teacherRate, teacherBurst,
+                new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, targetLatency.toNanos(), 0.9),
+                studentWriteShare, maxTrackedUsers, overflowRate, overflowBurst, meterRegistry, System::nanoTime);
+    }
+
+    AdmissionControl(double userRate, double userBurst, double teacherRate, double teacherBurst,
+                     AdaptiveConcurrencyLimit concurrencyLimit, double studentWriteShare, int maxTrackedUsers,
+                     double overflowRate, double overflowBurst, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.userRate = userRate;
+        this.userBurst = userBurst;
+        this.teacherRate = teacherRate;
+        this.teacherBurst = teacherBurst;
+        this.concurrencyLimit = concurrencyLimit;
+        this.studentWriteShare = studentWriteShare;
+        this.maxTrackedUsers = maxTrackedUsers;
+        this.nanoClock = nanoClock;
+        this.overflow = new TokenBucket(overflowBurst, overflowRate, nanoClock.getAsLong());
+        this.rateLimited = Counter.builder("school.admission.rejected")
+                .description("API requests rejected by admission control")
+                .tag("reason", "rate").tag("lane", "any")
+                .register(meterRegistry);
+        this.overflowed = Counter.builder("school.admission.overflow")
+                .description("API requests charged to the shared overflow bucket because the bucket table was full")
+                .register(meterRegistry);
+        this.shedPriority = Counter.builder("school.admission.rejected")
+                .description("API requests rejected by admission control")
+                .tag("reason", "overload").tag("lane", "priority")
+                .register(meterRegistry);
+        this.shedStudentWrite = Counter.builder("school.admission.rejected")
+                .description("API requests rejected by admission control")
+                .tag("reason", "overload").tag("lane", "student-write")
+                .register(meterRegistry);
+        this.priorityLatency = Timer.builder("school.admission.latency")
+                .description("Latency of admitted API requests")
+                .tag("lane", "priority")
+                .register(meterRegistry);
+        this.standardLatency = Timer.builder("school.admission.latency")
+                .description("Latency of admitted API requests")
+                .tag("lane", "student-write")
+                .register(meterRegistry);
+        Gauge.builder("school.admission.limit", concurrencyLimit, AdaptiveConcurrencyLimit::limit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("school.admission.in-flight", concurrencyLimit, AdaptiveConcurrencyLimit::inFlight)
+                .description("API requests currently admitted")
+                .register(meterRegistry);
+    }
+
+    public Outcome tryAdmit(String username, boolean teacher, boolean readOnly) {
+        long now = nanoClock.getAsLong();
+        if (!bucketFor(username, teacher, now).tryTake(now)) {
+            rateLimited.increment();
+            return Outcome.RATE_LIMITED;
+        }
+        boolean priority = teacher || readOnly;
+        if (!concurrencyLimit.tryAcquire(priority ? 1.0 : studentWriteShare)) {
+            (priority ? shedPriority : shedStudentWrite).increment();
+            return Outcome.OVERLOADED;
+        }
+        return Outcome.ADMITTED;
+    }
+
+    /**
+     * Charges the rest of a request that carries several operations (the filter took one token for
+     * the request itself). False, counted as rate-limited, if the user's bucket is empty.
+     */
+    public boolean tryCharge(String username, boolean teacher, int operations) {
+        if (operations <= 1) return true;
+        long now = nanoClock.getAsLong();
+        if (bucketFor(username, teacher, now).tryTake(now, operations - 1)) return true;
+        rateLimited.increment();
+        return false;
+    }
+
+    /** Must be called exactly once for every {@link Outcome#ADMITTED} request. */
+    public void release(boolean priority, long latencyNanos) {
+        concurrencyLimit.release(latencyNanos);
+        (priority ? priorityLatency : standardLatency).record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private TokenBucket bucketFor(String username, boolean teacher, long now) {
+        TokenBucket bucket = buckets.get(username);
+        if (bucket != null) return bucket;
+        if (buckets.size() >= maxTrackedUsers || newKeysSinceSweep.incrementAndGet() >= SWEEP_EVERY_NEW_KEYS) {
+            sweep(now);
+        }
+        if (buckets.size() >= maxTrackedUsers) {
+            overflowed.increment();
+            return overflow;
+        }
+        return buckets.computeIfAbsent(username, k -> teacher
+                ? new TokenBucket(teacherBurst, teacherRate, now)
+                : new TokenBucket(userBurst, userRate, now));
+    }
+
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) return;
+        try {
+            newKeysSinceSweep.set(0);
+            buckets.values().removeIf(b -> b.isIdle(now));
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.school.admission;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies {@link AdmissionControl} to authenticated {@code /api/**} calls. Rejections are answered
+ * immediately (429 for an empty bucket, 503 when over the concurrency limit) instead of queueing for
+ * a Tomcat worker.
+ * <p>
+ * A request that carries several operations (POST /api/batch) sets {@link #OPERATIONS_ATTRIBUTE}, and its
+ * latency is fed to the concurrency limit per operation, so one long batch does not read as overload.
+ * <p>
+ * A request whose handler goes async gives its slot back when the request thread returns, and only that
+ * part counts as latency: an event stream or a long poll spends its async life waiting, and must neither
+ * hold a slot nor read as overload. A handler whose async part is work (a streamed listing) sets
+ * {@link #ASYNC_WORK_ATTRIBUTE}, and its slot is held, and timed, until the async work completes.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    /** Request attribute (Integer): how many operations the request ran. */
+    public static final String OPERATIONS_ATTRIBUTE = AdmissionControlFilter.class.getName() + ".operations";
+
+    /** Request attribute (Boolean): the request's async part is work to admit and time, not waiting. */
+    public static final String ASYNC_WORK_ATTRIBUTE = AdmissionControlFilter.class.getName() + ".asyncWork";
+
+    private final AdmissionControl admissionControl;
+
+    public AdmissionControlFilter(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            chain.doFilter(request, response);
+            return;
+        }
+        boolean teacher = auth.getAuthorities().stream().anyMatch(a -> "ROLE_TEACHER".equals(a.getAuthority()));
+        boolean readOnly = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        switch (admissionControl.tryAdmit(auth.getName(), teacher, readOnly)) {
+            case RATE_LIMITED -> reject(response, HttpStatus.TOO_MANY_REQUESTS);
+            case OVERLOADED -> reject(response, HttpStatus.SERVICE_UNAVAILABLE);
+            case ADMITTED -> {
+                long start = System.nanoTime();
+                boolean async = false;
+                try {
+                    chain.doFilter(request, response);
+                    async = request.isAsyncStarted() && Boolean.TRUE.equals(request.getAttribute(ASYNC_WORK_ATTRIBUTE));
+                } finally {
+                    if (async) {
+                        request.getAsyncContext().addListener(new AsyncListener() {
+                            // A timed-out or failed request completes too, so this is the one place it is released
+                            @Override
+                            public void onComplete(AsyncEvent event) {
+                                release(request, teacher || readOnly, start);
+                            }
+
+                            @Override
+                            public void onTimeout(AsyncEvent event) {
+                            }
+
+                            @Override
+                            public void onError(AsyncEvent event) {
+                            }
+
+                            @Override
+                            public void onStartAsync(AsyncEvent event) {
+                            }
+                        });
+                    } else {
+                        release(request, teacher || readOnly, start);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Gives back the request's slot, feeding its latency (per operation) to the concurrency limit. */
+    private void release(HttpServletRequest request, boolean priority, long start) {
+        long latency = System.nanoTime() - start;
+        if (request.getAttribute(OPERATIONS_ATTRIBUTE) instanceof Integer operations && operations > 1) {
+            latency /= operations;
+        }
+        admissionControl.release(priority, latency);
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status) {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+    }
+}
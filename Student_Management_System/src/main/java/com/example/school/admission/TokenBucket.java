@@ -0,0 +1,42 @@
+package com.example.school.admission;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket: state is replaced by CAS, refilled lazily from elapsed time on each take.
+ * A take of several tokens needs only one to be available and may leave the bucket in debt, which
+ * refuses later takes until the refill has paid it back.
+ */
+final class TokenBucket {
+
+    private record State(double tokens, long refilledAt) {}
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    TokenBucket(double capacity, double tokensPerSecond, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.state = new AtomicReference<>(new State(capacity, now));
+    }
+
+    boolean tryTake(long now) {
+        return tryTake(now, 1);
+    }
+
+    boolean tryTake(long now, int count) {
+        while (true) {
+            State s = state.get();
+            double tokens = Math.min(capacity, s.tokens() + Math.max(0, now - s.refilledAt()) * tokensPerNano);
+            if (tokens < 1) return false;
+            if (state.compareAndSet(s, new State(tokens - count, Math.max(now, s.refilledAt())))) return true;
+        }
+    }
+
+    /** True once the bucket would be full again, i.e. forgetting it loses nothing. */
+    boolean isIdle(long now) {
+        State s = state.get();
+        return s.tokens() + (now - s.refilledAt()) * tokensPerNano >= capacity;
+    }
+}
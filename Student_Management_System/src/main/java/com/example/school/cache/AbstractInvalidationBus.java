@@ -0,0 +1,35 @@
+package com.example.school.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** Listener registry and delivery shared by the bus implementations. */
+abstract class AbstractInvalidationBus implements InvalidationBus {
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Timer lag;
+
+    AbstractInvalidationBus(MeterRegistry meterRegistry) {
+        this.lag = Timer.builder("school.cache.invalidation.lag")
+                .description("Time from publishing a change to applying it on this node")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void deliver(ChangeEvent event) {
+        lag.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - event.version())));
+        listeners.forEach(l -> l.onChange(event));
+    }
+
+    void deliverReset() {
+        listeners.forEach(Listener::onReset);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.school.cache;
+
+import java.util.Optional;
+
+/**
+ * Something changed in the database that other nodes may have cached. Sent as a short text payload
+ * ({@code C:12:1718000000000}); {@code version} is the publisher's wall-clock millis, used for ordering
+ * in logs and to measure delivery lag. For {@link EntityType#ENROLLMENT} the id is the class whose
+ * roster changed.
+ */
+public record ChangeEvent(EntityType type, long id, long version) {
+
+    public enum EntityType {
+        CLASS('C'), USER('U'), ENROLLMENT('E');
+
+        private final char code;
+
+        EntityType(char code) {
+            this.code = code;
+        }
+
+        static Optional<EntityType> fromCode(char code) {
+            for (EntityType t : values()) {
+                if (t.code == code) return Optional.of(t);
+            }
+            return Optional.empty();
+        }
+    }
+
+    public static ChangeEvent of(EntityType type, long id) {
+        return new ChangeEvent(type, id, System.currentTimeMillis());
+    }
+
+    public String encode() {
+        return type.code + ":" + id + ":" + version;
+    }
+
+    /** Empty for payloads this version does not understand (e.g. sent by a newer node). */
+    public static Optional<ChangeEvent> decode(String payload) {
+        String[] parts = payload != null ? payload.split(":") : new String[0];
+        if (parts.length != 3 || parts[0].length() != 1) return Optional.empty();
+        try {
+            long id = Long.parseLong(parts[1]);
+            long version = Long.parseLong(parts[2]);
+            return EntityType.fromCode(parts[0].charAt(0)).map(t -> new ChangeEvent(t, id, version));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
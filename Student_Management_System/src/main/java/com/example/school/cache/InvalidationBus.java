@@ -0,0 +1,20 @@
+package com.example.school.cache;
+
+/**
+ * Tells every app node, this one included, that cached data is stale. Events published inside a
+ * transaction are only delivered if and after it commits.
+ */
+public interface InvalidationBus {
+
+    void publish(ChangeEvent event);
+
+    void subscribe(Listener listener);
+
+    interface Listener {
+
+        void onChange(ChangeEvent event);
+
+        /** Events may have been missed (e.g. the bus reconnected), so drop everything cached. */
+        void onReset();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.school.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Per-node cache of immutable values, emptied by {@link InvalidationBus} events. A load that raced
+ * with an invalidation is returned to its caller but not stored, so a stale row read just before
+ * another node's commit cannot stick. When full, the cache is cleared rather than tracking recency.
+ * Entries may also be given a time to live, as a backstop for values that are rarely invalidated.
+ */
+public class LocalCache<K, V> {
+
+    private record Entry<V>(V value, long loadedAt) {}
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Counter hits;
+    private final Counter misses;
+
+    public LocalCache(String name, int maxSize, MeterRegistry meterRegistry) {
+        this(name, maxSize, Duration.ZERO, meterRegistry, System::nanoTime);
+    }
+
+    /** Entries older than {@code ttl} are reloaded; {@link Duration#ZERO} keeps them until evicted. */
+    public LocalCache(String name, int maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this(name, maxSize, ttl, meterRegistry, System::nanoTime);
+    }
+
+    LocalCache(String name, int maxSize, Duration ttl, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.hits = Counter.builder("school.cache.requests").tag("cache", name).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("school.cache.requests").tag("cache", name).tag("result", "miss").register(meterRegistry);
+        Gauge.builder("school.cache.size", entries, Map::size).tag("cache", name).register(meterRegistry);
+    }
+
+    public Optional<V> get(K key, Function<K, Optional<V>> loader) {
+        Entry<V> cached = entries.get(key);
+        if (cached != null && !isExpired(cached)) {
+            hits.increment();
+            return Optional.of(cached.value());
+        }
+        misses.increment();
+        long before = generation.get();
+        Optional<V> loaded = loader.apply(key);
+        if (loaded.isPresent() && generation.get() == before) {
+            if (entries.size() >= maxSize) entries.clear();
+            entries.put(key, new Entry<>(loaded.get(), ttlNanos > 0 ? nanoClock.getAsLong() : 0));
+            // An invalidation may have landed between the check and the put
+            if (generation.get() != before) entries.remove(key);
+        }
+        return loaded;
+    }
+
+    public void evict(K key) {
+        generation.incrementAndGet();
+        entries.remove(key);
+    }
+
+    public void evictIf(Predicate<V> stale) {
+        generation.incrementAndGet();
+        entries.values().removeIf(e -> stale.test(e.value()));
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return ttlNanos > 0 && nanoClock.getAsLong() - entry.loadedAt() >= ttlNanos;
+    }
+}
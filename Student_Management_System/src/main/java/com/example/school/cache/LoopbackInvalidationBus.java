@@ -0,0 +1,46 @@
+package com.example.school.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-JVM bus: every application context started in this JVM is a node, so tests can run several
+ * nodes side by side. Delivery happens on the publishing thread after commit.
+ */
+@Component
+@ConditionalOnProperty(name = "school.cache.invalidation", havingValue = "loopback")
+public class LoopbackInvalidationBus extends AbstractInvalidationBus {
+
+    private static final Set<LoopbackInvalidationBus> NODES = ConcurrentHashMap.newKeySet();
+
+    public LoopbackInvalidationBus(MeterRegistry meterRegistry) {
+        super(meterRegistry);
+        NODES.add(this);
+    }
+
+    @Override
+    public void publish(ChangeEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            NODES.forEach(node -> node.deliver(event));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                NODES.forEach(node -> node.deliver(event));
+            }
+        });
+    }
+
+    @PreDestroy
+    void leave() {
+        NODES.remove(this);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.school.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * PostgreSQL {@code LISTEN/NOTIFY} bus. Events published in a transaction are collected and sent once
+ * it has committed, in one round trip on a connection of their own, so they are never sent for a
+ * rollback nor tied to how the transaction's connection is managed; outside a transaction they are
+ * sent at once. A daemon thread holds one pooled connection in {@code LISTEN}; after a reconnect
+ * listeners are reset, since notifications sent while disconnected are lost. The first connect needs
+ * no reset: caches start empty and the search index is built on startup.
+ */
+@Component
+@ConditionalOnProperty(name = "school.cache.invalidation", havingValue = "postgres", matchIfMissing = true)
+public class PostgresInvalidationBus extends AbstractInvalidationBus {
+
+    static final String CHANNEL = "school_invalidation";
+    private static final int POLL_MILLIS = 500;
+    private static final long RECONNECT_MILLIS = 2_000;
+    private static final Logger log = LoggerFactory.getLogger(PostgresInvalidationBus.class);
+
+    private final DataSource dataSource;
+    private volatile boolean running = true;
+    private Thread listener;
+
+    public PostgresInvalidationBus(DataSource dataSource, MeterRegistry meterRegistry) {
+        super(meterRegistry);
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void publish(ChangeEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(List.of(event));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<ChangeEvent> pending = (Set<ChangeEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<ChangeEvent> events = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(events);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(PostgresInvalidationBus.this);
+                }
+            });
+            pending = events;
+        }
+        pending.add(event);
+    }
+
+    /** Sends the events in one batch, on an autocommit connection of their own so they go out at once. */
+    private void send(Collection<ChangeEvent> events) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement notify = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            connection.setAutoCommit(true);
+            for (ChangeEvent event : events) {
+                notify.setString(1, CHANNEL);
+                notify.setString(2, event.encode());
+                notify.addBatch();
+            }
+            notify.executeBatch();
+        } catch (SQLException e) {
+            // The change itself is committed; other nodes keep their cached copies until evicted or reset
+            log.warn("Could not send {} invalidation events", events.size(), e);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        listener = new Thread(this::listen, "invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        listener.interrupt();
+        listener.join(POLL_MILLIS * 2L);
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                if (reconnecting) deliverReset();
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(POLL_MILLIS);
+                    if (notifications == null) continue;
+                    for (PGNotification n : notifications) {
+                        ChangeEvent.decode(n.getParameter()).ifPresent(this::deliver);
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) return;
+                reconnecting = true;
+                log.warn("Invalidation listener lost its connection; reconnecting in {} ms", RECONNECT_MILLIS, e);
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+}
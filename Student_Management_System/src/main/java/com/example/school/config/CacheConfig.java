@@ -0,0 +1,61 @@
+package com.example.school.config;
+
+import com.example.school.cache.ChangeEvent;
+import com.example.school.cache.InvalidationBus;
+import com.example.school.cache.LocalCache;
+import com.example.school.service.ClassService.ClassSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/** Per-node caches and which {@link ChangeEvent}s empty them. */
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public LocalCache<Long, ClassSummary> classSummaryCache(InvalidationBus invalidationBus, MeterRegistry meterRegistry,
+                                                            @Value("${school.cache.classes-max-size:10000}") int maxSize) {
+        LocalCache<Long, ClassSummary> cache = new LocalCache<>("classes", maxSize, meterRegistry);
+        invalidationBus.subscribe(new InvalidationBus.Listener() {
+            @Override
+            public void onChange(ChangeEvent event) {
+                switch (event.type()) {
+                    case CLASS -> cache.evict(event.id());
+                    // Summaries carry the teacher's display name
+                    case USER -> cache.evictIf(c -> c.teacherId() == event.id());
+                    case ENROLLMENT -> { }
+                }
+            }
+
+            @Override
+            public void onReset() {
+                cache.clear();
+            }
+        });
+        return cache;
+    }
+
+    /** Class id to owning teacher id, for {@link com.example.school.security.ClassOwnership}. */
+    @Bean
+    public LocalCache<Long, Long> classOwnerCache(InvalidationBus invalidationBus, MeterRegistry meterRegistry,
+                                                  @Value("${school.cache.class-owners-max-size:100000}") int maxSize,
+                                                  @Value("${school.cache.class-owners-ttl:5m}") Duration ttl) {
+        LocalCache<Long, Long> cache = new LocalCache<>("class-owners", maxSize, ttl, meterRegistry);
+        invalidationBus.subscribe(new InvalidationBus.Listener() {
+            @Override
+            public void onChange(ChangeEvent event) {
+                // Owners never change; a CLASS event matters when the class was deleted
+                if (event.type() == ChangeEvent.EntityType.CLASS) cache.evict(event.id());
+            }
+
+            @Override
+            public void onReset() {
+                cache.clear();
+            }
+        });
+        return cache;
+    }
+}
@@ -1,5 +1,13 @@
 package com.example.school.config;
 
+import com.example.school.admission.AdmissionControl;
+import com.example.school.admission.AdmissionControlFilter;
+import com.example.school.idempotency.IdempotencyFilter;
+import com.example.school.idempotency.IdempotentRequests;
+import com.example.school.security.LoginRateLimiter;
+import com.example.school.security.LoginThrottleFilter;
+import com.example.school.web.RequestBodyLimitFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
@@ -7,8 +15,16 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.util.unit.DataSize;
+
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
@@ -16,9 +32,17 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, LoginRateLimiter loginRateLimiter,
+                                           AdmissionControl admissionControl,
+                                           IdempotentRequests idempotentRequests,
+                                           @Value("${school.api.max-body:1MB}") DataSize maxBody) throws Exception {
+        int maxBodyBytes = Math.toIntExact(maxBody.toBytes());
         http
                 .csrf(csrf -> csrf.disable())
+                .addFilterBefore(new LoginThrottleFilter(loginRateLimiter, "/login"), UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(new AdmissionControlFilter(admissionControl), AuthorizationFilter.class)
+                .addFilterAfter(new RequestBodyLimitFilter(maxBodyBytes), AdmissionControlFilter.class)
+                .addFilterAfter(new IdempotencyFilter(idempotentRequests, maxBodyBytes), RequestBodyLimitFilter.class)
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/login.html", "/login", "/actuator/health").permitAll()
                         .requestMatchers("/api/students/**", "/api/classes/**").authenticated()
@@ -34,8 +58,26 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * New hashes are written as {@code {algorithm}hash} with the configured algorithm and cost. Older
+     * unprefixed BCrypt hashes still match, and any hash that is not in the current algorithm/cost is
+     * re-encoded on the next successful login (see {@code SchoolUserDetailsService#updatePassword}).
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${school.password-hashing.algorithm:bcrypt}") String algorithm,
+                                           @Value("${school.password-hashing.bcrypt-strength:10}") int bcryptStrength,
+                                           @Value("${school.password-hashing.pbkdf2-iterations:310000}") int pbkdf2Iterations) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2", new Pbkdf2PasswordEncoder("", 16, pbkdf2Iterations,
+                Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+        if (!encoders.containsKey(algorithm)) {
+            throw new IllegalArgumentException("Unsupported password hashing algorithm: " + algorithm
+                    + " (supported: " + encoders.keySet() + ")");
+        }
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(algorithm, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegating;
     }
 }
@@ -0,0 +1,19 @@
+package com.example.school.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import tools.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * Body of POST /api/batch: calls to run in order, each written as the request it stands for
+ * (method, path and, where that endpoint takes one, its body).
+ */
+public record BatchRequest(
+        @NotEmpty List<@NotNull @Valid Operation> operations
+) {
+    public record Operation(@NotBlank String method, @NotBlank String path, JsonNode body) {}
+}
@@ -0,0 +1,10 @@
+package com.example.school.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+/** Body of POST /api/classes. */
+public record CreateClassRequest(
+        @NotBlank @Size(max = 255) String name,
+        @Size(max = 255) String description
+) {}
@@ -0,0 +1,14 @@
+package com.example.school.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+/** Body of POST /api/students. Missing password defaults to "changeme", missing name to the username. */
+public record CreateStudentRequest(
+        @NotBlank @Size(max = 255) String username,
+        @Size(max = 255) String password,
+        @Size(max = 255) String name,
+        @Email @Size(max = 255) String email,
+        @Size(max = 255) String grade
+) {}
@@ -0,0 +1,7 @@
+package com.example.school.dto;
+
+/**
+ * Row of GET /api/students/me/classes, built by a JPQL constructor expression straight from the
+ * enrollment, class and teacher columns (no entities loaded).
+ */
+public record EnrolledClass(Long id, String name, String teacherName) {}
@@ -0,0 +1,30 @@
+package com.example.school.dto;
+
+import tools.jackson.core.JsonParser;
+import tools.jackson.databind.DeserializationContext;
+import tools.jackson.databind.ValueDeserializer;
+
+import java.util.Optional;
+
+/**
+ * Reads a PATCH string field so the three cases stay apart: a value is {@code Optional.of(value)},
+ * an explicit JSON null is {@code Optional.empty()} (clear the field), and an absent property is
+ * {@code null} (leave it unchanged). Jackson's own Optional binding reads absent as empty too.
+ */
+final class PatchFieldDeserializer extends ValueDeserializer<Optional<String>> {
+
+    @Override
+    public Optional<String> deserialize(JsonParser p, DeserializationContext ctxt) {
+        return Optional.of(ctxt.readValue(p, String.class));
+    }
+
+    @Override
+    public Optional<String> getNullValue(DeserializationContext ctxt) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Object getAbsentValue(DeserializationContext ctxt) {
+        return null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.school.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/** Body of POST /api/classes/rollover; the suffix, if any, is appended to each copied class name. */
+public record RolloverRequest(
+        @NotEmpty @Size(max = 100) List<@NotNull Long> classIds,
+        @Size(max = 64) String nameSuffix
+) {}
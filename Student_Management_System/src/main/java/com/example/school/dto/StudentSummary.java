@@ -0,0 +1,7 @@
+package com.example.school.dto;
+
+/**
+ * Row of GET /api/students, built by a JPQL constructor expression from the user columns (no
+ * entities loaded). Same fields, and so the same JSON, as {@code StudentController.StudentResponse}.
+ */
+public record StudentSummary(Long id, String username, String name, String email, String grade) {}
@@ -0,0 +1,15 @@
+package com.example.school.dto;
+
+import jakarta.validation.constraints.Size;
+import tools.jackson.databind.annotation.JsonDeserialize;
+
+import java.util.Optional;
+
+/**
+ * Body of PATCH /api/classes/{id}. A null, absent or blank name is ignored. An absent description (null
+ * here) leaves it unchanged; a present one is written and an explicit JSON null (empty) clears it.
+ */
+public record UpdateClassRequest(
+        @Size(max = 255) String name,
+        @JsonDeserialize(using = PatchFieldDeserializer.class) Optional<@Size(max = 255) String> description
+) {}
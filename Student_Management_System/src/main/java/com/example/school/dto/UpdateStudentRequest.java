@@ -0,0 +1,19 @@
+package com.example.school.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Size;
+import tools.jackson.databind.annotation.JsonDeserialize;
+
+import java.util.Optional;
+
+/**
+ * Body of PATCH /api/students/{id}. A null, absent or blank name is ignored, since a student always has
+ * one; the same goes for the password. An absent email or grade (null here) leaves it unchanged; a
+ * present one is written, "" included, and an explicit JSON null (empty) clears it.
+ */
+public record UpdateStudentRequest(
+        @Size(max = 255) String name,
+        @JsonDeserialize(using = PatchFieldDeserializer.class) Optional<@Email @Size(max = 255) String> email,
+        @JsonDeserialize(using = PatchFieldDeserializer.class) Optional<@Size(max = 255) String> grade,
+        @Size(max = 255) String password
+) {}
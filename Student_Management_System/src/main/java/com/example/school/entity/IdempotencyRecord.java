@@ -0,0 +1,66 @@
+package com.example.school.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A claimed {@code Idempotency-Key} and, once the first request has finished, the response to replay
+ * for its retries. The scope is a SHA-256 of the key qualified by the user who sent it, so a long
+ * username and a 255-character key still fit.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_created_at", columnList = "createdAt"))
+public class IdempotencyRecord {
+
+    @Id
+    @Column(length = 64)
+    private String scope;
+
+    /** Hash of the request the key was first used with. */
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    /** Null while the first request is still running. */
+    private Integer status;
+
+    private String contentType;
+
+    /** The response headers to replay, one {@code Name: value} line each. */
+    @Column(length = 8192)
+    private String responseHeaders;
+
+    @Column(length = 1_048_576)
+    private byte[] body;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public String getScope() {
+        return scope;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.school.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Enrollment change written in the same transaction as the change itself. The position, given once the
+ * event has committed, is the cursor of the {@code /api/changes} feed. Class and student ids are plain
+ * columns so events outlive the rows.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_events_occurred_at", columnList = "occurredAt"),
+        @Index(name = "idx_outbox_events_position", columnList = "position", unique = true)
+})
+public class OutboxEvent {
+
+    public enum Type {
+        ENROLLED, UNENROLLED, CLASS_DELETED, STUDENT_DELETED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Type type;
+
+    private Long classId;
+
+    private Long studentId;
+
+    @Column(nullable = false)
+    private Instant occurredAt;
+
+    /** Order in the feed; null until the event is sequenced after its transaction commits. */
+    private Long position;
+
+    public OutboxEvent() {
+    }
+
+    public OutboxEvent(Type type, Long classId, Long studentId) {
+        this.type = type;
+        this.classId = classId;
+        this.studentId = studentId;
+        this.occurredAt = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getClassId() {
+        return classId;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+
+    public Long getPosition() {
+        return position;
+    }
+
+    public void assignPosition(long position) {
+        this.position = position;
+    }
+}
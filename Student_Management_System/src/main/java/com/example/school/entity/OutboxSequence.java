@@ -0,0 +1,32 @@
+package com.example.school.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * The single row holding the last feed position given out. Sequencing passes lock it, so positions
+ * are handed out by one pass at a time on any node.
+ */
+@Entity
+@Table(name = "outbox_sequence")
+public class OutboxSequence {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private long lastPosition;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public long getLastPosition() {
+        return lastPosition;
+    }
+
+    public long next() {
+        return ++lastPosition;
+    }
+}
@@ -1,9 +1,10 @@
 package com.example.school.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
-@Table(name = "school_classes")
+@Table(name = "school_classes", indexes = @Index(name = "idx_school_classes_name_id", columnList = "name, id"))
 public class SchoolClass {
 
     @Id
@@ -19,6 +20,18 @@ public class SchoolClass {
     @JoinColumn(name = "teacher_id", nullable = false)
     private User teacher;
 
+    /** Class this one was rolled over from; a plain id so deleting the source leaves the copy alone. */
+    private Long rolledOverFromId;
+
+    /**
+     * Enrollments in this class, kept by single-row UPDATEs in the same transaction as the enrollment
+     * change and repaired by {@code EnrollmentCountReconciler}. Never written from the entity, so saving
+     * a class cannot overwrite a concurrent increment.
+     */
+    @Column(nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private int enrollmentCount;
+
     public SchoolClass() {
     }
 
@@ -53,4 +66,16 @@ public class SchoolClass {
     public void setTeacher(User teacher) {
         this.teacher = teacher;
     }
+
+    public Long getRolledOverFromId() {
+        return rolledOverFromId;
+    }
+
+    public void setRolledOverFromId(Long rolledOverFromId) {
+        this.rolledOverFromId = rolledOverFromId;
+    }
+
+    public int getEnrollmentCount() {
+        return enrollmentCount;
+    }
 }
@@ -0,0 +1,72 @@
+package com.example.school.idempotency;
+
+import com.example.school.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Keys in the {@code idempotency_keys} table, so a retry that lands on another node still finds the
+ * first request's claim and response. A claim is one insert; a claim left without a response for
+ * longer than {@code lock-timeout} (its node died mid-request) may be taken over. A node keeps its
+ * running claims fresh with {@link #touch}, so a slow request is not taken for a dead one.
+ */
+@Component
+@ConditionalOnProperty(name = "school.idempotency.store", havingValue = "database", matchIfMissing = true)
+public class DatabaseIdempotencyStore implements IdempotencyStore {
+
+    private final IdempotencyRecordRepository repository;
+    private final Duration ttl;
+    private final Duration lockTimeout;
+
+    public DatabaseIdempotencyStore(IdempotencyRecordRepository repository,
+                                    @Value("${school.idempotency.ttl:24h}") Duration ttl,
+                                    @Value("${school.idempotency.lock-timeout:1m}") Duration lockTimeout) {
+        this.repository = repository;
+        this.ttl = ttl;
+        this.lockTimeout = lockTimeout;
+    }
+
+    @Override
+    @Transactional
+    public Claim claim(String scope, String fingerprint) {
+        Instant now = Instant.now();
+        if (repository.insertIfAbsent(scope, fingerprint, now) == 1) return Claim.CLAIMED;
+        if (repository.takeOver(scope, fingerprint, now, now.minus(ttl), now.minus(lockTimeout)) == 1) return Claim.CLAIMED;
+        // Released between the insert and this read: report it as running and let the caller ask again
+        return repository.findById(scope)
+                .map(r -> Claim.held(r.getFingerprint(), fingerprint,
+                        r.getStatus() == null ? null : new StoredResponse(r.getStatus(), r.getContentType(),
+                                StoredResponse.parseHeaderLines(r.getResponseHeaders()), r.getBody())))
+                .orElse(Claim.IN_PROGRESS);
+    }
+
+    @Override
+    @Transactional
+    public void complete(String scope, StoredResponse response) {
+        repository.complete(scope, response.status(), response.contentType(), response.headerLines(), response.body());
+    }
+
+    @Override
+    @Transactional
+    public void touch(String scope) {
+        repository.touch(scope, Instant.now());
+    }
+
+    @Override
+    @Transactional
+    public void release(String scope) {
+        repository.release(scope);
+    }
+
+    @Scheduled(cron = "${school.idempotency.purge-cron:0 30 3 * * *}")
+    @Transactional
+    public void purgeExpired() {
+        repository.deleteOlderThan(Instant.now().minus(ttl));
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.school.idempotency;
+
+import com.example.school.idempotency.IdempotencyStore.Claim;
+import com.example.school.web.BufferedBodyRequest;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * {@code Idempotency-Key} on authenticated {@code POST /api/**} calls (create student, create class,
+ * enroll, and the other POSTs). The key is scoped to the user; the first request with it runs and its
+ * response is kept, and a retry with the same method, path and body gets that response replayed with
+ * {@code Idempotent-Replayed: true} instead of running again. A retry that arrives while the first is
+ * still running waits for it (see {@link IdempotentRequests}); one still waiting after
+ * {@code wait-timeout} gets 409. The same key with a different request is 422.
+ * <p>
+ * Server errors and 429 are not kept, so retrying them runs the request again. A replay carries the
+ * headers the first response set, such as {@code Location}, except those describing the connection or
+ * this one exchange. The body has to be read to fingerprint it, so it is read only up to
+ * {@code school.api.max-body}; a longer one is 413.
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    /** Responses larger than this are not kept; a retry runs again. */
+    private static final int MAX_STORED_BODY = 1 << 20;
+    /** Headers that belong to one exchange, not to the response a retry should see again. */
+    private static final Set<String> UNREPLAYED_HEADERS = caseInsensitive(HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.DATE, HttpHeaders.SET_COOKIE,
+            HttpHeaders.CONNECTION, "Keep-Alive", REPLAYED_HEADER);
+
+    private final IdempotentRequests idempotentRequests;
+    private final int maxBody;
+
+    public IdempotencyFilter(IdempotentRequests idempotentRequests, int maxBody) {
+        this.idempotentRequests = idempotentRequests;
+        this.maxBody = maxBody;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || !request.getRequestURI().startsWith(request.getContextPath() + "/api/")
+                || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String key = request.getHeader(HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        BufferedBodyRequest buffered = BufferedBodyRequest.read(request, maxBody);
+        if (buffered == null) {
+            response.setStatus(HttpStatus.CONTENT_TOO_LARGE.value());
+            return;
+        }
+        String scope = sha256(auth.getName().length() + ":" + auth.getName() + ":" + key, new byte[0]);
+        Claim claim;
+        try {
+            claim = idempotentRequests.begin(scope, fingerprint(request, buffered.body()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        switch (claim.state()) {
+            case CLAIMED -> execute(buffered, response, chain, scope);
+            case COMPLETED -> replay(response, claim.response());
+            case MISMATCH -> response.setStatus(HttpStatus.UNPROCESSABLE_CONTENT.value());
+            case IN_PROGRESS -> {
+                response.setStatus(HttpStatus.CONFLICT.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            }
+        }
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain chain, String scope)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+        StoredResponse result = null;
+        try {
+            chain.doFilter(request, captured);
+            result = storable(captured);
+        } finally {
+            idempotentRequests.finish(scope, result);
+        }
+        captured.copyBodyToResponse();
+    }
+
+    private static StoredResponse storable(ContentCachingResponseWrapper captured) {
+        int status = captured.getStatus();
+        if (status >= 500 || status == HttpStatus.TOO_MANY_REQUESTS.value()) return null;
+        if (captured.getContentSize() > MAX_STORED_BODY) return null;
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : captured.getHeaderNames()) {
+            if (!UNREPLAYED_HEADERS.contains(name)) headers.put(name, new ArrayList<>(captured.getHeaders(name)));
+        }
+        return new StoredResponse(status, captured.getContentType(), headers, captured.getContentAsByteArray());
+    }
+
+    private static void replay(HttpServletResponse response, StoredResponse stored) throws IOException {
+        response.setStatus(stored.status());
+        stored.headers().forEach((name, values) -> {
+            for (int i = 0; i < values.size(); i++) {
+                if (i == 0) response.setHeader(name, values.get(i));
+                else response.addHeader(name, values.get(i));
+            }
+        });
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.contentType() != null) response.setContentType(stored.contentType());
+        byte[] body = stored.body() != null ? stored.body() : new byte[0];
+        if (body.length > 0) {
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+    }
+
+    /** SHA-256 of method, path, query, content type and body: what has to match for a retry to be replayed. */
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        String head = request.getMethod() + " " + request.getRequestURI() + "?" + request.getQueryString()
+                + "\n" + request.getContentType() + "\n";
+        return sha256(head, body);
+    }
+
+    /** Hex SHA-256 of {@code head} then {@code bytes}; 64 characters whatever the input length. */
+    private static String sha256(String head, byte[] bytes) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(head.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest(bytes));
+    }
+
+    private static Set<String> caseInsensitive(String... names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(List.of(names));
+        return set;
+    }
+}
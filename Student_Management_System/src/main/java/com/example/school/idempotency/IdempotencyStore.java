@@ -0,0 +1,44 @@
+package com.example.school.idempotency;
+
+/**
+ * Claimed {@code Idempotency-Key} scopes and their responses. A scope is claimed by the first request
+ * that uses it; that request then either completes it with its response or releases it.
+ */
+public interface IdempotencyStore {
+
+    /** Claims {@code scope} for a request with the given fingerprint, or reports who holds it. */
+    Claim claim(String scope, String fingerprint);
+
+    /** Stores the response of the request that claimed {@code scope}. */
+    void complete(String scope, StoredResponse response);
+
+    /** Marks a claim whose request is still running as alive, so no other node takes it over. */
+    void touch(String scope);
+
+    /** Gives up a claim without a response, so the next request with the scope runs. */
+    void release(String scope);
+
+    record Claim(State state, StoredResponse response) {
+
+        public enum State {
+            /** The caller holds the scope and must complete or release it. */
+            CLAIMED,
+            /** A request with the same fingerprint finished; replay its response. */
+            COMPLETED,
+            /** The scope was used for a different request. */
+            MISMATCH,
+            /** A request with the same fingerprint is still running. */
+            IN_PROGRESS
+        }
+
+        public static final Claim CLAIMED = new Claim(State.CLAIMED, null);
+        public static final Claim MISMATCH = new Claim(State.MISMATCH, null);
+        public static final Claim IN_PROGRESS = new Claim(State.IN_PROGRESS, null);
+
+        /** The claim of a scope already held for {@code heldFingerprint}, with its response if finished. */
+        static Claim held(String heldFingerprint, String fingerprint, StoredResponse response) {
+            if (!heldFingerprint.equals(fingerprint)) return MISMATCH;
+            return response == null ? IN_PROGRESS : new Claim(State.COMPLETED, response);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.school.idempotency;
+
+import com.example.school.idempotency.IdempotencyStore.Claim;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Coalesces requests that carry the same {@code Idempotency-Key}: the first claims the key in the
+ * {@link IdempotencyStore} and runs; duplicates wait up to {@code wait-timeout} for its response and
+ * replay it. Duplicates on this node wait on the running request directly and ask the store only once it
+ * has finished; a request running on another node is only visible in the store, which is polled.
+ * <p>
+ * While a claimed request runs, its claim is touched every third of {@code lock-timeout}, so however long
+ * the request takes, another node only takes the claim over once this one has stopped touching it (died).
+ */
+@Component
+public class IdempotentRequests {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotentRequests.class);
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private final IdempotencyStore store;
+    private final long waitTimeoutNanos;
+    private final long heartbeatNanos;
+    private final Map<String, CompletableFuture<Void>> running = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> heartbeats = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeatTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "idempotency-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<Claim.State, Counter> outcomes = new EnumMap<>(Claim.State.class);
+
+    public IdempotentRequests(IdempotencyStore store,
+                              @Value("${school.idempotency.wait-timeout:10s}") Duration waitTimeout,
+                              @Value("${school.idempotency.lock-timeout:1m}") Duration lockTimeout,
+                              MeterRegistry meterRegistry) {
+        this.store = store;
+        this.waitTimeoutNanos = waitTimeout.toNanos();
+        this.heartbeatNanos = Math.max(1, lockTimeout.toNanos() / 3);
+        for (Claim.State state : Claim.State.values()) {
+            outcomes.put(state, Counter.builder("school.idempotency.requests")
+                    .description("Requests with an Idempotency-Key, by what became of the key")
+                    .tag("outcome", state.name().toLowerCase().replace('_', '-'))
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Claims {@code scope}, waiting while a request with the same fingerprint is running. A
+     * {@link Claim.State#CLAIMED} result must be followed by exactly one {@link #finish}; an
+     * {@link Claim.State#IN_PROGRESS} result means the wait timed out.
+     */
+    public Claim begin(String scope, String fingerprint) throws InterruptedException {
+        long deadline = System.nanoTime() + waitTimeoutNanos;
+        Claim claim = claim(scope, fingerprint, deadline);
+        outcomes.get(claim.state()).increment();
+        if (claim.state() == Claim.State.CLAIMED) {
+            heartbeats.put(scope, heartbeatTimer.scheduleWithFixedDelay(() -> touch(scope),
+                    heartbeatNanos, heartbeatNanos, TimeUnit.NANOSECONDS));
+        }
+        return claim;
+    }
+
+    /** Ends a claim: stores {@code response} for replay, or with null releases the key so a retry runs. */
+    public void finish(String scope, StoredResponse response) {
+        ScheduledFuture<?> heartbeat = heartbeats.remove(scope);
+        if (heartbeat != null) heartbeat.cancel(false);
+        try {
+            if (response != null) {
+                store.complete(scope, response);
+            } else {
+                store.release(scope);
+            }
+        } finally {
+            CompletableFuture<Void> mine = running.remove(scope);
+            if (mine != null) mine.complete(null);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeatTimer.shutdownNow();
+    }
+
+    private void touch(String scope) {
+        try {
+            store.touch(scope);
+        } catch (RuntimeException e) {
+            // Missed beats only matter once lock-timeout passes without one; the next may get through
+            log.warn("Could not refresh idempotency claim {}", scope, e);
+        }
+    }
+
+    private Claim claim(String scope, String fingerprint, long deadline) throws InterruptedException {
+        while (true) {
+            CompletableFuture<Void> mine = new CompletableFuture<>();
+            CompletableFuture<Void> other = running.putIfAbsent(scope, mine);
+            if (other != null) {
+                if (!await(other, deadline)) return Claim.IN_PROGRESS;
+                continue;
+            }
+            Claim claim;
+            try {
+                claim = store.claim(scope, fingerprint);
+            } catch (RuntimeException e) {
+                done(scope, mine);
+                throw e;
+            }
+            if (claim.state() == Claim.State.CLAIMED) return claim;
+            done(scope, mine);
+            if (claim.state() != Claim.State.IN_PROGRESS) return claim;
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return claim;
+            Thread.sleep(Math.min(POLL_INTERVAL_MILLIS, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+        }
+    }
+
+    private void done(String scope, CompletableFuture<Void> mine) {
+        running.remove(scope, mine);
+        mine.complete(null);
+    }
+
+    private static boolean await(CompletableFuture<Void> other, long deadline) throws InterruptedException {
+        try {
+            other.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.school.idempotency;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * Keys held on this node only, for single-node deployments. Every key lives for the same TTL from its
+ * claim, so claim order is expiry order: expired keys are dropped oldest first, and when
+ * {@code max-keys} are held the oldest go first even before they expire.
+ */
+@Component
+@ConditionalOnProperty(name = "school.idempotency.store", havingValue = "memory")
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private record Entry(String fingerprint, StoredResponse response, long claimedAt) {}
+
+    private record Claimed(String scope, long claimedAt) {}
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Claimed> claimOrder = new ConcurrentLinkedQueue<>();
+    private final long ttlNanos;
+    private final int maxKeys;
+    private final LongSupplier nanoClock;
+
+    public InMemoryIdempotencyStore(@Value("${school.idempotency.ttl:24h}") Duration ttl,
+                                    @Value("${school.idempotency.max-keys:100000}") int maxKeys,
+                                    MeterRegistry meterRegistry) {
+        this(ttl, maxKeys, meterRegistry, System::nanoTime);
+    }
+
+    InMemoryIdempotencyStore(Duration ttl, int maxKeys, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxKeys = maxKeys;
+        this.nanoClock = nanoClock;
+        Gauge.builder("school.idempotency.keys", entries, Map::size)
+                .description("Idempotency keys held in memory")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Claim claim(String scope, String fingerprint) {
+        long now = nanoClock.getAsLong();
+        evict(now);
+        Claim[] claim = new Claim[1];
+        entries.compute(scope, (k, held) -> {
+            if (held == null || isExpired(held.claimedAt(), now)) {
+                claim[0] = Claim.CLAIMED;
+                return new Entry(fingerprint, null, now);
+            }
+            claim[0] = Claim.held(held.fingerprint(), fingerprint, held.response());
+            return held;
+        });
+        if (claim[0] == Claim.CLAIMED) claimOrder.add(new Claimed(scope, now));
+        return claim[0];
+    }
+
+    @Override
+    public void complete(String scope, StoredResponse response) {
+        entries.computeIfPresent(scope, (k, held) ->
+                held.response() == null ? new Entry(held.fingerprint(), response, held.claimedAt()) : held);
+    }
+
+    /** Nothing to do: claims here are never taken over while held, only dropped after the TTL or when full. */
+    @Override
+    public void touch(String scope) {
+    }
+
+    @Override
+    public void release(String scope) {
+        entries.computeIfPresent(scope, (k, held) -> held.response() == null ? null : held);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        Claimed oldest;
+        while ((oldest = claimOrder.peek()) != null && (entries.size() >= maxKeys || isExpired(oldest.claimedAt(), now))) {
+            Claimed evicted = claimOrder.poll();
+            if (evicted == null) return;
+            // A later claim of the same scope has its own place in the queue
+            entries.computeIfPresent(evicted.scope(), (k, held) -> held.claimedAt() == evicted.claimedAt() ? null : held);
+        }
+    }
+
+    private boolean isExpired(long claimedAt, long now) {
+        return now - claimedAt >= ttlNanos;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.school.idempotency;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the first request with a key answered, replayed byte for byte to its retries: status, body, and
+ * the headers the handler set (such as {@code Location}), in order, by name.
+ */
+public record StoredResponse(int status, String contentType, Map<String, List<String>> headers, byte[] body) {
+
+    public StoredResponse {
+        headers = headers == null ? Map.of() : headers;
+    }
+
+    /** The headers as {@code Name: value} lines, for storing in one column. */
+    String headerLines() {
+        StringBuilder lines = new StringBuilder();
+        headers.forEach((name, values) -> values.forEach(value -> lines.append(name).append(": ").append(value).append('\n')));
+        return lines.toString();
+    }
+
+    /** Headers read back from {@link #headerLines()}. */
+    static Map<String, List<String>> parseHeaderLines(String lines) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        if (lines == null) return headers;
+        for (String line : lines.split("\n")) {
+            int colon = line.indexOf(": ");
+            if (colon <= 0) continue;
+            headers.computeIfAbsent(line.substring(0, colon), k -> new ArrayList<>()).add(line.substring(colon + 2));
+        }
+        return headers;
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.school.repository;
 
+import com.example.school.dto.EnrolledClass;
 import com.example.school.entity.Enrollment;
 import com.example.school.entity.SchoolClass;
 import com.example.school.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,4 +27,61 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Long> {
     /** Load enrollments with students in one query (avoids lazy load after transaction). */
     @Query("SELECT e FROM Enrollment e JOIN FETCH e.student WHERE e.schoolClass = :schoolClass")
     List<Enrollment> findBySchoolClassWithStudents(@Param("schoolClass") SchoolClass schoolClass);
+
+    /** Keyset page of a class's students in (name, id) order after the given key; see {@link SchoolClassRepository#findPage}. */
+    @Query("SELECT s FROM Enrollment e JOIN e.student s WHERE e.schoolClass.id = :classId "
+            + "AND (:namePrefix IS NULL OR LOWER(s.name) LIKE :namePrefix ESCAPE '!') "
+            + "AND s.name >= :afterName AND (s.name > :afterName OR s.id > :afterId) "
+            + "ORDER BY s.name, s.id")
+    List<User> findStudentPage(@Param("classId") Long classId, @Param("namePrefix") String namePrefix,
+                               @Param("afterName") String afterName, @Param("afterId") long afterId, Limit limit);
+
+    /** All enrollments across a teacher's classes, with student and class fetched, in one query. */
+    @Query("SELECT e FROM Enrollment e JOIN FETCH e.student s JOIN FETCH e.schoolClass c JOIN FETCH c.teacher t "
+            + "WHERE t.id = :teacherId ORDER BY s.name")
+    List<Enrollment> findByTeacherIdWithStudents(@Param("teacherId") Long teacherId);
+
+    @Query("SELECT e.schoolClass.id FROM Enrollment e WHERE e.student.id = :studentId")
+    List<Long> findClassIdsByStudentId(@Param("studentId") Long studentId);
+
+    /**
+     * Keyset page of a student's classes in (class name, id) order, as id, name and teacher name only.
+     * The enrollment side is answered from the (student_id, school_class_id) unique index alone; class
+     * and teacher are primary-key lookups.
+     */
+    @Query("SELECT new com.example.school.dto.EnrolledClass(c.id, c.name, t.name) "
+            + "FROM Enrollment e JOIN e.schoolClass c JOIN c.teacher t WHERE e.student.id = :studentId "
+            + "AND c.name >= :afterName AND (c.name > :afterName OR c.id > :afterId) "
+            + "ORDER BY c.name, c.id")
+    List<EnrolledClass> findEnrolledClassPage(@Param("studentId") Long studentId, @Param("afterName") String afterName,
+                                              @Param("afterId") long afterId, Limit limit);
+
+    /** Removes one enrollment in one statement; 0 if there was none. */
+    @Modifying
+    @Query("DELETE FROM Enrollment e WHERE e.schoolClass.id = :classId AND e.student.id = :studentId")
+    int deleteByClassIdAndStudentId(@Param("classId") Long classId, @Param("studentId") Long studentId);
+
+    /** As {@link #deleteByClassIdAndStudentId}, but only from a class the teacher owns; 0 otherwise. */
+    @Modifying
+    @Query("DELETE FROM Enrollment e WHERE e.schoolClass.id = :classId AND e.student.id = :studentId "
+            + "AND EXISTS (SELECT 1 FROM SchoolClass c WHERE c.id = :classId AND c.teacher.id = :teacherId)")
+    int deleteByClassIdAndStudentIdForTeacher(@Param("classId") Long classId, @Param("studentId") Long studentId,
+                                              @Param("teacherId") Long teacherId);
+
+    /** Removes a class's enrollments in one statement, ahead of deleting the class. */
+    @Modifying
+    @Query("DELETE FROM Enrollment e WHERE e.schoolClass.id = :classId")
+    int deleteBySchoolClassId(@Param("classId") Long classId);
+
+    /** Removes a student's enrollments in one statement, ahead of deleting the student. */
+    @Modifying
+    @Query("DELETE FROM Enrollment e WHERE e.student.id = :studentId")
+    int deleteByStudentId(@Param("studentId") Long studentId);
+
+    /** Enrolls each given class's source-class students into it, in one statement. */
+    @Modifying
+    @Query(value = "INSERT INTO enrollments (student_id, school_class_id) "
+            + "SELECT e.student_id, c.id FROM school_classes c JOIN enrollments e ON e.school_class_id = c.rolled_over_from_id "
+            + "WHERE c.id IN (:classIds)", nativeQuery = true)
+    int copyEnrollmentsFromRolloverSources(@Param("classIds") Collection<Long> classIds);
 }
@@ -0,0 +1,46 @@
+package com.example.school.repository;
+
+import com.example.school.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /** Claims the scope if no row holds it: 1 if this call inserted the row, 0 if one was already there. */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (scope, fingerprint, created_at) VALUES (:scope, :fingerprint, :now) "
+            + "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("scope") String scope, @Param("fingerprint") String fingerprint, @Param("now") Instant now);
+
+    /** Re-claims a row that has expired, or that was claimed before {@code staleBefore} and never completed. */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.fingerprint = :fingerprint, r.createdAt = :now, r.status = NULL, "
+            + "r.contentType = NULL, r.responseHeaders = NULL, r.body = NULL WHERE r.scope = :scope "
+            + "AND (r.createdAt < :expiredBefore OR (r.status IS NULL AND r.createdAt < :staleBefore))")
+    int takeOver(@Param("scope") String scope, @Param("fingerprint") String fingerprint, @Param("now") Instant now,
+                 @Param("expiredBefore") Instant expiredBefore, @Param("staleBefore") Instant staleBefore);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = :status, r.contentType = :contentType, "
+            + "r.responseHeaders = :headers, r.body = :body WHERE r.scope = :scope AND r.status IS NULL")
+    int complete(@Param("scope") String scope, @Param("status") int status, @Param("contentType") String contentType,
+                 @Param("headers") String headers, @Param("body") byte[] body);
+
+    /** Moves a running claim's timestamp to {@code now}, so it is not taken for stale while its request runs. */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.createdAt = :now WHERE r.scope = :scope AND r.status IS NULL")
+    int touch(@Param("scope") String scope, @Param("now") Instant now);
+
+    /** Drops a claim that never completed, so the next request with the key runs. */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.scope = :scope AND r.status IS NULL")
+    int release(@Param("scope") String scope);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") Instant cutoff);
+}
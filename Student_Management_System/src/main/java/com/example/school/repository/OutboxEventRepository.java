@@ -0,0 +1,36 @@
+package com.example.school.repository;
+
+import com.example.school.entity.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    List<OutboxEvent> findByPositionGreaterThanOrderByPositionAsc(Long after, Limit limit);
+
+    boolean existsByPositionIsNull();
+
+    /** Committed events still waiting for a position, oldest first. */
+    List<OutboxEvent> findByPositionIsNullOrderByIdAsc(Limit limit);
+
+    /** One ENROLLED event per current enrollment of the given classes, in one statement. */
+    @Modifying
+    @Query(value = "INSERT INTO outbox_events (type, class_id, student_id, occurred_at) "
+            + "SELECT 'ENROLLED', e.school_class_id, e.student_id, CURRENT_TIMESTAMP FROM enrollments e "
+            + "WHERE e.school_class_id IN (:classIds) ORDER BY e.id", nativeQuery = true)
+    int insertEnrolledForClasses(@Param("classIds") Collection<Long> classIds);
+
+    @Query("SELECT COALESCE(MAX(e.position), 0) FROM OutboxEvent e")
+    long findMaxPosition();
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.occurredAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,22 @@
+package com.example.school.repository;
+
+import com.example.school.entity.OutboxSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface OutboxSequenceRepository extends JpaRepository<OutboxSequence, Integer> {
+
+    /** Creates the row at position 0 unless it exists; safe to race from several nodes. */
+    @Modifying
+    @Query(value = "INSERT INTO outbox_sequence (id, last_position) VALUES (:id, 0) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("id") int id);
+
+    /** The row, locked until the calling transaction ends. Plain FOR UPDATE, which H2 also understands. */
+    @Query(value = "SELECT * FROM outbox_sequence WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<OutboxSequence> lockById(@Param("id") int id);
+}
@@ -1,14 +1,81 @@
 package com.example.school.repository;
 
 import com.example.school.entity.SchoolClass;
-import com.example.school.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface SchoolClassRepository extends JpaRepository<SchoolClass, Long> {
+public interface SchoolClassRepository extends JpaRepository<SchoolClass, Long>, SchoolClassRepositoryCustom {
 
-    List<SchoolClass> findByTeacherOrderByName(User teacher);
+    /** Teacher's classes with the teacher fetched in the same query (no per-row EAGER select). */
+    @Query("SELECT c FROM SchoolClass c JOIN FETCH c.teacher t WHERE t.id = :teacherId ORDER BY c.name")
+    List<SchoolClass> findByTeacherIdWithTeacher(@Param("teacherId") Long teacherId);
 
-    List<SchoolClass> findAllByOrderByName();
+    /**
+     * Keyset page of classes in (name, id) order after the given key, with teachers fetched in the same
+     * query. Null {@code teacherId} or {@code namePrefix} means no filter; the prefix is a lower-case
+     * LIKE pattern escaped with {@code !}. The leading {@code name >=} bound lets the (name, id) index
+     * start the scan at the key; the teacher is a LEFT JOIN (it is never null) so the planner keeps
+     * classes as the driving table instead of sorting the whole catalog.
+     */
+    @Query("SELECT c FROM SchoolClass c LEFT JOIN FETCH c.teacher "
+            + "WHERE (:teacherId IS NULL OR c.teacher.id = :teacherId) "
+            + "AND (:namePrefix IS NULL OR LOWER(c.name) LIKE :namePrefix ESCAPE '!') "
+            + "AND c.name >= :afterName AND (c.name > :afterName OR c.id > :afterId) "
+            + "ORDER BY c.name, c.id")
+    List<SchoolClass> findPage(@Param("teacherId") Long teacherId, @Param("namePrefix") String namePrefix,
+                               @Param("afterName") String afterName, @Param("afterId") long afterId, Limit limit);
+
+    /** Owner of a class, read from the class row alone (no teacher join). */
+    @Query("SELECT c.teacher.id FROM SchoolClass c WHERE c.id = :id")
+    Optional<Long> findTeacherIdById(@Param("id") Long id);
+
+    /** Deletes a class row without loading it; its enrollments must be gone first. */
+    @Modifying
+    @Query("DELETE FROM SchoolClass c WHERE c.id = :id")
+    int deleteClassById(@Param("id") Long id);
+
+    /** Maintained enrollment count of a class, read from the class row alone. */
+    @Query("SELECT c.enrollmentCount FROM SchoolClass c WHERE c.id = :id")
+    Optional<Integer> findEnrollmentCountById(@Param("id") Long id);
+
+    /** Rows of (class id, maintained enrollment count) for the given classes. */
+    @Query("SELECT c.id, c.enrollmentCount FROM SchoolClass c WHERE c.id IN :ids")
+    List<Object[]> findEnrollmentCounts(@Param("ids") Collection<Long> ids);
+
+    /** Adds {@code delta} to a class's enrollment count in place; must run in the enrollment change's transaction. */
+    @Modifying
+    @Query("UPDATE SchoolClass c SET c.enrollmentCount = c.enrollmentCount + :delta WHERE c.id = :id")
+    int adjustEnrollmentCount(@Param("id") Long id, @Param("delta") int delta);
+
+    /** Takes one off the count of every class the student is enrolled in; run before deleting their enrollments. */
+    @Modifying
+    @Query("UPDATE SchoolClass c SET c.enrollmentCount = c.enrollmentCount - 1 "
+            + "WHERE c.id IN (SELECT e.schoolClass.id FROM Enrollment e WHERE e.student.id = :studentId)")
+    int decrementEnrollmentCountsForStudent(@Param("studentId") Long studentId);
+
+    /**
+     * Locks up to {@code limit} class rows after {@code afterId}, in id order, and returns their ids.
+     * Enrollment changes to these classes wait on the row lock until the locking transaction ends.
+     */
+    @Query(value = "SELECT id FROM school_classes WHERE id > :afterId ORDER BY id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<Long> lockIdsAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /** Sets the count of each given class whose stored count differs from its enrollment rows; returns how many were fixed. */
+    @Modifying
+    @Query("UPDATE SchoolClass c SET c.enrollmentCount = (SELECT COUNT(e) FROM Enrollment e WHERE e.schoolClass.id = c.id) "
+            + "WHERE c.id IN :ids AND c.enrollmentCount <> (SELECT COUNT(e) FROM Enrollment e WHERE e.schoolClass.id = c.id)")
+    int recountEnrollments(@Param("ids") Collection<Long> ids);
+
+    /** Rows of (id, name, description, teacher id) after {@code afterId}, in id order, for the search index. */
+    @Query("SELECT c.id, c.name, c.description, c.teacher.id FROM SchoolClass c WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    long countByIdInAndTeacher_Id(Collection<Long> ids, Long teacherId);
 }
@@ -0,0 +1,32 @@
+package com.example.school.repository;
+
+import jakarta.persistence.Tuple;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class queries Spring Data cannot derive: listings whose select list is chosen per request, for
+ * {@code fields=} on {@code GET /api/classes}, and the term rollover insert that reports what it created.
+ */
+public interface SchoolClassRepositoryCustom {
+
+    /** Columns {@link #findPageColumns} can select, by response property name, in response order. */
+    List<String> COLUMNS = List.of("id", "name", "description", "teacherName", "enrollmentCount");
+
+    /**
+     * The page {@link SchoolClassRepository#findPage} would return, as tuples holding only the given
+     * columns plus {@code id} and {@code name} (the keyset needs both), aliased by property name. The
+     * teacher is joined only when {@code teacherName} is asked for.
+     */
+    List<Tuple> findPageColumns(Collection<String> columns, Long teacherId, String namePrefix,
+                                String afterName, long afterId, int limit);
+
+    /**
+     * Copies the teacher's given classes in one statement, each copy pointing back at its source, and
+     * returns source id by copy id as the insert itself reports them (its generated keys), so copies made
+     * concurrently by another rollover are never mixed in.
+     */
+    Map<Long, Long> insertRolloverCopies(Collection<Long> ids, Long teacherId, String suffix);
+}
@@ -0,0 +1,74 @@
+package com.example.school.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class SchoolClassRepositoryCustomImpl implements SchoolClassRepositoryCustom {
+
+    private static final Map<String, String> EXPRESSIONS = Map.of(
+            "description", "c.description",
+            "teacherName", "t.name",
+            "enrollmentCount", "c.enrollmentCount");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Tuple> findPageColumns(Collection<String> columns, Long teacherId, String namePrefix,
+                                       String afterName, long afterId, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT c.id AS id, c.name AS name");
+        for (String column : COLUMNS) {
+            if (columns.contains(column) && EXPRESSIONS.containsKey(column)) {
+                jpql.append(", ").append(EXPRESSIONS.get(column)).append(" AS ").append(column);
+            }
+        }
+        jpql.append(" FROM SchoolClass c");
+        if (columns.contains("teacherName")) jpql.append(" JOIN c.teacher t");
+        jpql.append(" WHERE c.name >= :afterName AND (c.name > :afterName OR c.id > :afterId)");
+        if (teacherId != null) jpql.append(" AND c.teacher.id = :teacherId");
+        if (namePrefix != null) jpql.append(" AND LOWER(c.name) LIKE :namePrefix ESCAPE '!'");
+        jpql.append(" ORDER BY c.name, c.id");
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class)
+                .setParameter("afterName", afterName)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit);
+        if (teacherId != null) query.setParameter("teacherId", teacherId);
+        if (namePrefix != null) query.setParameter("namePrefix", namePrefix);
+        return query.getResultList();
+    }
+
+    @Override
+    public Map<Long, Long> insertRolloverCopies(Collection<Long> ids, Long teacherId, String suffix) {
+        String sql = "INSERT INTO school_classes (name, description, teacher_id, rolled_over_from_id) "
+                + "SELECT LEFT(CONCAT(c.name, ?), 255), c.description, c.teacher_id, c.id FROM school_classes c "
+                + "WHERE c.teacher_id = ? AND c.id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        entityManager.flush();
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            // PostgreSQL answers with INSERT ... RETURNING id, rolled_over_from_id
+            try (PreparedStatement insert = connection.prepareStatement(sql, new String[]{"id", "rolled_over_from_id"})) {
+                int i = 1;
+                insert.setString(i++, suffix);
+                insert.setLong(i++, teacherId);
+                for (Long id : ids) insert.setLong(i++, id);
+                insert.executeUpdate();
+                Map<Long, Long> sourceByCopy = new LinkedHashMap<>();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    while (keys.next()) sourceByCopy.put(keys.getLong(1), keys.getLong(2));
+                }
+                return sourceByCopy;
+            }
+        });
+    }
+}
@@ -1,15 +1,36 @@
 package com.example.school.repository;
 
+import com.example.school.dto.StudentSummary;
 import com.example.school.entity.Role;
 import com.example.school.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 
     Optional<User> findByUsername(String username);
 
     List<User> findByRole(Role role);
+
+    /**
+     * Users of a role as summary rows in id order, read through one cursor in fetch-size chunks. Must be
+     * consumed and closed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.example.school.dto.StudentSummary(u.id, u.username, u.name, u.email, u.grade) "
+            + "FROM User u WHERE u.role = :role ORDER BY u.id")
+    Stream<StudentSummary> streamSummariesByRole(@Param("role") Role role);
+
+    /** Rows of (id, username, name, email, grade) after {@code afterId}, in id order, for the search index. */
+    @Query("SELECT u.id, u.username, u.name, u.email, u.grade FROM User u WHERE u.role = :role AND u.id > :afterId ORDER BY u.id")
+    List<Object[]> findSearchRowsAfter(@Param("role") Role role, @Param("afterId") Long afterId, Limit limit);
 }
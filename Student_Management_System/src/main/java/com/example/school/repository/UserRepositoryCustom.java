@@ -0,0 +1,21 @@
+package com.example.school.repository;
+
+import com.example.school.entity.Role;
+import jakarta.persistence.Tuple;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/** User listings whose select list is chosen per request, for {@code fields=} on {@code GET /api/students}. */
+public interface UserRepositoryCustom {
+
+    /** Columns {@link #streamColumnsByRole} can select, by response property name, in response order. */
+    List<String> STUDENT_COLUMNS = List.of("id", "username", "name", "email", "grade");
+
+    /**
+     * As {@link UserRepository#streamSummariesByRole}, but as tuples holding only the given columns,
+     * aliased by property name. Must be consumed and closed inside a transaction.
+     */
+    Stream<Tuple> streamColumnsByRole(Collection<String> columns, Role role);
+}
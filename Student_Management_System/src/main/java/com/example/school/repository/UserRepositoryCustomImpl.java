@@ -0,0 +1,29 @@
+package com.example.school.repository;
+
+import com.example.school.entity.Role;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.Collection;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+
+class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<Tuple> streamColumnsByRole(Collection<String> columns, Role role) {
+        StringJoiner select = new StringJoiner(", ", "SELECT ", " FROM User u WHERE u.role = :role ORDER BY u.id");
+        for (String column : STUDENT_COLUMNS) {
+            if (columns.contains(column)) select.add("u." + column + " AS " + column);
+        }
+        return entityManager.createQuery(select.toString(), Tuple.class)
+                .setParameter("role", role)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, 500)
+                .getResultStream();
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.school.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Prefix search over documents identified by a {@code long} id. Text is folded to lower case without
+ * accents and split into tokens; a sorted map from token to a sorted {@code long[]} of ids answers
+ * "tokens starting with x" as one range scan. A query matches a document when every query token is
+ * a prefix of one of its tokens, and the scan stops as soon as {@code limit} matches are found.
+ * <p>
+ * Reads are lock-free and may run on any thread. Writes ({@link #put}, {@link #remove},
+ * {@link #replaceAll}) must come from a single thread: postings are copied on write, which keeps
+ * single-document updates cheap but makes bulk loading go through {@link Loader}.
+ */
+public final class SearchIndex<T> {
+
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final long[] NO_IDS = new long[0];
+
+    private record Doc<T>(T value, String[] tokens) {}
+
+    private record State<T>(NavigableMap<String, long[]> postings, Map<Long, Doc<T>> docs) {}
+
+    private volatile State<T> state = new State<>(new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>());
+
+    /** Indexes (or re-indexes) a document under the tokens of the given texts; null texts are skipped. */
+    public void put(long id, T value, String... texts) {
+        State<T> s = state;
+        String[] tokens = tokens(texts);
+        Doc<T> old = s.docs().put(id, new Doc<>(value, tokens));
+        String[] oldTokens = old != null ? old.tokens() : new String[0];
+        for (String t : oldTokens) {
+            if (Arrays.binarySearch(tokens, t) < 0) removePosting(s.postings(), t, id);
+        }
+        for (String t : tokens) {
+            if (Arrays.binarySearch(oldTokens, t) < 0) addPosting(s.postings(), t, id);
+        }
+    }
+
+    public void remove(long id) {
+        State<T> s = state;
+        Doc<T> old = s.docs().remove(id);
+        if (old == null) return;
+        for (String t : old.tokens()) removePosting(s.postings(), t, id);
+    }
+
+    /** The document indexed under {@code id}, or null. */
+    public T get(long id) {
+        Doc<T> doc = state.docs().get(id);
+        return doc != null ? doc.value() : null;
+    }
+
+    public int size() {
+        return state.docs().size();
+    }
+
+    /** Builds a complete index off to the side; {@link Loader#publish()} swaps it in at once. */
+    public Loader loader() {
+        return new Loader();
+    }
+
+    /**
+     * Up to {@code limit} documents accepted by {@code filter} that match every token of the query.
+     * Documents holding the longest query token exactly come first, then in token and id order.
+     * <p>
+     * The filter is applied while walking the prefix's postings, so a filter that rejects most
+     * documents makes a short prefix walk most of the index; keep such subsets in an index of their own.
+     */
+    public List<T> search(String query, int limit, Predicate<? super T> filter) {
+        String[] terms = queryTokens(query);
+        if (terms.length == 0 || limit <= 0) return List.of();
+        String driver = terms[0];
+        for (String t : terms) if (t.length() > driver.length()) driver = t;
+
+        State<T> s = state;
+        List<T> results = new ArrayList<>(Math.min(limit, 64));
+        // A document with several words under the prefix is met more than once; results stay small
+        long[] found = new long[Math.min(limit, 64)];
+        for (long[] ids : s.postings().subMap(driver, true, driver + Character.MAX_VALUE, false).values()) {
+            for (long id : ids) {
+                if (contains(found, results.size(), id)) continue;
+                Doc<T> doc = s.docs().get(id);
+                if (doc == null || !matchesAll(doc.tokens(), terms) || !filter.test(doc.value())) continue;
+                if (results.size() == found.length) found = Arrays.copyOf(found, found.length * 2);
+                found[results.size()] = id;
+                results.add(doc.value());
+                if (results.size() == limit) return results;
+            }
+        }
+        return results;
+    }
+
+    /** Accumulates documents with growable postings, then publishes them as the new index. */
+    public final class Loader {
+
+        private final Map<String, long[]> postings = new HashMap<>();
+        private final Map<String, Integer> sizes = new HashMap<>();
+        private final Map<String, String> tokenPool = new HashMap<>();
+        private final Map<Long, Doc<T>> docs = new HashMap<>();
+
+        private Loader() {
+        }
+
+        public void add(long id, T value, String... texts) {
+            String[] tokens = tokens(texts);
+            for (int i = 0; i < tokens.length; i++) {
+                String t = tokenPool.computeIfAbsent(tokens[i], k -> k);
+                tokens[i] = t;
+                long[] ids = postings.getOrDefault(t, NO_IDS);
+                int n = sizes.getOrDefault(t, 0);
+                if (n == ids.length) {
+                    ids = Arrays.copyOf(ids, Math.max(4, n * 2));
+                    postings.put(t, ids);
+                }
+                ids[n] = id;
+                sizes.put(t, n + 1);
+            }
+            docs.put(id, new Doc<>(value, tokens));
+        }
+
+        public void publish() {
+            ConcurrentSkipListMap<String, long[]> frozen = new ConcurrentSkipListMap<>();
+            postings.forEach((t, ids) -> {
+                long[] exact = Arrays.copyOf(ids, sizes.get(t));
+                Arrays.sort(exact);
+                frozen.put(t, exact);
+            });
+            state = new State<>(frozen, new ConcurrentHashMap<>(docs));
+        }
+    }
+
+    static String[] tokens(String... texts) {
+        TreeSet<String> tokens = new TreeSet<>();
+        for (String text : texts) {
+            if (text == null) continue;
+            for (String t : NON_ALPHANUMERIC.split(fold(text))) {
+                if (!t.isEmpty()) tokens.add(t);
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static String[] queryTokens(String query) {
+        if (query == null) return new String[0];
+        Set<String> terms = new LinkedHashSet<>();
+        for (String t : NON_ALPHANUMERIC.split(fold(query))) {
+            if (!t.isEmpty()) terms.add(t);
+        }
+        return terms.toArray(new String[0]);
+    }
+
+    private static String fold(String text) {
+        return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /** Every term is a prefix of some token; tokens are sorted, so the candidate is the ceiling. */
+    private static boolean matchesAll(String[] tokens, String[] terms) {
+        for (String term : terms) {
+            int i = Arrays.binarySearch(tokens, term);
+            if (i < 0) i = -i - 1;
+            if (i == tokens.length || !tokens[i].startsWith(term)) return false;
+        }
+        return true;
+    }
+
+    private static boolean contains(long[] ids, int n, long id) {
+        for (int i = 0; i < n; i++) if (ids[i] == id) return true;
+        return false;
+    }
+
+    private static void addPosting(NavigableMap<String, long[]> postings, String token, long id) {
+        long[] ids = postings.getOrDefault(token, NO_IDS);
+        int i = Arrays.binarySearch(ids, id);
+        if (i >= 0) return;
+        i = -i - 1;
+        long[] next = new long[ids.length + 1];
+        System.arraycopy(ids, 0, next, 0, i);
+        next[i] = id;
+        System.arraycopy(ids, i, next, i + 1, ids.length - i);
+        postings.put(token, next);
+    }
+
+    private static void removePosting(NavigableMap<String, long[]> postings, String token, long id) {
+        long[] ids = postings.get(token);
+        if (ids == null) return;
+        int i = Arrays.binarySearch(ids, id);
+        if (i < 0) return;
+        if (ids.length == 1) {
+            postings.remove(token);
+            return;
+        }
+        long[] next = new long[ids.length - 1];
+        System.arraycopy(ids, 0, next, 0, i);
+        System.arraycopy(ids, i + 1, next, i, ids.length - i - 1);
+        postings.put(token, next);
+    }
+}
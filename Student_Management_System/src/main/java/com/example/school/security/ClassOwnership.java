@@ -0,0 +1,35 @@
+package com.example.school.security;
+
+import com.example.school.cache.LocalCache;
+import com.example.school.repository.SchoolClassRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Answers "does this teacher own this class" without loading the class: a miss reads only
+ * {@code teacher_id} by primary key, and the answer is kept in this node's cache until the class is
+ * deleted (via {@link com.example.school.cache.InvalidationBus}) or the entry's TTL runs out.
+ * Missing classes are not cached.
+ */
+@Component
+public class ClassOwnership {
+
+    private final SchoolClassRepository schoolClassRepository;
+    private final LocalCache<Long, Long> classOwnerCache;
+
+    public ClassOwnership(SchoolClassRepository schoolClassRepository, LocalCache<Long, Long> classOwnerCache) {
+        this.schoolClassRepository = schoolClassRepository;
+        this.classOwnerCache = classOwnerCache;
+    }
+
+    /** Teacher id of the class; empty if there is no such class. */
+    public Optional<Long> ownerOf(Long classId) {
+        return classOwnerCache.get(classId, schoolClassRepository::findTeacherIdById);
+    }
+
+    /** True only for a teacher who owns the class. */
+    public boolean isOwner(Long classId, SchoolUserDetails user) {
+        return user.isTeacher() && ownerOf(classId).filter(user.getUserId()::equals).isPresent();
+    }
+}
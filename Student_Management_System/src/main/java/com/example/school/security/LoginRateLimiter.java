@@ -0,0 +1,331 @@
+package com.example.school.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Budgets login attempts per client IP and per username. {@link LoginThrottleFilter} calls
+ * {@link #tryAcquire} or {@link #check} before credentials reach the user lookup or the password
+ * encoder, so a flood costs a map lookup per attempt once a key is over budget.
+ * <p>
+ * A form login is counted when it is admitted, not when it fails, so concurrent attempts cannot all
+ * pass the check before the first failure is recorded. A success does not give the attempt back to
+ * the IP: otherwise logins to an account the caller owns would refill the IP's window for guessing
+ * at others. HTTP Basic sends credentials with every API call, so a Basic request is only checked
+ * against the budget and counted if it fails ({@link #recordFailure}); a busy, correctly configured
+ * client is never throttled, and a Basic flood overshoots the budget by at most what it has in flight.
+ * <p>
+ * An IP gets a fixed number of attempts per sliding window. A username gets a few free attempts,
+ * then must wait an exponentially growing (capped) delay between attempts, which slows guessing
+ * without letting someone else lock the account out; a success resets it.
+ * <p>
+ * Counters are updated with CAS (no locks). Idle keys are swept, and the number of tracked keys is
+ * capped; once full, new keys are not tracked until a sweep frees room.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private static final int SWEEP_EVERY_NEW_KEYS = 1024;
+
+    private final ConcurrentHashMap<String, SlidingWindow> ipWindows = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, UserBackoff> userBackoffs = new ConcurrentHashMap<>();
+    private final long windowNanos;
+    private final int freeAttemptsPerUser;
+    private final int maxAttemptsPerIp;
+    private final long backoffNanos;
+    private final long maxBackoffNanos;
+    private final int maxTrackedKeys;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger newKeysSinceSweep = new AtomicInteger();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final Counter rejectedByUser;
+    private final Counter rejectedByIp;
+    private final Counter untracked;
+
+    @Autowired
+    public LoginRateLimiter(@Value("${school.login-throttle.window:5m}") Duration window,
+                            @Value("${school.login-throttle.max-failures-per-user:5}") int freeAttemptsPerUser,
+                            @Value("${school.login-throttle.max-failures-per-ip:20}") int maxAttemptsPerIp,
+                            @Value("${school.login-throttle.user-backoff:1s}") Duration backoff,
+                            @Value("${school.login-throttle.user-backoff-max:1m}") Duration maxBackoff,
+                            @Value("${school.login-throttle.max-tracked-keys:100000}") int maxTrackedKeys,
+                            MeterRegistry meterRegistry) {
+        this(window, freeAttemptsPerUser, maxAttemptsPerIp, backoff, maxBackoff, maxTrackedKeys, meterRegistry,
+                System::nanoTime);
+    }
+
+    LoginRateLimiter(Duration window, int freeAttemptsPerUser, int maxAttemptsPerIp, Duration backoff,
+                     Duration maxBackoff, int maxTrackedKeys, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.windowNanos = window.toNanos();
+        this.freeAttemptsPerUser = freeAttemptsPerUser;
+        this.maxAttemptsPerIp = maxAttemptsPerIp;
+        this.backoffNanos = backoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.maxTrackedKeys = maxTrackedKeys;
+        this.nanoClock = nanoClock;
+        this.rejectedByUser = Counter.builder("school.login.throttle.rejected")
+                .description("Login attempts rejected before authentication")
+                .tag("key", "user")
+                .register(meterRegistry);
+        this.rejectedByIp = Counter.builder("school.login.throttle.rejected")
+                .description("Login attempts rejected before authentication")
+                .tag("key", "ip")
+                .register(meterRegistry);
+        this.untracked = Counter.builder("school.login.throttle.untracked")
+                .description("Attempts not tracked because the key table was full")
+                .register(meterRegistry);
+        Gauge.builder("school.login.throttle.keys", this, LoginRateLimiter::trackedKeys)
+                .description("Usernames and IPs currently tracked")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts one login attempt against the IP and the username. Returns 0 if the attempt may go
+     * ahead, otherwise the nanoseconds until the key that refused it will admit another attempt.
+     */
+    public long tryAcquire(String username, String ip) {
+        long now = nanoClock.getAsLong();
+        SlidingWindow ipWindow = ip != null ? track(ipWindows, ip, now, k -> new SlidingWindow(now)) : null;
+        if (ipWindow != null) {
+            long wait = ipWindow.tryIncrement(now, maxAttemptsPerIp);
+            if (wait > 0) {
+                rejectedByIp.increment();
+                return wait;
+            }
+        }
+        UserBackoff backoff = username != null
+                ? track(userBackoffs, normalize(username), now, k -> new UserBackoff(now)) : null;
+        if (backoff != null) {
+            long wait = backoff.tryAttempt(now);
+            if (wait > 0) {
+                if (ipWindow != null) ipWindow.decrement(now);
+                rejectedByUser.increment();
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Like {@link #tryAcquire}, but counts nothing: for credentials sent with every request (HTTP Basic),
+     * which are counted by {@link #recordFailure} only when they fail.
+     */
+    public long check(String username, String ip) {
+        long now = nanoClock.getAsLong();
+        SlidingWindow ipWindow = ip != null ? ipWindows.get(ip) : null;
+        if (ipWindow != null) {
+            long wait = ipWindow.waitNanos(now, maxAttemptsPerIp);
+            if (wait > 0) {
+                rejectedByIp.increment();
+                return wait;
+            }
+        }
+        UserBackoff backoff = username != null ? userBackoffs.get(normalize(username)) : null;
+        if (backoff != null) {
+            long wait = backoff.waitNanos(now);
+            if (wait > 0) {
+                rejectedByUser.increment();
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    /** Counts a failed attempt that {@link #check} let through against the IP and the username. */
+    public void recordFailure(String username, String ip) {
+        long now = nanoClock.getAsLong();
+        if (ip != null) {
+            SlidingWindow ipWindow = track(ipWindows, ip, now, k -> new SlidingWindow(now));
+            if (ipWindow != null) ipWindow.increment(now);
+        }
+        if (username != null) {
+            UserBackoff backoff = track(userBackoffs, normalize(username), now, k -> new UserBackoff(now));
+            if (backoff != null) backoff.fail(now);
+        }
+    }
+
+    /** A successful login resets the username's backoff. The IP keeps the attempt. */
+    public void recordSuccess(String username) {
+        if (username == null) return;
+        UserBackoff backoff = userBackoffs.get(normalize(username));
+        if (backoff != null) backoff.reset(nanoClock.getAsLong());
+    }
+
+    public int trackedKeys() {
+        return ipWindows.size() + userBackoffs.size();
+    }
+
+    @EventListener
+    public void onSuccess(AuthenticationSuccessEvent event) {
+        recordSuccess(event.getAuthentication().getName());
+    }
+
+    /** The key's state, created if there is room; null (untracked) when the table is full. */
+    private <T> T track(ConcurrentHashMap<String, T> map, String key, long now, Function<String, T> create) {
+        T existing = map.get(key);
+        if (existing != null) return existing;
+        if (trackedKeys() >= maxTrackedKeys || newKeysSinceSweep.incrementAndGet() >= SWEEP_EVERY_NEW_KEYS) {
+            sweep(now);
+        }
+        if (trackedKeys() >= maxTrackedKeys) {
+            untracked.increment();
+            return null;
+        }
+        return map.computeIfAbsent(key, create);
+    }
+
+    /** Drops idle keys. Only one thread sweeps at a time; others skip. */
+    void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) return;
+        try {
+            newKeysSinceSweep.set(0);
+            ipWindows.values().removeIf(w -> w.isIdle(now));
+            userBackoffs.values().removeIf(b -> b.isIdle(now));
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private static String normalize(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Two adjacent fixed windows; the estimate weights the previous window by how much of it still
+     * overlaps the sliding window ending now.
+     */
+    private final class SlidingWindow {
+
+        private record State(long windowStart, int current, int previous) {}
+
+        private final AtomicReference<State> state;
+
+        SlidingWindow(long now) {
+            this.state = new AtomicReference<>(new State(now, 0, 0));
+        }
+
+        /** Counts an attempt if the estimate is under the limit; else the time left in this window. */
+        long tryIncrement(long now, int limit) {
+            while (true) {
+                State s = state.get();
+                State r = roll(s, now);
+                if (estimate(r, now) >= limit) return Math.max(1, r.windowStart() + windowNanos - now);
+                if (state.compareAndSet(s, new State(r.windowStart(), r.current() + 1, r.previous()))) return 0;
+            }
+        }
+
+        /** 0 if the estimate is under the limit; else the time left in this window. */
+        long waitNanos(long now, int limit) {
+            State r = roll(state.get(), now);
+            return estimate(r, now) >= limit ? Math.max(1, r.windowStart() + windowNanos - now) : 0;
+        }
+
+        void increment(long now) {
+            while (true) {
+                State s = state.get();
+                State r = roll(s, now);
+                if (state.compareAndSet(s, new State(r.windowStart(), r.current() + 1, r.previous()))) return;
+            }
+        }
+
+        void decrement(long now) {
+            while (true) {
+                State s = state.get();
+                State r = roll(s, now);
+                State next;
+                if (r.current() > 0) next = new State(r.windowStart(), r.current() - 1, r.previous());
+                else if (r.previous() > 0) next = new State(r.windowStart(), 0, r.previous() - 1);
+                else return;
+                if (state.compareAndSet(s, next)) return;
+            }
+        }
+
+        boolean isIdle(long now) {
+            return now - state.get().windowStart() >= 2 * windowNanos;
+        }
+
+        private double estimate(State s, long now) {
+            double previousWeight = 1.0 - (double) (now - s.windowStart()) / windowNanos;
+            return s.previous() * Math.max(0.0, previousWeight) + s.current();
+        }
+
+        private State roll(State s, long now) {
+            long elapsed = now - s.windowStart();
+            if (elapsed < windowNanos) return s;
+            if (elapsed < 2 * windowNanos) return new State(s.windowStart() + windowNanos, 0, s.current());
+            return new State(now, 0, 0);
+        }
+    }
+
+    /**
+     * Attempts since the last success and when the latest one was admitted. Past the free attempts,
+     * the next one waits {@code backoff * 2^(extra attempts)}, capped; a quiet window starts over.
+     */
+    private final class UserBackoff {
+
+        private record State(int attempts, long lastAttempt) {}
+
+        private final AtomicReference<State> state;
+
+        UserBackoff(long now) {
+            this.state = new AtomicReference<>(new State(0, now));
+        }
+
+        long tryAttempt(long now) {
+            while (true) {
+                State s = state.get();
+                long wait = waitNanos(s, now);
+                if (wait > 0) return wait;
+                if (state.compareAndSet(s, new State(attempts(s, now) + 1, now))) return 0;
+            }
+        }
+
+        long waitNanos(long now) {
+            return waitNanos(state.get(), now);
+        }
+
+        void fail(long now) {
+            while (true) {
+                State s = state.get();
+                if (state.compareAndSet(s, new State(attempts(s, now) + 1, now))) return;
+            }
+        }
+
+        void reset(long now) {
+            state.set(new State(0, now));
+        }
+
+        boolean isIdle(long now) {
+            return now - state.get().lastAttempt() >= windowNanos;
+        }
+
+        private int attempts(State s, long now) {
+            return s.attempts() > 0 && now - s.lastAttempt() >= windowNanos ? 0 : s.attempts();
+        }
+
+        private long waitNanos(State s, long now) {
+            int attempts = attempts(s, now);
+            return attempts >= freeAttemptsPerUser ? Math.max(0, s.lastAttempt() + delay(attempts) - now) : 0;
+        }
+
+        private long delay(int attempts) {
+            int doublings = Math.min(attempts - freeAttemptsPerUser, 20);
+            return Math.min(backoffNanos << doublings, maxBackoffNanos);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.school.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects credential-bearing requests (form login POST, HTTP Basic header) with 429 when
+ * {@link LoginRateLimiter} says the client IP is over its attempt budget or the username is backing
+ * off, with Retry-After set to the wait. Runs ahead of the authentication filters, so throttled
+ * attempts never hit the database or BCrypt. A form login counts as an attempt when admitted; a
+ * Basic request only when it comes back 401, so API clients using Basic are not limited by how many
+ * calls they make, only by how many fail. The client IP is {@code getRemoteAddr()}, which
+ * Tomcat rewrites from X-Forwarded-For when the request comes from a trusted proxy (see
+ * {@code server.tomcat.remoteip} in application.yaml).
+ */
+public class LoginThrottleFilter extends OncePerRequestFilter {
+
+    private static final String BASIC_PREFIX = "Basic ";
+
+    private final LoginRateLimiter rateLimiter;
+    private final String loginProcessingUrl;
+
+    public LoginThrottleFilter(LoginRateLimiter rateLimiter, String loginProcessingUrl) {
+        this.rateLimiter = rateLimiter;
+        this.loginProcessingUrl = loginProcessingUrl;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        boolean basic = header != null && header.regionMatches(true, 0, BASIC_PREFIX, 0, BASIC_PREFIX.length());
+        boolean formLogin = "POST".equals(request.getMethod())
+                && request.getRequestURI().equals(request.getContextPath() + loginProcessingUrl);
+        if (!basic && !formLogin) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String ip = request.getRemoteAddr();
+        if (formLogin) {
+            String username = request.getParameter("username");
+            long waitNanos = rateLimiter.tryAcquire(username, ip);
+            if (waitNanos > 0) {
+                reject(response, waitNanos);
+                return;
+            }
+            chain.doFilter(request, response);
+            return;
+        }
+        String username = basicUsername(header);
+        long waitNanos = rateLimiter.check(username, ip);
+        if (waitNanos > 0) {
+            reject(response, waitNanos);
+            return;
+        }
+        chain.doFilter(request, response);
+        // Bad Basic credentials end at the entry point with 401
+        if (response.getStatus() == HttpStatus.UNAUTHORIZED.value()) rateLimiter.recordFailure(username, ip);
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        long retryAfterSeconds = TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    }
+
+    private static String basicUsername(String header) {
+        try {
+            String decoded = new String(Base64.getDecoder().decode(header.substring(BASIC_PREFIX.length()).trim()),
+                    StandardCharsets.UTF_8);
+            int colon = decoded.indexOf(':');
+            return colon >= 0 ? decoded.substring(0, colon) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
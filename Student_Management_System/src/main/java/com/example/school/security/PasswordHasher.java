@@ -0,0 +1,94 @@
+package com.example.school.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs password encoding on a dedicated, bounded pool so BCrypt work cannot occupy every CPU or
+ * every Tomcat worker during bulk onboarding. When the queue is full, callers fail fast with
+ * {@link PasswordHashingBusyException} (503) instead of piling up.
+ */
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final Timer hashTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          @Value("${school.password-hashing.pool-size:0}") int poolSize,
+                          @Value("${school.password-hashing.queue-capacity:100}") int queueCapacity,
+                          @Value("${school.password-hashing.timeout:10s}") Duration timeout,
+                          MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeout.toMillis();
+        this.hashTimer = Timer.builder("school.password.hash")
+                .description("Time spent encoding a password")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("school.password.hash.rejected")
+                .description("Encode requests rejected because the hashing queue was full")
+                .register(meterRegistry);
+        Gauge.builder("school.password.hash.queue", executor, e -> e.getQueue().size())
+                .description("Encode requests waiting for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("school.password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashing threads currently encoding")
+                .register(meterRegistry);
+    }
+
+    /** Encodes on the hashing pool and waits for the result (bounded by the configured timeout). */
+    public String encode(CharSequence rawPassword) {
+        Future<String> future;
+        try {
+            future = executor.submit(() -> hashTimer.record(() -> passwordEncoder.encode(rawPassword)));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new PasswordHashingBusyException("Password hashing queue is full");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new PasswordHashingBusyException("Password hashing timed out");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password encoding failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,66 +1,104 @@
 package com.example.school.security;
 
+import com.example.school.entity.Role;
 import com.example.school.entity.User;
+import org.springframework.security.core.CredentialsContainer;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.io.Serial;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
 
-public class SchoolUserDetails implements UserDetails {
+/**
+ * Principal kept in the security context and the session: id, username, display name and role,
+ * copied once from the {@link User} at login. The password hash is only held until authentication
+ * finishes ({@link #eraseCredentials()}) and is never serialized.
+ */
+public final class SchoolUserDetails implements UserDetails, CredentialsContainer {
 
-    private final User user;
+    @Serial
+    private static final long serialVersionUID = 1L;
 
-    public SchoolUserDetails(User user) {
-        this.user = user;
+    private static final Map<Role, List<GrantedAuthority>> AUTHORITIES = new EnumMap<>(Role.class);
+
+    static {
+        for (Role role : Role.values()) {
+            AUTHORITIES.put(role, List.of(new SimpleGrantedAuthority("ROLE_" + role.name())));
+        }
+    }
+
+    private final Long userId;
+    private final String username;
+    private final String name;
+    private final Role role;
+    private transient String password;
+
+    public SchoolUserDetails(Long userId, String username, String name, Role role, String password) {
+        this.userId = userId;
+        this.username = username;
+        this.name = name != null ? name : username;
+        this.role = role;
+        this.password = password;
+    }
+
+    public static SchoolUserDetails from(User user) {
+        return new SchoolUserDetails(user.getId(), user.getUsername(), user.getName(), user.getRole(), user.getPassword());
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
+        return AUTHORITIES.get(role);
     }
 
     @Override
     public String getPassword() {
-        return user.getPassword();
+        return password;
     }
 
     @Override
     public String getUsername() {
-        return user.getUsername();
+        return username;
     }
 
     @Override
-    public boolean isAccountNonExpired() {
-        return true;
+    public void eraseCredentials() {
+        password = null;
     }
 
-    @Override
-    public boolean isAccountNonLocked() {
-        return true;
+    public Long getUserId() {
+        return userId;
     }
 
-    @Override
-    public boolean isCredentialsNonExpired() {
-        return true;
+    public Role getRole() {
+        return role;
     }
 
-    @Override
-    public boolean isEnabled() {
-        return true;
+    public boolean isTeacher() {
+        return role == Role.TEACHER;
     }
 
-    public Long getUserId() {
-        return user.getId();
+    /** Display name; falls back to the username. */
+    public String getName() {
+        return name;
     }
 
-    public boolean isTeacher() {
-        return user.getRole() == com.example.school.entity.Role.TEACHER;
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SchoolUserDetails other && username.equals(other.username);
     }
 
-    public String getName() {
-        return user != null ? user.getName() : null;
+    @Override
+    public int hashCode() {
+        return username.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SchoolUserDetails[userId=" + userId + ", username=" + username + ", role=" + role + "]";
     }
 }
@@ -2,12 +2,13 @@ package com.example.school.security;
 
 import com.example.school.repository.UserRepository;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
-public class SchoolUserDetailsService implements UserDetailsService {
+public class SchoolUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -18,7 +19,18 @@ public class SchoolUserDetailsService implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         return userRepository.findByUsername(username)
-                .map(SchoolUserDetails::new)
+                .map(SchoolUserDetails::from)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
+
+    /** Called by the authentication provider after a successful login whose stored hash needs upgrading. */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        return userRepository.findByUsername(user.getUsername())
+                .map(u -> {
+                    u.setPassword(newPassword);
+                    return SchoolUserDetails.from(userRepository.save(u));
+                })
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + user.getUsername()));
+    }
 }
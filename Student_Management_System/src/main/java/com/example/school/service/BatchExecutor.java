@@ -0,0 +1,171 @@
+package com.example.school.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Runs the operations of a batch in order, several to a transaction, so their service calls join one
+ * transaction and their writes flush together (JDBC-batched where Hibernate can) instead of committing
+ * one by one. A transaction takes at most {@code chunk-size} operations and commits early once it has
+ * run for {@code chunk-time}, so a long batch does not hold locks, a connection, or change-feed
+ * positions for its whole length.
+ * <p>
+ * Each operation is prepared first, outside any transaction ({@link Operation#prepare}), for work such
+ * as password hashing that must not hold a connection; a prepare that throws makes that operation a
+ * failure. An operation that reports failure by its result leaves the rest of its chunk alone. One that
+ * throws rolls its chunk back: the operations before it are run again in a new transaction, it is turned
+ * into a failure by {@code onFailure} without running again, and the batch goes on after it. Only a
+ * chunk that fails at commit, where no single operation is to blame, is replayed one operation per
+ * transaction. Side effects of a rolled-back attempt (outbox rows, invalidation notices) are
+ * transactional and go with it.
+ */
+@Service
+public class BatchExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchExecutor.class);
+
+    /** One batch operation: work to do before its transaction, then the call to make inside it. */
+    @FunctionalInterface
+    public interface Operation<R> {
+
+        /** Runs outside any transaction and returns the call to run in the chunk's transaction. */
+        Supplier<R> prepare();
+
+        /** An operation with nothing to prepare. */
+        static <R> Operation<R> of(Supplier<R> call) {
+            return () -> call;
+        }
+    }
+
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final long chunkTimeNanos;
+    private final LongSupplier nanoClock;
+    private final Counter replayedChunks;
+
+    @Autowired
+    public BatchExecutor(PlatformTransactionManager transactionManager,
+                         @Value("${school.batch.chunk-size:100}") int chunkSize,
+                         @Value("${school.batch.chunk-time:1s}") Duration chunkTime,
+                         MeterRegistry meterRegistry) {
+        this(transactionManager, chunkSize, chunkTime, meterRegistry, System::nanoTime);
+    }
+
+    BatchExecutor(PlatformTransactionManager transactionManager, int chunkSize, Duration chunkTime,
+                  MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.chunkTimeNanos = chunkTime.toNanos();
+        this.nanoClock = nanoClock;
+        this.replayedChunks = Counter.builder("school.batch.chunks.replayed")
+                .description("Batch chunks rolled back by a failing operation and run again without it")
+                .register(meterRegistry);
+    }
+
+    /** One result per operation, in order. */
+    public <R> List<R> execute(List<? extends Operation<R>> operations, Function<RuntimeException, R> onFailure) {
+        List<R> results = new ArrayList<>(operations.size());
+        Deque<Supplier<R>> prepared = new ArrayDeque<>(chunkSize);
+        int nextToPrepare = 0;
+        while (results.size() < operations.size()) {
+            while (prepared.size() < chunkSize && nextToPrepare < operations.size()) {
+                prepared.add(prepare(operations.get(nextToPrepare++), onFailure));
+            }
+            runChunk(prepared, results, onFailure);
+        }
+        return results;
+    }
+
+    private static <R> Supplier<R> prepare(Operation<R> operation, Function<RuntimeException, R> onFailure) {
+        try {
+            return operation.prepare();
+        } catch (RuntimeException e) {
+            R failed = onFailure.apply(e);
+            return () -> failed;
+        }
+    }
+
+    /**
+     * Runs calls from the head of {@code pending} in one transaction until the chunk is done or out of
+     * time, moving each finished one to {@code results}.
+     */
+    private <R> void runChunk(Deque<Supplier<R>> pending, List<R> results, Function<RuntimeException, R> onFailure) {
+        List<R> ran = new ArrayList<>();
+        boolean[] callThrew = {false};
+        long start = nanoClock.getAsLong();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Supplier<R> call : pending) {
+                    R result;
+                    try {
+                        result = call.get();
+                    } catch (RuntimeException e) {
+                        callThrew[0] = true;
+                        throw e;
+                    }
+                    ran.add(result);
+                    if (nanoClock.getAsLong() - start >= chunkTimeNanos) break;
+                }
+            });
+        } catch (RuntimeException e) {
+            replayedChunks.increment();
+            List<Supplier<R>> before = new ArrayList<>(ran.size());
+            for (int i = 0; i < ran.size(); i++) before.add(pending.poll());
+            if (callThrew[0]) {
+                // The call that threw is the failure; the ones before it were only rolled back with it
+                log.warn("Batch operation failed, running the {} before it again", before.size(), e);
+                pending.poll();
+                results.addAll(runAgain(before, onFailure));
+                results.add(onFailure.apply(e));
+            } else {
+                log.warn("Batch chunk of {} operations failed to commit, replaying one at a time", before.size(), e);
+                for (Supplier<R> call : before) results.add(runAlone(call, onFailure));
+            }
+            return;
+        }
+        for (R result : ran) {
+            pending.poll();
+            results.add(result);
+        }
+    }
+
+    /** The calls together in one transaction, or one by one if that fails too. */
+    private <R> List<R> runAgain(List<Supplier<R>> calls, Function<RuntimeException, R> onFailure) {
+        if (calls.isEmpty()) return List.of();
+        try {
+            return transactionTemplate.execute(status -> {
+                List<R> results = new ArrayList<>(calls.size());
+                for (Supplier<R> call : calls) results.add(call.get());
+                return results;
+            });
+        } catch (RuntimeException e) {
+            List<R> results = new ArrayList<>(calls.size());
+            for (Supplier<R> call : calls) results.add(runAlone(call, onFailure));
+            return results;
+        }
+    }
+
+    private <R> R runAlone(Supplier<R> call, Function<RuntimeException, R> onFailure) {
+        try {
+            return transactionTemplate.execute(status -> call.get());
+        } catch (RuntimeException e) {
+            return onFailure.apply(e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.school.service;
+
+import com.example.school.cache.ChangeEvent;
+import com.example.school.cache.InvalidationBus;
+import com.example.school.entity.OutboxEvent;
+import com.example.school.entity.OutboxSequence;
+import com.example.school.repository.OutboxEventRepository;
+import com.example.school.repository.OutboxSequenceRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Transactional outbox for enrollment changes, read by {@code GET /api/changes}. Consumers keep the
+ * position of the last event they saw as their cursor.
+ * <p>
+ * Ids are allocated at insert, not at commit, so a slow transaction can commit a lower id after a
+ * higher one was already read, and a rolled-back one leaves a gap for good; neither can be told apart
+ * from the ids alone. Readers therefore go by position instead: before each read, a sequencing pass
+ * numbers the events that have committed since the last pass, one pass at a time across nodes. An
+ * event committing late simply gets a later position, however long its transaction ran.
+ */
+@Service
+public class ChangeFeedService {
+
+    /** Events numbered per sequencing transaction, so a large backlog is not one long lock. */
+    private static final int SEQUENCE_BATCH = 1000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSequenceRepository outboxSequenceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final Set<Runnable> waiters = ConcurrentHashMap.newKeySet();
+    private final ExecutorService wakeups = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "change-feed-wakeup");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ChangeFeedService(OutboxEventRepository outboxEventRepository,
+                             OutboxSequenceRepository outboxSequenceRepository,
+                             PlatformTransactionManager transactionManager, InvalidationBus invalidationBus,
+                             @Value("${school.changes.retention:7d}") Duration retention) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxSequenceRepository = outboxSequenceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+        // Every outbox write also publishes on the bus, so this fires on whichever node committed it
+        invalidationBus.subscribe(new InvalidationBus.Listener() {
+            @Override
+            public void onChange(ChangeEvent event) {
+                wakeWaiters();
+            }
+
+            @Override
+            public void onReset() {
+                wakeWaiters();
+            }
+        });
+    }
+
+    /** Must run inside the transaction making the change, so the event commits or rolls back with it. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(OutboxEvent.Type type, Long classId, Long studentId) {
+        outboxEventRepository.save(new OutboxEvent(type, classId, studentId));
+    }
+
+    /** Bulk form of {@link #record} for enrollments written set-based: one ENROLLED event per enrollment. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int recordAllEnrolled(Collection<Long> classIds) {
+        return outboxEventRepository.insertEnrolledForClasses(classIds);
+    }
+
+    /** Up to {@code limit} committed events after the cursor, in position order. */
+    public List<OutboxEvent> readAfter(long after, int limit) {
+        sequence();
+        return outboxEventRepository.findByPositionGreaterThanOrderByPositionAsc(after, Limit.of(limit));
+    }
+
+    /** Cursor just past the newest event, for readers that only want what happens from now on. */
+    public long latestCursor() {
+        sequence();
+        return outboxEventRepository.findMaxPosition();
+    }
+
+    /**
+     * Runs {@code onChange} on a background thread whenever new events may have committed, until the
+     * returned handle is run.
+     */
+    public Runnable subscribe(Runnable onChange) {
+        waiters.add(onChange);
+        return () -> waiters.remove(onChange);
+    }
+
+    @Scheduled(cron = "${school.changes.purge-cron:0 15 3 * * *}")
+    @Transactional
+    public void purgeExpired() {
+        outboxEventRepository.deleteOlderThan(Instant.now().minus(retention));
+    }
+
+    /**
+     * Numbers every committed event that has no position yet, in id order, after the last position given
+     * out. Events of transactions still open are not visible here and get their positions on a later pass.
+     */
+    void sequence() {
+        while (outboxEventRepository.existsByPositionIsNull()) {
+            Integer numbered = transactionTemplate.execute(status -> {
+                OutboxSequence sequence = lockSequence();
+                List<OutboxEvent> pending = outboxEventRepository.findByPositionIsNullOrderByIdAsc(Limit.of(SEQUENCE_BATCH));
+                pending.forEach(e -> e.assignPosition(sequence.next()));
+                return pending.size();
+            });
+            if (numbered == null || numbered < SEQUENCE_BATCH) return;
+        }
+    }
+
+    private OutboxSequence lockSequence() {
+        return outboxSequenceRepository.lockById(OutboxSequence.ID).orElseGet(() -> {
+            outboxSequenceRepository.insertIfAbsent(OutboxSequence.ID);
+            return outboxSequenceRepository.lockById(OutboxSequence.ID).orElseThrow();
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        wakeups.shutdownNow();
+    }
+
+    private void wakeWaiters() {
+        if (!waiters.isEmpty()) wakeups.execute(() -> waiters.forEach(Runnable::run));
+    }
+}
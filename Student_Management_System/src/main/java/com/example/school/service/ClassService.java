@@ -1,18 +1,33 @@
 package com.example.school.service;
 
+import com.example.school.cache.ChangeEvent;
+import com.example.school.cache.ChangeEvent.EntityType;
+import com.example.school.cache.InvalidationBus;
+import com.example.school.cache.LocalCache;
+import com.example.school.dto.CreateClassRequest;
+import com.example.school.dto.EnrolledClass;
+import com.example.school.dto.UpdateClassRequest;
 import com.example.school.entity.*;
 import com.example.school.repository.EnrollmentRepository;
 import com.example.school.repository.SchoolClassRepository;
 import com.example.school.repository.UserRepository;
+import com.example.school.security.ClassOwnership;
 import com.example.school.security.SchoolUserDetails;
+import jakarta.persistence.Tuple;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 public class ClassService {
@@ -20,66 +35,145 @@ public class ClassService {
     private final SchoolClassRepository schoolClassRepository;
     private final EnrollmentRepository enrollmentRepository;
     private final UserRepository userRepository;
+    private final InvalidationBus invalidationBus;
+    private final LocalCache<Long, ClassSummary> classSummaryCache;
+    private final ChangeFeedService changeFeedService;
+    private final ClassOwnership classOwnership;
 
     public ClassService(SchoolClassRepository schoolClassRepository,
                         EnrollmentRepository enrollmentRepository,
-                        UserRepository userRepository) {
+                        UserRepository userRepository,
+                        InvalidationBus invalidationBus,
+                        LocalCache<Long, ClassSummary> classSummaryCache,
+                        ChangeFeedService changeFeedService,
+                        ClassOwnership classOwnership) {
         this.schoolClassRepository = schoolClassRepository;
         this.enrollmentRepository = enrollmentRepository;
         this.userRepository = userRepository;
+        this.invalidationBus = invalidationBus;
+        this.classSummaryCache = classSummaryCache;
+        this.changeFeedService = changeFeedService;
+        this.classOwnership = classOwnership;
     }
 
-    /** Teacher: their classes. Student: all classes (with enrolled flag). */
-    public List<SchoolClass> findClassesForCurrentUser(SchoolUserDetails currentUser) {
-        if (currentUser.isTeacher()) {
-            return userRepository.findById(currentUser.getUserId())
-                    .map(schoolClassRepository::findByTeacherOrderByName)
-                    .orElse(List.of());
-        }
-        return schoolClassRepository.findAllByOrderByName();
+    /**
+     * Teacher: a page of their own classes. Student: a page of the catalog, or of one teacher's classes
+     * if {@code teacherId} is given. Either may be narrowed to names starting with {@code namePrefix}
+     * (case-insensitive). Sorted by (name, id), teachers fetched in the same query.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<SchoolClass> findClassPage(SchoolUserDetails currentUser, Long teacherId, String namePrefix,
+                                                 KeysetPage.Key after, int limit) {
+        Long owner = currentUser.isTeacher() ? currentUser.getUserId() : teacherId;
+        List<SchoolClass> rows = schoolClassRepository.findPage(owner, likePrefix(namePrefix), after.name(), after.id(),
+                Limit.of(limit + 1));
+        return KeysetPage.of(rows, limit, c -> new KeysetPage.Key(c.getName(), c.getId()));
+    }
+
+    /**
+     * {@link #findClassPage} reading only the given columns (see {@link SchoolClassRepository#findPageColumns});
+     * no entities are loaded, and the teacher is joined only for {@code teacherName}.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Tuple> findClassColumnsPage(SchoolUserDetails currentUser, Long teacherId, String namePrefix,
+                                                  Collection<String> columns, KeysetPage.Key after, int limit) {
+        Long owner = currentUser.isTeacher() ? currentUser.getUserId() : teacherId;
+        List<Tuple> rows = schoolClassRepository.findPageColumns(columns, owner, likePrefix(namePrefix), after.name(), after.id(),
+                limit + 1);
+        return KeysetPage.of(rows, limit, t -> new KeysetPage.Key(t.get("name", String.class), t.get("id", Long.class)));
     }
 
     public Optional<SchoolClass> findById(Long id) {
         return schoolClassRepository.findById(id);
     }
 
+    /** Class details from this node's cache; kept fresh across nodes by {@link InvalidationBus} events. */
+    public Optional<ClassSummary> findSummary(Long id) {
+        return classSummaryCache.get(id, key -> schoolClassRepository.findById(key).map(ClassSummary::from));
+    }
+
+    /** Maintained count from the class row; 0 for a missing class. */
+    public long countEnrollments(Long classId) {
+        return schoolClassRepository.findEnrollmentCountById(classId).orElse(0);
+    }
+
+    /** Immutable, cacheable view of a class. */
+    public record ClassSummary(Long id, String name, String description, long teacherId, String teacherName) {
+        static ClassSummary from(SchoolClass c) {
+            User t = c.getTeacher();
+            return new ClassSummary(c.getId(), c.getName(), c.getDescription(), t.getId(), t.getName());
+        }
+    }
+
     /** Teacher only: create a class. */
     @Transactional
-    public Optional<SchoolClass> createClass(Map<String, Object> body, SchoolUserDetails currentUser) {
+    public Optional<SchoolClass> createClass(CreateClassRequest body, SchoolUserDetails currentUser) {
         if (!currentUser.isTeacher()) return Optional.empty();
         Optional<User> teacher = userRepository.findById(currentUser.getUserId());
         if (teacher.isEmpty()) return Optional.empty();
-        String name = (String) body.get("name");
+        String name = body.name();
         if (name == null || name.isBlank()) return Optional.empty();
         SchoolClass c = new SchoolClass();
         c.setName(name.trim());
-        c.setDescription((String) body.get("description"));
+        c.setDescription(body.description());
         c.setTeacher(teacher.get());
-        return Optional.of(schoolClassRepository.save(c));
+        SchoolClass saved = schoolClassRepository.save(c);
+        invalidationBus.publish(ChangeEvent.of(EntityType.CLASS, saved.getId()));
+        return Optional.of(saved);
     }
 
     /** Teacher only: update a class they own. */
     @Transactional
-    public Optional<SchoolClass> updateClass(Long id, Map<String, Object> updates, SchoolUserDetails currentUser) {
-        if (!currentUser.isTeacher()) return Optional.empty();
+    public Optional<SchoolClass> updateClass(Long id, UpdateClassRequest updates, SchoolUserDetails currentUser) {
+        if (!classOwnership.isOwner(id, currentUser)) return Optional.empty();
         Optional<SchoolClass> opt = schoolClassRepository.findById(id);
-        if (opt.isEmpty() || !opt.get().getTeacher().getId().equals(currentUser.getUserId())) return Optional.empty();
+        if (opt.isEmpty()) return Optional.empty();
         SchoolClass c = opt.get();
-        if (updates.containsKey("name")) {
-            String name = (String) updates.get("name");
-            if (name != null && !name.isBlank()) c.setName(name.trim());
+        String name = updates.name();
+        if (name != null && !name.isBlank()) c.setName(name.trim());
+        if (updates.description() != null) c.setDescription(updates.description().orElse(null));
+        SchoolClass saved = schoolClassRepository.save(c);
+        invalidationBus.publish(ChangeEvent.of(EntityType.CLASS, id));
+        return Optional.of(saved);
+    }
+
+    /**
+     * Teacher only: copy classes they own, with their rosters, into a new term. Runs as a fixed number
+     * of set-based statements whatever the roster sizes; no class or enrollment rows are loaded.
+     * Empty if any of the classes is missing or not theirs.
+     */
+    @Transactional
+    public Optional<Rollover> rollOver(Collection<Long> classIds, String nameSuffix, SchoolUserDetails currentUser) {
+        if (!currentUser.isTeacher()) return Optional.empty();
+        Set<Long> sourceIds = new HashSet<>(classIds);
+        Long teacherId = currentUser.getUserId();
+        if (sourceIds.isEmpty() || schoolClassRepository.countByIdInAndTeacher_Id(sourceIds, teacherId) != sourceIds.size()) {
+            return Optional.empty();
         }
-        if (updates.containsKey("description")) c.setDescription((String) updates.get("description"));
-        return Optional.of(schoolClassRepository.save(c));
+        String suffix = nameSuffix == null || nameSuffix.isBlank() ? "" : " " + nameSuffix.trim();
+        Map<Long, Long> sourceByCopy = schoolClassRepository.insertRolloverCopies(sourceIds, teacherId, suffix);
+        sourceByCopy.keySet().forEach(id -> invalidationBus.publish(ChangeEvent.of(EntityType.CLASS, id)));
+        int enrollments = enrollmentRepository.copyEnrollmentsFromRolloverSources(sourceByCopy.keySet());
+        if (enrollments > 0) {
+            schoolClassRepository.recountEnrollments(sourceByCopy.keySet());
+            changeFeedService.recordAllEnrolled(sourceByCopy.keySet());
+            sourceByCopy.keySet().forEach(id -> invalidationBus.publish(ChangeEvent.of(EntityType.ENROLLMENT, id)));
+        }
+        return Optional.of(new Rollover(sourceByCopy, enrollments));
+    }
+
+    /** Result of {@link #rollOver}: source class id per new class id, and how many enrollments were copied. */
+    public record Rollover(Map<Long, Long> sourceByClassId, int enrollments) {
     }
 
-    /** Teacher only: delete a class they own. */
+    /** Teacher only: delete a class they own, with its enrollments. */
     @Transactional
     public boolean deleteClass(Long id, SchoolUserDetails currentUser) {
-        if (!currentUser.isTeacher()) return false;
-        Optional<SchoolClass> opt = schoolClassRepository.findById(id);
-        if (opt.isEmpty() || !opt.get().getTeacher().getId().equals(currentUser.getUserId())) return false;
-        schoolClassRepository.delete(opt.get());
+        if (!classOwnership.isOwner(id, currentUser)) return false;
+        enrollmentRepository.deleteBySchoolClassId(id);
+        if (schoolClassRepository.deleteClassById(id) == 0) return false;
+        changeFeedService.record(OutboxEvent.Type.CLASS_DELETED, id, null);
+        invalidationBus.publish(ChangeEvent.of(EntityType.CLASS, id));
         return true;
     }
 
@@ -96,66 +190,108 @@ public class ClassService {
         e.setStudent(student.get());
         e.setSchoolClass(schoolClass.get());
         enrollmentRepository.save(e);
+        schoolClassRepository.adjustEnrollmentCount(classId, 1);
+        changeFeedService.record(OutboxEvent.Type.ENROLLED, classId, student.get().getId());
+        invalidationBus.publish(ChangeEvent.of(EntityType.ENROLLMENT, classId));
         return true;
     }
 
-    /** Student only: unenroll from a class. */
+    /** Student only: unenroll from a class. One conditional delete; false if not enrolled. */
     @Transactional
     public boolean unenroll(Long classId, SchoolUserDetails currentUser) {
         if (currentUser.isTeacher()) return false;
-        Optional<User> student = userRepository.findById(currentUser.getUserId());
-        if (student.isEmpty()) return false;
-        Optional<SchoolClass> schoolClass = schoolClassRepository.findById(classId);
-        if (schoolClass.isEmpty()) return false;
-        return enrollmentRepository.findByStudentAndSchoolClass(student.get(), schoolClass.get())
-                .map(enrollment -> {
-                    enrollmentRepository.delete(enrollment);
-                    return true;
-                })
-                .orElse(false);
+        Long studentId = currentUser.getUserId();
+        if (enrollmentRepository.deleteByClassIdAndStudentId(classId, studentId) == 0) return false;
+        recordUnenrolled(classId, studentId);
+        return true;
     }
 
-    /** For student: set of class IDs they are enrolled in. */
+    /** For student: set of class IDs they are enrolled in, read as ids only. */
     public Set<Long> enrolledClassIdsForStudent(SchoolUserDetails currentUser) {
         if (currentUser.isTeacher()) return Set.of();
-        return userRepository.findById(currentUser.getUserId())
-                .map(enrollmentRepository::findByStudentOrderBySchoolClass_Name)
-                .orElse(List.of())
-                .stream()
-                .map(e -> e.getSchoolClass().getId())
-                .collect(Collectors.toSet());
+        return Set.copyOf(enrollmentRepository.findClassIdsByStudentId(currentUser.getUserId()));
+    }
+
+    /** Student only: a page of the classes they are enrolled in, by (name, id), in one projection query. */
+    @Transactional(readOnly = true)
+    public KeysetPage<EnrolledClass> findEnrolledClassPage(SchoolUserDetails currentUser, KeysetPage.Key after, int limit) {
+        if (currentUser.isTeacher()) return new KeysetPage<>(List.of(), null);
+        List<EnrolledClass> rows = enrollmentRepository.findEnrolledClassPage(currentUser.getUserId(), after.name(), after.id(),
+                Limit.of(limit + 1));
+        return KeysetPage.of(rows, limit, c -> new KeysetPage.Key(c.name(), c.id()));
     }
 
-    /** For teacher: count of enrollments per class (by class id). */
-    public Map<Long, Long> enrollmentCountByClassId(List<SchoolClass> classes) {
-        return classes.stream()
-                .collect(Collectors.toMap(SchoolClass::getId, c -> (long) enrollmentRepository.findBySchoolClass(c).size()));
+    /** Maintained enrollment counts for the given classes, read from the class rows in one query; missing classes map to 0. */
+    @Transactional(readOnly = true)
+    public Map<Long, Long> enrollmentCountsByClassIds(Collection<Long> classIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        classIds.forEach(id -> counts.put(id, 0L));
+        for (Object[] row : schoolClassRepository.findEnrollmentCounts(classIds)) {
+            counts.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
     }
 
-    /** Teacher only: list students enrolled in a class they own. */
+    /** Teacher only: a page of the students enrolled in a class they own, by (name, id); empty otherwise. */
     @Transactional(readOnly = true)
-    public List<User> findEnrolledStudentsByClassId(Long classId, SchoolUserDetails currentUser) {
-        if (!currentUser.isTeacher()) return List.of();
-        Optional<SchoolClass> c = schoolClassRepository.findById(classId);
-        if (c.isEmpty() || !c.get().getTeacher().getId().equals(currentUser.getUserId())) return List.of();
-        return enrollmentRepository.findBySchoolClassWithStudents(c.get()).stream()
-                .map(Enrollment::getStudent)
-                .collect(Collectors.toList());
+    public KeysetPage<User> findEnrolledStudentPage(Long classId, SchoolUserDetails currentUser, String namePrefix,
+                                                    KeysetPage.Key after, int limit) {
+        if (!classOwnership.isOwner(classId, currentUser)) return new KeysetPage<>(List.of(), null);
+        List<User> rows = enrollmentRepository.findStudentPage(classId, likePrefix(namePrefix), after.name(), after.id(),
+                Limit.of(limit + 1));
+        return KeysetPage.of(rows, limit, u -> new KeysetPage.Key(u.getName(), u.getId()));
+    }
+
+    /** LIKE pattern (escape character {@code !}) for lower-cased names starting with {@code prefix}; null for none. */
+    static String likePrefix(String prefix) {
+        if (prefix == null || prefix.isBlank()) return null;
+        String p = prefix.trim().toLowerCase(Locale.ROOT);
+        return p.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
     }
 
-    /** Teacher only: remove a student from a class they own. */
+    /**
+     * Everything the classes page needs in a fixed number of queries: teacher gets their classes
+     * plus all rosters (2 queries); student gets the first catalog page plus their enrolled class ids
+     * (2 queries), and pages on through {@link #findClassPage}.
+     */
+    @Transactional(readOnly = true)
+    public Dashboard loadDashboard(SchoolUserDetails currentUser, int catalogLimit) {
+        if (currentUser.isTeacher()) {
+            List<SchoolClass> classes = schoolClassRepository.findByTeacherIdWithTeacher(currentUser.getUserId());
+            Map<Long, List<User>> rosters = new LinkedHashMap<>();
+            classes.forEach(c -> rosters.put(c.getId(), new ArrayList<>()));
+            enrollmentRepository.findByTeacherIdWithStudents(currentUser.getUserId())
+                    .forEach(e -> rosters.computeIfAbsent(e.getSchoolClass().getId(), id -> new ArrayList<>())
+                            .add(e.getStudent()));
+            return new Dashboard(classes, Set.of(), rosters, null);
+        }
+        KeysetPage<SchoolClass> page = findClassPage(currentUser, null, null, KeysetPage.Key.FIRST, catalogLimit);
+        Set<Long> enrolledIds = Set.copyOf(enrollmentRepository.findClassIdsByStudentId(currentUser.getUserId()));
+        return new Dashboard(page.items(), enrolledIds, Map.of(), page.next());
+    }
+
+    /**
+     * Result of {@link #loadDashboard}; rosters are keyed by class id and only filled for teachers.
+     * {@code nextClasses} is where the student's catalog continues, null if it fit on the page.
+     */
+    public record Dashboard(List<SchoolClass> classes, Set<Long> enrolledClassIds, Map<Long, List<User>> rosters,
+                            KeysetPage.Key nextClasses) {
+    }
+
+    /** Teacher only: remove a student from a class they own. One conditional delete; false if nothing matched. */
     @Transactional
     public boolean removeStudentFromClass(Long classId, Long studentId, SchoolUserDetails currentUser) {
         if (!currentUser.isTeacher()) return false;
-        Optional<SchoolClass> schoolClass = schoolClassRepository.findById(classId);
-        if (schoolClass.isEmpty() || !schoolClass.get().getTeacher().getId().equals(currentUser.getUserId())) return false;
-        Optional<User> student = userRepository.findById(studentId);
-        if (student.isEmpty() || student.get().getRole() != Role.STUDENT) return false;
-        return enrollmentRepository.findByStudentAndSchoolClass(student.get(), schoolClass.get())
-                .map(enrollment -> {
-                    enrollmentRepository.delete(enrollment);
-                    return true;
-                })
-                .orElse(false);
+        if (enrollmentRepository.deleteByClassIdAndStudentIdForTeacher(classId, studentId, currentUser.getUserId()) == 0) {
+            return false;
+        }
+        recordUnenrolled(classId, studentId);
+        return true;
+    }
+
+    private void recordUnenrolled(Long classId, Long studentId) {
+        schoolClassRepository.adjustEnrollmentCount(classId, -1);
+        changeFeedService.record(OutboxEvent.Type.UNENROLLED, classId, studentId);
+        invalidationBus.publish(ChangeEvent.of(EntityType.ENROLLMENT, classId));
     }
 }
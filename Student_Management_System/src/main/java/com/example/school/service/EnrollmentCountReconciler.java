@@ -0,0 +1,76 @@
+package com.example.school.service;
+
+import com.example.school.repository.SchoolClassRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Repairs drift in {@code school_classes.enrollment_count}: enrollments written outside
+ * {@link ClassService} (imports, manual SQL) or counts from before the column existed.
+ * <p>
+ * Walks all classes in id order, one batch per transaction. Each batch first locks its class rows,
+ * then recounts in a second statement: enrollment changes to those classes wait on the lock, and the
+ * recount sees every change that committed before it, so a concurrent enroll is never lost.
+ */
+@Service
+public class EnrollmentCountReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(EnrollmentCountReconciler.class);
+
+    private final SchoolClassRepository schoolClassRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Counter repaired;
+
+    public EnrollmentCountReconciler(SchoolClassRepository schoolClassRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${school.enrollment-count.batch-size:500}") int batchSize,
+                                     MeterRegistry meterRegistry) {
+        this.schoolClassRepository = schoolClassRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.repaired = Counter.builder("school.enrollments.count.repaired")
+                .description("Class enrollment counts found out of step with their enrollment rows and fixed")
+                .register(meterRegistry);
+    }
+
+    /** One pass over every class; returns how many counts were fixed. */
+    @Scheduled(initialDelayString = "${school.enrollment-count.initial-delay:1m}",
+            fixedDelayString = "${school.enrollment-count.reconcile-interval:1h}")
+    public int reconcile() {
+        int fixed = 0;
+        Long cursor = 0L;
+        while (cursor != null) {
+            long after = cursor;
+            Batch batch = transactionTemplate.execute(status -> reconcileAfter(after));
+            fixed += batch.fixed();
+            cursor = batch.lastId();
+        }
+        if (fixed > 0) {
+            repaired.increment(fixed);
+            log.warn("Repaired {} class enrollment counts", fixed);
+        }
+        return fixed;
+    }
+
+    private Batch reconcileAfter(long afterId) {
+        List<Long> ids = schoolClassRepository.lockIdsAfter(afterId, batchSize);
+        if (ids.isEmpty()) return new Batch(null, 0);
+        int fixed = schoolClassRepository.recountEnrollments(ids);
+        Long lastId = ids.size() < batchSize ? null : ids.get(ids.size() - 1);
+        return new Batch(lastId, fixed);
+    }
+
+    /** Outcome of one batch: where the next one starts (null when done) and how many counts it fixed. */
+    private record Batch(Long lastId, int fixed) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.school.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * One page of a listing sorted by (name, id). {@code next} is the sort key of the last item, from
+ * which the following page starts, or null on the last page. Positions are keys rather than offsets,
+ * so each page is an index range scan however deep it is, and rows inserted or deleted meanwhile do
+ * not shift later pages.
+ */
+public record KeysetPage<T>(List<T> items, Key next) {
+
+    /** Sort key of a row; the page starting at it holds the rows strictly after it. */
+    public record Key(String name, long id) {
+
+        /** Before every row (names are never empty). */
+        public static final Key FIRST = new Key("", 0);
+
+        /** Opaque, URL-safe form for a {@code after} query parameter. */
+        public String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((id + ":" + name).getBytes(StandardCharsets.UTF_8));
+        }
+
+        /** Empty if the token was not produced by {@link #encode()}. */
+        public static Optional<Key> decode(String token) {
+            try {
+                String s = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int colon = s.indexOf(':');
+                if (colon < 1) return Optional.empty();
+                return Optional.of(new Key(s.substring(colon + 1), Long.parseLong(s.substring(0, colon))));
+            } catch (IllegalArgumentException e) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    /** Page from rows fetched with one row more than {@code limit}; the extra row only signals a next page. */
+    static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, Key> keyOf) {
+        if (rows.size() <= limit) return new KeysetPage<>(rows, null);
+        List<T> items = rows.subList(0, limit);
+        return new KeysetPage<>(items, keyOf.apply(items.get(limit - 1)));
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
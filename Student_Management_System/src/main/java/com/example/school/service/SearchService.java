@@ -0,0 +1,191 @@
+package com.example.school.service;
+
+import com.example.school.cache.ChangeEvent;
+import com.example.school.cache.InvalidationBus;
+import com.example.school.entity.Role;
+import com.example.school.entity.SchoolClass;
+import com.example.school.entity.User;
+import com.example.school.repository.SchoolClassRepository;
+import com.example.school.repository.UserRepository;
+import com.example.school.search.SearchIndex;
+import com.example.school.security.SchoolUserDetails;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Typeahead over students (username, name, email local part) and classes (name, description), served
+ * from per-node {@link SearchIndex}es. The indexes are loaded once the application is ready and then
+ * kept current from {@link InvalidationBus} events, so writes on any node show up on every node; each
+ * event re-reads the one row it names. All index writes run on one background thread.
+ * <p>
+ * Classes are also indexed per teacher. A teacher's search walks only their own classes' postings
+ * instead of filtering the whole catalog's, which for a short prefix would visit most of it.
+ */
+@Service
+public class SearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchService.class);
+    private static final int LOAD_PAGE = 10_000;
+
+    private final UserRepository userRepository;
+    private final SchoolClassRepository schoolClassRepository;
+    private final SearchIndex<StudentHit> students = new SearchIndex<>();
+    private final SearchIndex<ClassHit> classes = new SearchIndex<>();
+    private volatile Map<Long, SearchIndex<ClassHit>> classesByTeacher = new ConcurrentHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "search-index");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SearchService(UserRepository userRepository, SchoolClassRepository schoolClassRepository,
+                         InvalidationBus invalidationBus, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.schoolClassRepository = schoolClassRepository;
+        invalidationBus.subscribe(new InvalidationBus.Listener() {
+            @Override
+            public void onChange(ChangeEvent event) {
+                submit(() -> apply(event));
+            }
+
+            @Override
+            public void onReset() {
+                submit(SearchService.this::rebuild);
+            }
+        });
+        Gauge.builder("school.search.documents", students, SearchIndex::size).tag("index", "students").register(meterRegistry);
+        Gauge.builder("school.search.documents", classes, SearchIndex::size).tag("index", "classes").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndexes() {
+        submit(this::rebuild);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writer.shutdownNow();
+    }
+
+    /** Teacher only: students matching every word of the query as a prefix. */
+    public List<StudentHit> searchStudents(String query, int limit, SchoolUserDetails currentUser) {
+        if (!currentUser.isTeacher()) return List.of();
+        return students.search(query, limit, s -> true);
+    }
+
+    /** Teacher: their own classes; student: the whole catalog. */
+    public List<ClassHit> searchClasses(String query, int limit, SchoolUserDetails currentUser) {
+        if (!currentUser.isTeacher()) return classes.search(query, limit, c -> true);
+        SearchIndex<ClassHit> own = classesByTeacher.get(currentUser.getUserId());
+        return own != null ? own.search(query, limit, c -> true) : List.of();
+    }
+
+    private void submit(Runnable task) {
+        writer.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("Search index update failed", e);
+            }
+        });
+    }
+
+    private void rebuild() {
+        long started = System.nanoTime();
+        SearchIndex<StudentHit>.Loader studentLoader = students.loader();
+        long after = 0;
+        List<Object[]> rows;
+        do {
+            rows = userRepository.findSearchRowsAfter(Role.STUDENT, after, Limit.of(LOAD_PAGE));
+            for (Object[] r : rows) {
+                StudentHit hit = new StudentHit((Long) r[0], (String) r[1], (String) r[2], (String) r[3], (String) r[4]);
+                studentLoader.add(hit.id(), hit, hit.username(), hit.name(), localPart(hit.email()));
+                after = hit.id();
+            }
+        } while (rows.size() == LOAD_PAGE);
+        studentLoader.publish();
+
+        SearchIndex<ClassHit>.Loader classLoader = classes.loader();
+        Map<Long, SearchIndex<ClassHit>> byTeacher = new ConcurrentHashMap<>();
+        Map<Long, SearchIndex<ClassHit>.Loader> teacherLoaders = new HashMap<>();
+        after = 0;
+        do {
+            rows = schoolClassRepository.findSearchRowsAfter(after, Limit.of(LOAD_PAGE));
+            for (Object[] r : rows) {
+                ClassHit hit = new ClassHit((Long) r[0], (String) r[1], (String) r[2], (Long) r[3]);
+                classLoader.add(hit.id(), hit, hit.name(), hit.description());
+                teacherLoaders.computeIfAbsent(hit.teacherId(), t -> byTeacher.computeIfAbsent(t, k -> new SearchIndex<>()).loader())
+                        .add(hit.id(), hit, hit.name(), hit.description());
+                after = hit.id();
+            }
+        } while (rows.size() == LOAD_PAGE);
+        teacherLoaders.values().forEach(SearchIndex.Loader::publish);
+        classesByTeacher = byTeacher;
+        classLoader.publish();
+        log.info("Search indexes loaded: {} students, {} classes in {} ms",
+                students.size(), classes.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void apply(ChangeEvent event) {
+        switch (event.type()) {
+            case USER -> userRepository.findById(event.id())
+                    .filter(u -> u.getRole() == Role.STUDENT)
+                    .ifPresentOrElse(this::indexStudent, () -> students.remove(event.id()));
+            case CLASS -> schoolClassRepository.findById(event.id())
+                    .ifPresentOrElse(this::indexClass, () -> removeClass(event.id()));
+            case ENROLLMENT -> {
+                // Rosters are not searched
+            }
+        }
+    }
+
+    private void indexStudent(User u) {
+        StudentHit hit = new StudentHit(u.getId(), u.getUsername(), u.getName(), u.getEmail(), u.getGrade());
+        students.put(hit.id(), hit, hit.username(), hit.name(), localPart(hit.email()));
+    }
+
+    private void indexClass(SchoolClass c) {
+        ClassHit hit = new ClassHit(c.getId(), c.getName(), c.getDescription(), c.getTeacher().getId());
+        ClassHit old = classes.get(hit.id());
+        if (old != null && old.teacherId() != hit.teacherId()) teacherClasses(old.teacherId()).remove(hit.id());
+        classes.put(hit.id(), hit, hit.name(), hit.description());
+        teacherClasses(hit.teacherId()).put(hit.id(), hit, hit.name(), hit.description());
+    }
+
+    private void removeClass(long id) {
+        ClassHit old = classes.get(id);
+        classes.remove(id);
+        if (old != null) teacherClasses(old.teacherId()).remove(id);
+    }
+
+    private SearchIndex<ClassHit> teacherClasses(long teacherId) {
+        return classesByTeacher.computeIfAbsent(teacherId, t -> new SearchIndex<>());
+    }
+
+    /** The domain would put every student under the same few tokens. */
+    private static String localPart(String email) {
+        if (email == null) return null;
+        int at = email.indexOf('@');
+        return at < 0 ? email : email.substring(0, at);
+    }
+
+    public record StudentHit(long id, String username, String name, String email, String grade) {
+    }
+
+    public record ClassHit(long id, String name, String description, long teacherId) {
+    }
+}
@@ -1,33 +1,61 @@
 package com.example.school.service;
 
+import com.example.school.cache.ChangeEvent;
+import com.example.school.cache.ChangeEvent.EntityType;
+import com.example.school.cache.InvalidationBus;
+import com.example.school.dto.CreateStudentRequest;
+import com.example.school.dto.StudentSummary;
+import com.example.school.dto.UpdateStudentRequest;
+import com.example.school.entity.OutboxEvent;
 import com.example.school.entity.Role;
 import com.example.school.entity.User;
+import com.example.school.repository.EnrollmentRepository;
+import com.example.school.repository.SchoolClassRepository;
 import com.example.school.repository.UserRepository;
+import com.example.school.security.PasswordHasher;
 import com.example.school.security.SchoolUserDetails;
+import jakarta.persistence.Tuple;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
 
+    private static final String DEFAULT_PASSWORD = "changeme";
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final EnrollmentRepository enrollmentRepository;
+    private final SchoolClassRepository schoolClassRepository;
+    private final PasswordHasher passwordHasher;
+    private final InvalidationBus invalidationBus;
+    private final ChangeFeedService changeFeedService;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, EnrollmentRepository enrollmentRepository,
+                       SchoolClassRepository schoolClassRepository, PasswordHasher passwordHasher,
+                       InvalidationBus invalidationBus, ChangeFeedService changeFeedService) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.enrollmentRepository = enrollmentRepository;
+        this.schoolClassRepository = schoolClassRepository;
+        this.passwordHasher = passwordHasher;
+        this.invalidationBus = invalidationBus;
+        this.changeFeedService = changeFeedService;
     }
 
     public Optional<User> findById(Long id) {
         return userRepository.findById(id);
     }
 
+    public List<User> findAllById(Collection<Long> ids) {
+        return userRepository.findAllById(ids);
+    }
+
     public List<User> findAllStudents() {
         return userRepository.findByRole(Role.STUDENT);
     }
@@ -43,56 +71,116 @@ public class UserService {
                 .orElse(List.of());
     }
 
-    /** Teacher only: create a new student. */
+    /**
+     * Every student, in id order, handed to {@code action} row by row from one open cursor. The
+     * read-only transaction lasts as long as the walk and no entities are loaded. Teacher-only callers.
+     */
+    @Transactional(readOnly = true)
+    public void forEachStudent(Consumer<StudentSummary> action) {
+        try (Stream<StudentSummary> rows = userRepository.streamSummariesByRole(Role.STUDENT)) {
+            rows.forEach(action);
+        }
+    }
+
+    /** {@link #forEachStudent(Consumer)} reading only the given columns, as tuples aliased by property name. */
+    @Transactional(readOnly = true)
+    public void forEachStudent(Collection<String> columns, Consumer<Tuple> action) {
+        try (Stream<Tuple> rows = userRepository.streamColumnsByRole(columns, Role.STUDENT)) {
+            rows.forEach(action);
+        }
+    }
+
+    /**
+     * BCrypt hash of the password {@link #createStudent} would store (the default one if none is given),
+     * or null if the caller may not create students. Hashing waits on the hashing pool, so callers do it
+     * before opening the transaction that stores the hash rather than holding a connection through it.
+     */
+    public String hashPasswordFor(CreateStudentRequest body, SchoolUserDetails currentUser) {
+        if (!currentUser.isTeacher()) return null;
+        return passwordHasher.encode(body.password() != null ? body.password() : DEFAULT_PASSWORD);
+    }
+
+    /** As for a create; null also when the update leaves the password alone. */
+    public String hashPasswordFor(UpdateStudentRequest updates, SchoolUserDetails currentUser) {
+        String pwd = updates.password();
+        if (!currentUser.isTeacher() || pwd == null || pwd.isBlank()) return null;
+        return passwordHasher.encode(pwd);
+    }
+
+    /** Teacher only: create a new student with the hash from {@link #hashPasswordFor(CreateStudentRequest, SchoolUserDetails)}. */
     @Transactional
-    public Optional<User> createStudent(Map<String, Object> body, SchoolUserDetails currentUser) {
-        if (!currentUser.isTeacher()) return Optional.empty();
-        String username = (String) body.get("username");
+    public Optional<User> createStudent(CreateStudentRequest body, String passwordHash, SchoolUserDetails currentUser) {
+        if (!currentUser.isTeacher() || passwordHash == null) return Optional.empty();
+        String username = body.username();
         if (username == null || username.isBlank() || userRepository.findByUsername(username).isPresent()) {
             return Optional.empty();
         }
         User student = new User();
         student.setUsername(username.trim());
-        student.setPassword(passwordEncoder.encode((String) body.getOrDefault("password", "changeme")));
-        student.setName((String) body.getOrDefault("name", username));
-        student.setEmail((String) body.get("email"));
-        student.setGrade((String) body.get("grade"));
+        student.setPassword(passwordHash);
+        student.setName(body.name() != null ? body.name() : username);
+        student.setEmail(body.email());
+        student.setGrade(body.grade());
         student.setRole(Role.STUDENT);
-        return Optional.of(userRepository.save(student));
+        User saved = userRepository.save(student);
+        invalidationBus.publish(ChangeEvent.of(EntityType.USER, saved.getId()));
+        return Optional.of(saved);
     }
 
-    /** Teacher only: update any student's info. */
+    /**
+     * Teacher only: store a new user of any role, built by the caller with its password already hashed.
+     * Empty if the username is taken.
+     */
     @Transactional
-    public Optional<User> updateStudentInfo(Long studentId, Map<String, Object> updates, SchoolUserDetails currentUser) {
+    public Optional<User> registerUser(User user, SchoolUserDetails currentUser) {
+        if (!currentUser.isTeacher() || userRepository.findByUsername(user.getUsername()).isPresent()) return Optional.empty();
+        User saved = userRepository.save(user);
+        invalidationBus.publish(ChangeEvent.of(EntityType.USER, saved.getId()));
+        return Optional.of(saved);
+    }
+
+    /**
+     * Teacher only: update any student's info. A password change is stored as {@code passwordHash},
+     * from {@link #hashPasswordFor(UpdateStudentRequest, SchoolUserDetails)}; null leaves it alone.
+     */
+    @Transactional
+    public Optional<User> updateStudentInfo(Long studentId, UpdateStudentRequest updates, String passwordHash,
+                                            SchoolUserDetails currentUser) {
         if (!currentUser.isTeacher()) return Optional.empty();
         Optional<User> opt = userRepository.findById(studentId);
         if (opt.isEmpty()) return Optional.empty();
         User student = opt.get();
         if (student.getRole() != Role.STUDENT) return Optional.empty();
-        if (updates.containsKey("name")) student.setName((String) updates.get("name"));
-        if (updates.containsKey("email")) student.setEmail((String) updates.get("email"));
-        if (updates.containsKey("grade")) student.setGrade((String) updates.get("grade"));
-        String pwd = (String) updates.get("password");
-        if (pwd != null && !pwd.isBlank())
-            student.setPassword(passwordEncoder.encode(pwd));
-        return Optional.of(userRepository.save(student));
+        String name = updates.name();
+        if (name != null && !name.isBlank()) student.setName(name);
+        if (updates.email() != null) student.setEmail(updates.email().orElse(null));
+        if (updates.grade() != null) student.setGrade(updates.grade().orElse(null));
+        if (passwordHash != null) student.setPassword(passwordHash);
+        User saved = userRepository.save(student);
+        invalidationBus.publish(ChangeEvent.of(EntityType.USER, studentId));
+        return Optional.of(saved);
     }
 
-    /** Teacher only: delete a student. */
+    /** Teacher only: delete a student and their enrollments. */
     @Transactional
     public boolean deleteStudent(Long studentId, SchoolUserDetails currentUser) {
         if (!currentUser.isTeacher()) return false;
         Optional<User> opt = userRepository.findById(studentId);
         if (opt.isEmpty() || opt.get().getRole() != Role.STUDENT) return false;
+        schoolClassRepository.decrementEnrollmentCountsForStudent(studentId);
+        enrollmentRepository.deleteByStudentId(studentId);
         userRepository.delete(opt.get());
+        changeFeedService.record(OutboxEvent.Type.STUDENT_DELETED, null, studentId);
+        invalidationBus.publish(ChangeEvent.of(EntityType.USER, studentId));
         return true;
     }
 
+    /** Principal of the current request, read from the security context (no database access). */
     public Optional<SchoolUserDetails> getCurrentUserDetails() {
         var auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !auth.isAuthenticated() || !(auth.getPrincipal() instanceof SchoolUserDetails)) {
-            return Optional.empty();
+        if (auth != null && auth.isAuthenticated() && auth.getPrincipal() instanceof SchoolUserDetails d) {
+            return Optional.of(d);
         }
-        return Optional.of((SchoolUserDetails) auth.getPrincipal());
+        return Optional.empty();
     }
 }
@@ -3,10 +3,10 @@ package com.example.school.web;
 import com.example.school.entity.Role;
 import com.example.school.entity.User;
 import com.example.school.repository.UserRepository;
+import com.example.school.security.PasswordHasher;
 import com.example.school.security.SchoolUserDetails;
 import com.example.school.service.UserService;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -17,12 +17,12 @@ import java.util.Optional;
 public class AuthController {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final UserService userService;
 
-    public AuthController(UserRepository userRepository, PasswordEncoder passwordEncoder, UserService userService) {
+    public AuthController(UserRepository userRepository, PasswordHasher passwordHasher, UserService userService) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
         this.userService = userService;
     }
 
@@ -31,8 +31,8 @@ public class AuthController {
         return userService.getCurrentUserDetails()
                 .map(d -> ResponseEntity.<Map<String, Object>>ok(Map.of(
                         "username", d.getUsername(),
-                        "name", d.getName() != null ? d.getName() : d.getUsername(),
-                        "role", d.isTeacher() ? "TEACHER" : "STUDENT"
+                        "name", d.getName(),
+                        "role", d.getRole().name()
                 )))
                 .orElse(ResponseEntity.status(401).build());
     }
@@ -48,16 +48,18 @@ public class AuthController {
         }
         User user = new User();
         user.setUsername(request.username());
-        user.setPassword(passwordEncoder.encode(request.password()));
+        user.setPassword(passwordHasher.encode(request.password()));
         user.setName(request.name());
         user.setRole(request.role() != null ? request.role() : Role.STUDENT);
         user.setEmail(request.email());
         user.setGrade(request.grade());
-        user = userRepository.save(user);
+        // Hashed above, outside the transaction that stores the user and publishes its invalidation
+        Optional<User> saved = userService.registerUser(user, current.get());
+        if (saved.isEmpty()) return ResponseEntity.badRequest().body(Map.of("error", "Username already exists"));
         return ResponseEntity.ok(Map.of(
-                "id", user.getId(),
-                "username", user.getUsername(),
-                "role", user.getRole().name()
+                "id", saved.get().getId(),
+                "username", saved.get().getUsername(),
+                "role", saved.get().getRole().name()
         ));
     }
 
@@ -0,0 +1,180 @@
+package com.example.school.web;
+
+import com.example.school.admission.AdmissionControl;
+import com.example.school.admission.AdmissionControlFilter;
+import com.example.school.dto.BatchRequest;
+import com.example.school.dto.CreateClassRequest;
+import com.example.school.dto.CreateStudentRequest;
+import com.example.school.dto.UpdateClassRequest;
+import com.example.school.dto.UpdateStudentRequest;
+import com.example.school.security.PasswordHashingBusyException;
+import com.example.school.security.SchoolUserDetails;
+import com.example.school.service.BatchExecutor;
+import com.example.school.service.BatchExecutor.Operation;
+import com.example.school.service.ClassService;
+import com.example.school.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Many create/update/enroll calls in one request: authenticated once, run in order as the caller
+ * through the same service methods as the individual endpoints, and committed in chunks by
+ * {@link BatchExecutor}. Each operation gets the status (and body) its own call would have returned.
+ */
+@RestController
+@RequestMapping("/api/batch")
+public class BatchController {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchController.class);
+
+    private static final Pattern STUDENT = Pattern.compile("/api/students/(\\d+)");
+    private static final Pattern CLASS = Pattern.compile("/api/classes/(\\d+)");
+    private static final Pattern ENROLL = Pattern.compile("/api/classes/(\\d+)/enroll");
+    private static final Pattern ENROLLMENT = Pattern.compile("/api/classes/(\\d+)/enrollments/(\\d+)");
+
+    private final UserService userService;
+    private final ClassService classService;
+    private final BatchExecutor batchExecutor;
+    private final AdmissionControl admissionControl;
+    private final JsonMapper jsonMapper;
+    private final Validator validator;
+    private final int maxOperations;
+
+    public BatchController(UserService userService, ClassService classService, BatchExecutor batchExecutor,
+                           AdmissionControl admissionControl, JsonMapper jsonMapper, Validator validator,
+                           @Value("${school.batch.max-operations:1000}") int maxOperations) {
+        this.userService = userService;
+        this.classService = classService;
+        this.batchExecutor = batchExecutor;
+        this.admissionControl = admissionControl;
+        this.jsonMapper = jsonMapper;
+        this.validator = validator;
+        this.maxOperations = maxOperations;
+    }
+
+    /**
+     * Results in the order of the operations. The batch itself is 200 unless it is unauthenticated,
+     * malformed (400), longer than {@code max-operations} (413) or more operations than the caller's
+     * admission bucket allows (429); it is charged one token per operation.
+     */
+    @PostMapping
+    public ResponseEntity<List<OperationResult>> execute(@Valid @RequestBody BatchRequest body, HttpServletRequest request) {
+        Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
+        if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        if (body.operations().size() > maxOperations) return ResponseEntity.status(HttpStatus.CONTENT_TOO_LARGE).build();
+        if (!admissionControl.tryCharge(current.get().getUsername(), current.get().isTeacher(), body.operations().size())) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+        request.setAttribute(AdmissionControlFilter.OPERATIONS_ATTRIBUTE, body.operations().size());
+        List<Operation<OperationResult>> operations = body.operations().stream()
+                .map(op -> plan(op, current.get()))
+                .toList();
+        return ResponseEntity.ok(batchExecutor.execute(operations, BatchController::failed));
+    }
+
+    /**
+     * The service call one operation stands for, or its result outright if it cannot be routed or read.
+     * Passwords are hashed when the operation is prepared, before its chunk's transaction opens.
+     */
+    private Operation<OperationResult> plan(BatchRequest.Operation op, SchoolUserDetails user) {
+        String method = op.method().toUpperCase(Locale.ROOT);
+        String path = op.path();
+        Matcher m;
+        if (method.equals("POST") && path.equals("/api/students")) {
+            return withBody(op.body(), CreateStudentRequest.class, b -> () -> {
+                String passwordHash = userService.hashPasswordFor(b, user);
+                return () -> userService.createStudent(b, passwordHash, user)
+                        .map(s -> OperationResult.of(HttpStatus.CREATED, StudentController.StudentResponse.from(s)))
+                        .orElse(OperationResult.of(HttpStatus.BAD_REQUEST));
+            });
+        }
+        if (method.equals("PATCH") && (m = STUDENT.matcher(path)).matches()) {
+            Long id = Long.valueOf(m.group(1));
+            return withBody(op.body(), UpdateStudentRequest.class, b -> () -> {
+                String passwordHash = userService.hashPasswordFor(b, user);
+                return () -> userService.updateStudentInfo(id, b, passwordHash, user)
+                        .map(s -> OperationResult.of(HttpStatus.OK, StudentController.StudentResponse.from(s)))
+                        .orElse(OperationResult.of(HttpStatus.NOT_FOUND));
+            });
+        }
+        if (method.equals("POST") && path.equals("/api/classes")) {
+            return withBody(op.body(), CreateClassRequest.class, b -> Operation.of(() -> classService.createClass(b, user)
+                    .map(c -> OperationResult.of(HttpStatus.CREATED, ClassController.ClassResponse.from(c, null, false)))
+                    .orElse(OperationResult.of(HttpStatus.BAD_REQUEST))));
+        }
+        if (method.equals("PATCH") && (m = CLASS.matcher(path)).matches()) {
+            Long id = Long.valueOf(m.group(1));
+            return withBody(op.body(), UpdateClassRequest.class, b -> Operation.of(() -> classService.updateClass(id, b, user)
+                    .map(c -> OperationResult.of(HttpStatus.OK, ClassController.ClassResponse.from(c, null, false)))
+                    .orElse(OperationResult.of(HttpStatus.NOT_FOUND))));
+        }
+        if (method.equals("POST") && (m = ENROLL.matcher(path)).matches()) {
+            Long id = Long.valueOf(m.group(1));
+            return Operation.of(() -> OperationResult.of(classService.enroll(id, user) ? HttpStatus.NO_CONTENT : HttpStatus.BAD_REQUEST));
+        }
+        if (method.equals("DELETE") && (m = ENROLL.matcher(path)).matches()) {
+            Long id = Long.valueOf(m.group(1));
+            return Operation.of(() -> OperationResult.of(classService.unenroll(id, user) ? HttpStatus.NO_CONTENT : HttpStatus.NOT_FOUND));
+        }
+        if (method.equals("DELETE") && (m = ENROLLMENT.matcher(path)).matches()) {
+            Long id = Long.valueOf(m.group(1));
+            Long studentId = Long.valueOf(m.group(2));
+            return Operation.of(() -> OperationResult.of(classService.removeStudentFromClass(id, studentId, user)
+                    ? HttpStatus.NO_CONTENT : HttpStatus.NOT_FOUND));
+        }
+        OperationResult notFound = OperationResult.of(HttpStatus.NOT_FOUND);
+        return Operation.of(() -> notFound);
+    }
+
+    /** Reads and validates the operation's body as its endpoint would; 400 for that operation if it fails. */
+    private <T> Operation<OperationResult> withBody(JsonNode body, Class<T> type,
+                                                    Function<T, Operation<OperationResult>> call) {
+        OperationResult badRequest = OperationResult.of(HttpStatus.BAD_REQUEST);
+        if (body == null || !body.isObject()) return Operation.of(() -> badRequest);
+        T value;
+        try {
+            value = jsonMapper.treeToValue(body, type);
+        } catch (JacksonException e) {
+            return Operation.of(() -> badRequest);
+        }
+        if (!validator.validate(value).isEmpty()) return Operation.of(() -> badRequest);
+        return call.apply(value);
+    }
+
+    private static OperationResult failed(RuntimeException e) {
+        if (e instanceof PasswordHashingBusyException) return OperationResult.of(HttpStatus.SERVICE_UNAVAILABLE);
+        log.error("Batch operation failed", e);
+        return OperationResult.of(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    public record OperationResult(int status, Object body) {
+        static OperationResult of(HttpStatus status, Object body) {
+            return new OperationResult(status.value(), body);
+        }
+
+        static OperationResult of(HttpStatus status) {
+            return of(status, null);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.school.web;
+
+import com.example.school.entity.OutboxEvent;
+import com.example.school.security.SchoolUserDetails;
+import com.example.school.service.ChangeFeedService;
+import com.example.school.service.UserService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enrollment change feed for downstream systems: pass the returned {@code cursor} as {@code after}
+ * on the next call. With {@code waitSeconds}, an empty poll is held open (without a servlet thread)
+ * until a change commits or the wait ends.
+ */
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeFeedController {
+
+    static final int MAX_LIMIT = 500;
+    static final int MAX_WAIT_SECONDS = 30;
+
+    private final ChangeFeedService changeFeedService;
+    private final UserService userService;
+
+    public ChangeFeedController(ChangeFeedService changeFeedService, UserService userService) {
+        this.changeFeedService = changeFeedService;
+        this.userService = userService;
+    }
+
+    @GetMapping
+    public DeferredResult<ResponseEntity<ChangesResponse>> changes(@RequestParam(defaultValue = "0") long after,
+                                                                   @RequestParam(defaultValue = "100") int limit,
+                                                                   @RequestParam(defaultValue = "0") int waitSeconds) {
+        Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
+        if (current.isEmpty()) return completed(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        if (!current.get().isTeacher()) return completed(ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+        int n = Math.max(1, Math.min(limit, MAX_LIMIT));
+        int wait = Math.max(0, Math.min(waitSeconds, MAX_WAIT_SECONDS));
+
+        List<OutboxEvent> events = changeFeedService.readAfter(after, n);
+        if (!events.isEmpty() || wait == 0) return completed(ResponseEntity.ok(ChangesResponse.of(after, events)));
+
+        DeferredResult<ResponseEntity<ChangesResponse>> result =
+                new DeferredResult<>(TimeUnit.SECONDS.toMillis(wait), ResponseEntity.ok(ChangesResponse.of(after, List.of())));
+        Runnable check = () -> {
+            List<OutboxEvent> next = changeFeedService.readAfter(after, n);
+            if (!next.isEmpty()) result.setResult(ResponseEntity.ok(ChangesResponse.of(after, next)));
+        };
+        result.onCompletion(changeFeedService.subscribe(check));
+        // A change may have committed between the first read and subscribing
+        check.run();
+        return result;
+    }
+
+    private static DeferredResult<ResponseEntity<ChangesResponse>> completed(ResponseEntity<ChangesResponse> response) {
+        DeferredResult<ResponseEntity<ChangesResponse>> result = new DeferredResult<>();
+        result.setResult(response);
+        return result;
+    }
+
+    public record ChangeResponse(long id, long position, OutboxEvent.Type type, Long classId, Long studentId,
+                                 Instant occurredAt) {
+        static ChangeResponse from(OutboxEvent e) {
+            return new ChangeResponse(e.getId(), e.getPosition(), e.getType(), e.getClassId(), e.getStudentId(),
+                    e.getOccurredAt());
+        }
+    }
+
+    /** {@code cursor} is the position of the last event returned, or {@code after} when there were none. */
+    public record ChangesResponse(List<ChangeResponse> events, long cursor) {
+        static ChangesResponse of(long after, List<OutboxEvent> events) {
+            return new ChangesResponse(events.stream().map(ChangeResponse::from).toList(),
+                    events.isEmpty() ? after : events.get(events.size() - 1).getPosition());
+        }
+    }
+}
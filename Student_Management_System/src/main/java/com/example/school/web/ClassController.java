@@ -1,14 +1,25 @@
 package com.example.school.web;
 
+import com.example.school.dto.CreateClassRequest;
+import com.example.school.dto.RolloverRequest;
+import com.example.school.dto.UpdateClassRequest;
 import com.example.school.entity.SchoolClass;
 import com.example.school.entity.User;
+import com.example.school.repository.SchoolClassRepositoryCustom;
 import com.example.school.security.SchoolUserDetails;
 import com.example.school.service.ClassService;
+import com.example.school.service.KeysetPage;
 import com.example.school.service.UserService;
+import jakarta.persistence.Tuple;
+import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -19,52 +30,124 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/classes")
 public class ClassController {
 
+    /** Properties of a {@link ClassResponse}, the names {@code fields=} accepts. */
+    static final List<String> CLASS_FIELDS = List.of("id", "name", "description", "teacherName", "enrollmentCount", "enrolled");
+
     private final ClassService classService;
     private final UserService userService;
+    private final LiveRosterHub liveRosterHub;
 
-    public ClassController(ClassService classService, UserService userService) {
+    public ClassController(ClassService classService, UserService userService, LiveRosterHub liveRosterHub) {
         this.classService = classService;
         this.userService = userService;
+        this.liveRosterHub = liveRosterHub;
     }
 
+    /**
+     * Teacher: their classes. Student: the catalog, optionally one teacher's. Sorted by name, one page
+     * at a time; a {@code Link: <...>; rel="next"} header points at the next page while there is one.
+     */
     @GetMapping
-    public ResponseEntity<?> listClasses() {
+    public ResponseEntity<?> listClasses(@RequestParam(required = false) String after,
+                                         @RequestParam(defaultValue = "" + KeysetPaging.DEFAULT_PAGE_SIZE) int limit,
+                                         @RequestParam(required = false) Long teacherId,
+                                         @RequestParam(required = false) String prefix,
+                                         @RequestParam(required = false) String fields) {
         Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
         if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        List<SchoolClass> classes = classService.findClassesForCurrentUser(current.get());
+        Optional<KeysetPage.Key> position = KeysetPaging.position(after);
+        if (position.isEmpty()) return ResponseEntity.badRequest().build();
+        if (fields != null) {
+            Optional<List<String>> selected = SparseFields.parse(fields, CLASS_FIELDS);
+            if (selected.isEmpty()) return ResponseEntity.badRequest().build();
+            return listClassFields(current.get(), teacherId, prefix, position.get(), KeysetPaging.pageSize(limit), selected.get());
+        }
+        KeysetPage<SchoolClass> page = classService.findClassPage(current.get(), teacherId, prefix, position.get(), KeysetPaging.pageSize(limit));
         boolean isTeacher = current.get().isTeacher();
         Set<Long> enrolledIds = isTeacher ? Set.of() : classService.enrolledClassIdsForStudent(current.get());
-        Map<Long, Long> enrollmentCounts = isTeacher ? classService.enrollmentCountByClassId(classes) : Map.of();
-        List<ClassResponse> list = classes.stream()
-                .map(c -> ClassResponse.from(c, isTeacher ? enrollmentCounts.getOrDefault(c.getId(), 0L) : null, enrolledIds.contains(c.getId())))
+        List<ClassResponse> list = page.items().stream()
+                .map(c -> ClassResponse.from(c, isTeacher ? (long) c.getEnrollmentCount() : null, enrolledIds.contains(c.getId())))
                 .collect(Collectors.toList());
-        return ResponseEntity.ok(list);
+        return KeysetPaging.withNextLink(page).body(list);
+    }
+
+    /**
+     * {@code fields=} form of {@link #listClasses}: elements hold only the named properties, and only
+     * the columns behind them are read. {@code enrolled} costs the student's enrollment lookup and
+     * {@code teacherName} the teacher join; neither runs unless asked for.
+     */
+    private ResponseEntity<?> listClassFields(SchoolUserDetails user, Long teacherId, String prefix, KeysetPage.Key after,
+                                              int limit, List<String> fields) {
+        boolean isTeacher = user.isTeacher();
+        List<String> columns = fields.stream()
+                .filter(SchoolClassRepositoryCustom.COLUMNS::contains)
+                .filter(f -> isTeacher || !f.equals("enrollmentCount"))
+                .toList();
+        KeysetPage<Tuple> page = classService.findClassColumnsPage(user, teacherId, prefix, columns, after, limit);
+        Set<Long> enrolledIds = !isTeacher && fields.contains("enrolled") ? classService.enrolledClassIdsForStudent(user) : Set.of();
+        List<Map<String, Object>> list = page.items().stream()
+                .map(row -> SparseFields.select(fields, f -> switch (f) {
+                    case "enrolled" -> enrolledIds.contains(row.get("id", Long.class));
+                    case "enrollmentCount" -> isTeacher ? row.get(f) : null;
+                    default -> row.get(f);
+                }))
+                .toList();
+        return KeysetPaging.withNextLink(page).body(list);
+    }
+
+    /** Teacher only: enrollment counts and roster changes for the teacher's classes as they commit. */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events() {
+        Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
+        if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        if (!current.get().isTeacher()) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        return ResponseEntity.ok(liveRosterHub.subscribe(current.get().getUserId()));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<ClassResponse> getClass(@PathVariable Long id) {
         Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
         if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        Optional<SchoolClass> c = classService.findById(id);
+        Optional<ClassService.ClassSummary> c = classService.findSummary(id);
         if (c.isEmpty()) return ResponseEntity.notFound().build();
-        SchoolClass sc = c.get();
+        ClassService.ClassSummary sc = c.get();
         boolean isTeacher = current.get().isTeacher();
         boolean isEnrolled = !isTeacher && classService.enrolledClassIdsForStudent(current.get()).contains(id);
-        Long count = isTeacher ? (long) classService.enrollmentCountByClassId(List.of(sc)).getOrDefault(sc.getId(), 0L) : null;
-        return ResponseEntity.ok(ClassResponse.from(sc, count, isEnrolled));
+        Long count = isTeacher ? classService.countEnrollments(id) : null;
+        return ResponseEntity.ok(new ClassResponse(sc.id(), sc.name(), sc.description(), sc.teacherName(), count, isEnrolled));
     }
 
     @PostMapping
-    public ResponseEntity<ClassResponse> createClass(@RequestBody Map<String, Object> body) {
+    public ResponseEntity<ClassResponse> createClass(@Valid @RequestBody CreateClassRequest body) {
         Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
         if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         Optional<SchoolClass> created = classService.createClass(body, current.get());
         if (created.isEmpty()) return ResponseEntity.badRequest().build();
-        return ResponseEntity.status(HttpStatus.CREATED).body(ClassResponse.from(created.get(), null, false));
+        ClassResponse response = ClassResponse.from(created.get(), null, false);
+        return ResponseEntity.created(locationOf(response.id())).body(response);
+    }
+
+    /** Relative URI of the resource just created under this request's path. */
+    private static URI locationOf(Long id) {
+        return URI.create(ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{id}").buildAndExpand(id).getPath());
+    }
+
+    /** Teacher only: copy own classes and their rosters into a new term. */
+    @PostMapping("/rollover")
+    public ResponseEntity<RolloverResponse> rollOver(@Valid @RequestBody RolloverRequest body) {
+        Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
+        if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        if (!current.get().isTeacher()) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        Optional<ClassService.Rollover> rollover = classService.rollOver(body.classIds(), body.nameSuffix(), current.get());
+        if (rollover.isEmpty()) return ResponseEntity.notFound().build();
+        List<RolledOverClassResponse> classes = rollover.get().sourceByClassId().entrySet().stream()
+                .map(e -> new RolledOverClassResponse(e.getKey(), e.getValue()))
+                .collect(Collectors.toList());
+        return ResponseEntity.status(HttpStatus.CREATED).body(new RolloverResponse(classes, rollover.get().enrollments()));
     }
 
     @PatchMapping("/{id}")
-    public ResponseEntity<ClassResponse> updateClass(@PathVariable Long id, @RequestBody Map<String, Object> updates) {
+    public ResponseEntity<ClassResponse> updateClass(@PathVariable Long id, @Valid @RequestBody UpdateClassRequest updates) {
         Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
         if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         Optional<SchoolClass> updated = classService.updateClass(id, updates, current.get());
@@ -96,16 +179,22 @@ public class ClassController {
         return ResponseEntity.noContent().build();
     }
 
+    /** Teacher only: students enrolled in a class they own, by name, paged like {@link #listClasses}. */
     @GetMapping("/{id}/enrollments")
-    public ResponseEntity<?> listEnrollments(@PathVariable Long id) {
+    public ResponseEntity<?> listEnrollments(@PathVariable Long id,
+                                             @RequestParam(required = false) String after,
+                                             @RequestParam(defaultValue = "" + KeysetPaging.DEFAULT_PAGE_SIZE) int limit,
+                                             @RequestParam(required = false) String prefix) {
         Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
         if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         if (!current.get().isTeacher()) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-        List<User> students = classService.findEnrolledStudentsByClassId(id, current.get());
-        List<EnrolledStudentResponse> list = students.stream()
+        Optional<KeysetPage.Key> position = KeysetPaging.position(after);
+        if (position.isEmpty()) return ResponseEntity.badRequest().build();
+        KeysetPage<User> page = classService.findEnrolledStudentPage(id, current.get(), prefix, position.get(), KeysetPaging.pageSize(limit));
+        List<EnrolledStudentResponse> list = page.items().stream()
                 .map(EnrolledStudentResponse::from)
                 .collect(Collectors.toList());
-        return ResponseEntity.ok(list);
+        return KeysetPaging.withNextLink(page).body(list);
     }
 
     @DeleteMapping("/{id}/enrollments/{studentId}")
@@ -122,6 +211,10 @@ public class ClassController {
         }
     }
 
+    public record RolledOverClassResponse(Long id, Long rolledOverFromId) {}
+
+    public record RolloverResponse(List<RolledOverClassResponse> classes, int enrollments) {}
+
     public record ClassResponse(Long id, String name, String description, String teacherName, Long enrollmentCount, Boolean enrolled) {
         static ClassResponse from(SchoolClass c, Long enrollmentCount, boolean enrolled) {
             User t = c.getTeacher();
@@ -0,0 +1,64 @@
+package com.example.school.web;
+
+import com.example.school.security.SchoolUserDetails;
+import com.example.school.service.ClassService;
+import com.example.school.service.UserService;
+import com.example.school.web.ClassController.ClassResponse;
+import com.example.school.web.ClassController.EnrolledStudentResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * One round trip for the classes page: current user, classes, enrolled flags and (teacher) rosters.
+ * A student's catalog is its first page; {@code next} is the {@code /api/classes} URL of the rest.
+ */
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+
+    private final ClassService classService;
+    private final UserService userService;
+
+    public DashboardController(ClassService classService, UserService userService) {
+        this.classService = classService;
+        this.userService = userService;
+    }
+
+    @GetMapping
+    public ResponseEntity<DashboardResponse> dashboard() {
+        Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
+        if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        SchoolUserDetails d = current.get();
+        boolean isTeacher = d.isTeacher();
+        ClassService.Dashboard dashboard = classService.loadDashboard(d, KeysetPaging.DEFAULT_PAGE_SIZE);
+        List<ClassResponse> classes = dashboard.classes().stream()
+                .map(c -> ClassResponse.from(c,
+                        isTeacher ? (long) dashboard.rosters().getOrDefault(c.getId(), List.of()).size() : null,
+                        dashboard.enrolledClassIds().contains(c.getId())))
+                .collect(Collectors.toList());
+        Map<Long, List<EnrolledStudentResponse>> rosters = new LinkedHashMap<>();
+        dashboard.rosters().forEach((classId, students) -> rosters.put(classId, students.stream()
+                .map(EnrolledStudentResponse::from)
+                .collect(Collectors.toList())));
+        return ResponseEntity.ok(new DashboardResponse(
+                new Me(d.getUsername(), d.getName(), d.getRole().name()),
+                classes,
+                isTeacher ? rosters : null,
+                dashboard.nextClasses() != null ? "/api/classes?after=" + dashboard.nextClasses().encode() : null
+        ));
+    }
+
+    public record Me(String username, String name, String role) {}
+
+    public record DashboardResponse(Me me, List<ClassResponse> classes, Map<Long, List<EnrolledStudentResponse>> rosters,
+                                    String next) {}
+}
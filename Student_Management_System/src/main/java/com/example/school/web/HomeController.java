@@ -19,21 +19,31 @@ public class HomeController {
     public ResponseEntity<Map<String, Object>> apiInfo() {
         return ResponseEntity.ok(Map.of(
                 "message", "School API is running",
+                "formats", "JSON by default; Accept: application/cbor for CBOR responses, Content-Type: application/cbor for CBOR request bodies",
+                "idempotency", "Idempotency-Key header on POST /api/**: a retry with the same key and request replays the first response",
                 "docs", Map.ofEntries(
                         Map.entry("register", "POST /api/auth/register (teacher only)"),
-                        Map.entry("listStudents", "GET /api/students (teacher: all; student: only self)"),
+                        Map.entry("listStudents", "GET /api/students?fields= (teacher: all, streamed in id order; student: only self; fields=id,name,... narrows each element)"),
                         Map.entry("getMe", "GET /api/students/me (student: my info)"),
+                        Map.entry("getMyClasses", "GET /api/students/me/classes?after=&limit= (student: my enrolled classes, paged by name)"),
                         Map.entry("getStudent", "GET /api/students/{id} (teacher: any; student: own only)"),
                         Map.entry("createStudent", "POST /api/students (teacher only)"),
                         Map.entry("updateStudent", "PATCH /api/students/{id} (teacher only)"),
                         Map.entry("deleteStudent", "DELETE /api/students/{id} (teacher only)"),
-                        Map.entry("listClasses", "GET /api/classes (teacher: my classes; student: all with enrolled)"),
+                        Map.entry("search", "GET /api/search?q=&limit= (typeahead; teacher: students and own classes; student: classes)"),
+                        Map.entry("dashboard", "GET /api/dashboard (me + classes + enrolled flags; teacher: counts and rosters; student: first catalog page + next)"),
+                        Map.entry("listClasses", "GET /api/classes?after=&limit=&teacherId=&prefix=&fields= (teacher: my classes; student: all with enrolled; paged by name, Link rel=next; fields=id,name,... narrows each element)"),
                         Map.entry("getClass", "GET /api/classes/{id}"),
                         Map.entry("createClass", "POST /api/classes (teacher only)"),
                         Map.entry("updateClass", "PATCH /api/classes/{id} (teacher only)"),
+                        Map.entry("rollOver", "POST /api/classes/rollover {classIds, nameSuffix} (teacher only; copies classes with rosters)"),
                         Map.entry("deleteClass", "DELETE /api/classes/{id} (teacher only)"),
                         Map.entry("enroll", "POST /api/classes/{id}/enroll (student only)"),
                         Map.entry("unenroll", "DELETE /api/classes/{id}/enroll (student only)"),
+                        Map.entry("listEnrollments", "GET /api/classes/{id}/enrollments?after=&limit=&prefix= (teacher only; roster paged by name, Link rel=next)"),
+                        Map.entry("batch", "POST /api/batch {operations: [{method, path, body}]} (create/update students and classes, enroll/unenroll, remove from class; per-operation status, committed in chunks)"),
+                        Map.entry("events", "GET /api/classes/events (teacher only; SSE: class, class-deleted, resync)"),
+                        Map.entry("changes", "GET /api/changes?after={cursor}&limit=&waitSeconds= (teacher only; enrollment change feed, long-poll)"),
                         Map.entry("health", "GET /actuator/health")
                 )
         ));
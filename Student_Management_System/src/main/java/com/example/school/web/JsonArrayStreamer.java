@@ -0,0 +1,103 @@
+package com.example.school.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Writes a JSON array to the response one element at a time, as a source hands them over, so a large
+ * listing never exists as a list of DTOs or as one serialized buffer. Elements go through the
+ * application's {@link JsonMapper}, so they look exactly as they would inside a {@code ResponseEntity}.
+ * A client whose {@code Accept} prefers {@code application/cbor} gets the same array as CBOR from the
+ * application's {@link CBORMapper}, as the {@code ResponseEntity} endpoints would give it.
+ * <p>
+ * The array is a {@link StreamingResponseBody}, written on an MVC async thread once the handler has
+ * returned; the source opens its own transaction there. The caller marks the request with
+ * {@link com.example.school.admission.AdmissionControlFilter#ASYNC_WORK_ATTRIBUTE}, so admission control
+ * holds its slot until the async write completes. Once the first chunk is flushed the status is
+ * committed; a later failure can only cut the array short.
+ */
+@Component
+class JsonArrayStreamer {
+
+    /** Elements written between explicit flushes to the client. */
+    static final int FLUSH_EVERY = 500;
+
+    /** What the array can be written as, in order of preference. */
+    private static final List<MediaType> PRODUCIBLE = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR);
+
+    private final ObjectWriter jsonWriter;
+    private final ObjectWriter cborWriter;
+
+    JsonArrayStreamer(JsonMapper jsonMapper, CBORMapper cborMapper) {
+        this.jsonWriter = jsonMapper.writer().without(StreamWriteFeature.AUTO_CLOSE_TARGET);
+        this.cborWriter = cborMapper.writer().without(StreamWriteFeature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * 200 with the array in the type {@link #negotiate} picks from {@code accept}, or 406 with no body when
+     * it picks neither; {@code source} is called once, while the body is written, and passes each element
+     * to the sink it is given.
+     */
+    <T> ResponseEntity<StreamingResponseBody> stream(String accept, Consumer<Consumer<T>> source) {
+        MediaType contentType = negotiate(accept);
+        if (contentType == null) return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+        ObjectWriter writer = contentType.equals(MediaType.APPLICATION_CBOR) ? cborWriter : jsonWriter;
+        return ResponseEntity.ok().contentType(contentType).body(out -> {
+            try (JsonGenerator generator = writer.createGenerator(out)) {
+                generator.writeStartArray();
+                int[] written = {0};
+                source.accept(element -> {
+                    generator.writePOJO(element);
+                    if (++written[0] % FLUSH_EVERY == 0) generator.flush();
+                });
+                generator.writeEndArray();
+            }
+        });
+    }
+
+    /**
+     * JSON or CBOR, by Spring's ordering of the Accept header ({@link MimeTypeUtils#sortBySpecificity}:
+     * quality, then specificity), or null when neither is acceptable. The first range that includes one
+     * of the two picks it, JSON first on a wildcard or a tie. A type is refused when a more specific range
+     * includes it at {@code q=0}, so {@code application/json;q=0} refuses JSON beside a wildcard that
+     * accepts CBOR. A missing or unparsable header gets JSON.
+     */
+    static MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) return MediaType.APPLICATION_JSON;
+        List<MediaType> ranges;
+        try {
+            ranges = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(ranges);
+        } catch (InvalidMediaTypeException | InvalidMimeTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        for (MediaType range : ranges) {
+            if (range.getQualityValue() == 0) break;
+            for (MediaType type : PRODUCIBLE) {
+                if (range.includes(type) && !refused(type, range, ranges)) return type;
+            }
+        }
+        return null;
+    }
+
+    /** Whether a range more specific than {@code accepting} includes {@code type} at {@code q=0}. */
+    private static boolean refused(MediaType type, MediaType accepting, List<MediaType> ranges) {
+        MediaType unweighted = accepting.removeQualityValue();
+        return ranges.stream().anyMatch(range -> range.getQualityValue() == 0 && range.includes(type)
+                && range.removeQualityValue().isMoreSpecific(unweighted));
+    }
+}
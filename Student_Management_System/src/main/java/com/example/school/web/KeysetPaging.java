@@ -0,0 +1,40 @@
+package com.example.school.web;
+
+import com.example.school.service.KeysetPage;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponents;
+
+import java.util.Optional;
+
+/** Request and response side of {@link KeysetPage} listings: {@code after}/{@code limit} in, {@code Link} out. */
+final class KeysetPaging {
+
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+
+    private KeysetPaging() {
+    }
+
+    /** Where the page starts; empty if {@code after} is not a cursor we issued. */
+    static Optional<KeysetPage.Key> position(String after) {
+        return after == null || after.isEmpty() ? Optional.of(KeysetPage.Key.FIRST) : KeysetPage.Key.decode(after);
+    }
+
+    static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /** 200 with a relative {@code Link: <...>; rel="next"} to this request's next page, if there is one. */
+    static ResponseEntity.BodyBuilder withNextLink(KeysetPage<?> page) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (page.hasNext()) {
+            UriComponents next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", page.next().encode())
+                    .build();
+            ok.header(HttpHeaders.LINK, "<" + next.getPath() + "?" + next.getQuery() + ">; rel=\"next\"");
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.school.web;
+
+import com.example.school.entity.OutboxEvent;
+import com.example.school.entity.User;
+import com.example.school.service.ChangeFeedService;
+import com.example.school.service.ClassService;
+import com.example.school.service.UserService;
+import com.example.school.web.ClassController.EnrolledStudentResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Live enrollment counts and roster deltas for teachers' open classes pages, over SSE.
+ * <p>
+ * A single pump thread tails the outbox from its own cursor whenever {@link ChangeFeedService} reports
+ * a commit (on any node), reads each batch's counts and new students in two queries, and hands the
+ * updates to the subscribers owning each class. Each drain of a subscriber gets its own sender thread
+ * (idle ones are reused), so a client that stops reading stalls only its own stream. A drain still
+ * blocked after {@code send-timeout} drops that stream: it gets no more updates and is completed with
+ * an error once its write gives up; the page reconnects and resyncs. See {@link LiveRosterSubscriber}
+ * for buffering, coalescing and resync.
+ */
+@Component
+public class LiveRosterHub {
+
+    private static final int BATCH = 500;
+
+    private final ChangeFeedService changeFeedService;
+    private final ClassService classService;
+    private final UserService userService;
+    private final int maxBuffered;
+    private final long timeoutMillis;
+    private final long sendTimeoutMillis;
+    private final Map<LiveRosterSubscriber, SseEmitter> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService pump = Executors.newSingleThreadExecutor(daemon("live-roster-pump"));
+    private final ExecutorService senders = Executors.newCachedThreadPool(daemon("live-roster-send"));
+    private final ScheduledExecutorService watchdog =
+            Executors.newSingleThreadScheduledExecutor(daemon("live-roster-watchdog"));
+    private final AtomicBoolean pumpQueued = new AtomicBoolean();
+    private final Runnable unsubscribeFromFeed;
+    private final Counter resyncs;
+    /** Feed position of the last outbox event handed to subscribers; only touched on the pump thread. */
+    private long cursor;
+
+    public LiveRosterHub(ChangeFeedService changeFeedService, ClassService classService, UserService userService,
+                         @Value("${school.live.max-buffered:256}") int maxBuffered,
+                         @Value("${school.live.timeout:30m}") Duration timeout,
+                         @Value("${school.live.send-timeout:10s}") Duration sendTimeout,
+                         MeterRegistry meterRegistry) {
+        this.changeFeedService = changeFeedService;
+        this.classService = classService;
+        this.userService = userService;
+        this.maxBuffered = maxBuffered;
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutMillis = sendTimeout.toMillis();
+        this.unsubscribeFromFeed = changeFeedService.subscribe(this::requestPump);
+        this.resyncs = Counter.builder("school.live.resyncs")
+                .description("Resync messages sent instead of buffered updates")
+                .register(meterRegistry);
+        Gauge.builder("school.live.subscribers", subscribers, Map::size)
+                .description("Open live roster streams")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(long teacherId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        LiveRosterSubscriber subscriber = new LiveRosterSubscriber(teacherId, maxBuffered, (event, data) -> {
+            if (event == null) {
+                emitter.send(SseEmitter.event().comment("keep-alive"));
+            } else {
+                if ("resync".equals(event)) resyncs.increment();
+                emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+            }
+        });
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        pump.execute(() -> {
+            // Nothing was tailed while nobody listened; the first resync loads the current state
+            if (subscribers.isEmpty()) cursor = changeFeedService.latestCursor();
+            subscribers.put(subscriber, emitter);
+            send(subscriber);
+        });
+        return emitter;
+    }
+
+    /** Keeps idle streams open through proxies and catches up on anything a missed wakeup left behind. */
+    @Scheduled(fixedDelayString = "${school.live.heartbeat:25s}")
+    public void heartbeat() {
+        subscribers.keySet().forEach(s -> {
+            if (s.heartbeat()) send(s);
+        });
+        requestPump();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        unsubscribeFromFeed.run();
+        pump.shutdownNow();
+        watchdog.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    private void requestPump() {
+        if (!subscribers.isEmpty() && pumpQueued.compareAndSet(false, true)) {
+            pump.execute(() -> {
+                pumpQueued.set(false);
+                drainOutbox();
+            });
+        }
+    }
+
+    private void drainOutbox() {
+        if (subscribers.isEmpty()) return;
+        List<OutboxEvent> events;
+        do {
+            events = changeFeedService.readAfter(cursor, BATCH);
+            if (events.isEmpty()) return;
+            cursor = events.get(events.size() - 1).getPosition();
+            dispatch(events);
+        } while (events.size() == BATCH);
+    }
+
+    private void dispatch(List<OutboxEvent> events) {
+        Set<Long> classIds = new HashSet<>();
+        Set<Long> enrolledStudentIds = new HashSet<>();
+        for (OutboxEvent e : events) {
+            if (e.getType() == OutboxEvent.Type.ENROLLED || e.getType() == OutboxEvent.Type.UNENROLLED) {
+                classIds.add(e.getClassId());
+                if (e.getType() == OutboxEvent.Type.ENROLLED) enrolledStudentIds.add(e.getStudentId());
+            }
+        }
+        Map<Long, Long> counts = classIds.isEmpty() ? Map.of() : classService.enrollmentCountsByClassIds(classIds);
+        Map<Long, EnrolledStudentResponse> students = enrolledStudentIds.isEmpty() ? Map.of()
+                : userService.findAllById(enrolledStudentIds).stream()
+                        .collect(Collectors.toMap(User::getId, EnrolledStudentResponse::from));
+        Map<Long, Optional<Long>> owners = new HashMap<>();
+        Function<Long, Optional<Long>> ownerOf = classId -> owners.computeIfAbsent(classId,
+                id -> classService.findSummary(id).map(ClassService.ClassSummary::teacherId));
+
+        for (OutboxEvent e : events) {
+            switch (e.getType()) {
+                case ENROLLED, UNENROLLED -> ownerOf.apply(e.getClassId()).ifPresent(teacherId -> {
+                    long count = counts.getOrDefault(e.getClassId(), 0L);
+                    EnrolledStudentResponse student = students.get(e.getStudentId());
+                    for (LiveRosterSubscriber s : subscribers.keySet()) {
+                        if (s.teacherId() != teacherId) continue;
+                        boolean wake = e.getType() == OutboxEvent.Type.ENROLLED && student != null
+                                ? s.enrolled(e.getClassId(), count, student)
+                                : s.unenrolled(e.getClassId(), count, e.getStudentId());
+                        if (wake) send(s);
+                    }
+                });
+                // The owner is gone with the row; pages ignore ids they do not show
+                case CLASS_DELETED -> subscribers.keySet().forEach(s -> {
+                    if (s.classDeleted(e.getClassId())) send(s);
+                });
+                // Enrollments went with the student, and which classes they were in is no longer known
+                case STUDENT_DELETED -> subscribers.keySet().forEach(s -> {
+                    if (s.resync()) send(s);
+                });
+            }
+        }
+    }
+
+    private void send(LiveRosterSubscriber subscriber) {
+        senders.execute(() -> {
+            ScheduledFuture<?> deadline = watchdog.schedule(
+                    () -> drop(subscriber, new TimeoutException("SSE write blocked for " + sendTimeoutMillis + " ms")),
+                    sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                subscriber.drain();
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; the emitter callbacks do not always fire for a failed write
+                drop(subscriber, e);
+            } finally {
+                deadline.cancel(false);
+            }
+        });
+    }
+
+    /**
+     * Stops sending to a stream. Completing the emitter waits for a write in progress, so it runs on a
+     * sender thread of its own rather than on the watchdog.
+     */
+    private void drop(LiveRosterSubscriber subscriber, Exception cause) {
+        SseEmitter emitter = subscribers.remove(subscriber);
+        if (emitter != null) senders.execute(() -> emitter.completeWithError(cause));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
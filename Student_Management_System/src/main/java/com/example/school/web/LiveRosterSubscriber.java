@@ -0,0 +1,151 @@
+package com.example.school.web;
+
+import com.example.school.web.ClassController.EnrolledStudentResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One open classes-page stream. Updates are buffered per class and coalesced (latest count, last
+ * action per student) until a sender drains them; at most one thread drains a subscriber at a time,
+ * so events go out in order. If more than {@code maxBuffered} entries pile up, they are dropped for a
+ * single {@code resync}, and nothing more is buffered until it is sent. A new subscriber starts with a
+ * pending {@code resync}, which tells the page to load its state after the stream is open.
+ */
+final class LiveRosterSubscriber {
+
+    /** Writes one event; a null event name is a keep-alive comment. */
+    interface Sink {
+        void send(String event, Object data) throws IOException;
+    }
+
+    record ClassUpdate(long classId, long enrollmentCount, List<EnrolledStudentResponse> added, List<Long> removed) {}
+
+    record ClassDeleted(long classId) {}
+
+    private record Message(String event, Object data) {}
+
+    private static final class PendingClass {
+        long enrollmentCount;
+        boolean deleted;
+        final Map<Long, EnrolledStudentResponse> added = new LinkedHashMap<>();
+        final Set<Long> removed = new LinkedHashSet<>();
+
+        int size() {
+            return 1 + added.size() + removed.size();
+        }
+    }
+
+    private final long teacherId;
+    private final int maxBuffered;
+    private final Sink sink;
+    private final Map<Long, PendingClass> pending = new LinkedHashMap<>();
+    private boolean resync = true;
+    private boolean heartbeat;
+    private boolean draining;
+
+    LiveRosterSubscriber(long teacherId, int maxBuffered, Sink sink) {
+        this.teacherId = teacherId;
+        this.maxBuffered = maxBuffered;
+        this.sink = sink;
+    }
+
+    long teacherId() {
+        return teacherId;
+    }
+
+    /** Each offer method returns true when the caller must schedule {@link #drain()}. */
+    synchronized boolean enrolled(long classId, long enrollmentCount, EnrolledStudentResponse student) {
+        PendingClass p = pendingFor(classId, enrollmentCount);
+        p.removed.remove(student.id());
+        p.added.put(student.id(), student);
+        return buffered();
+    }
+
+    synchronized boolean unenrolled(long classId, long enrollmentCount, long studentId) {
+        PendingClass p = pendingFor(classId, enrollmentCount);
+        p.added.remove(studentId);
+        p.removed.add(studentId);
+        return buffered();
+    }
+
+    synchronized boolean classDeleted(long classId) {
+        PendingClass p = new PendingClass();
+        p.deleted = true;
+        pending.put(classId, p);
+        return buffered();
+    }
+
+    synchronized boolean resync() {
+        pending.clear();
+        resync = true;
+        return startDrain();
+    }
+
+    synchronized boolean heartbeat() {
+        heartbeat = true;
+        return startDrain();
+    }
+
+    /** Sends everything buffered, including what arrives while sending. */
+    void drain() throws IOException {
+        while (true) {
+            List<Message> batch;
+            synchronized (this) {
+                batch = takeBatch();
+                if (batch.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+            }
+            for (Message m : batch) sink.send(m.event(), m.data());
+        }
+    }
+
+    private PendingClass pendingFor(long classId, long enrollmentCount) {
+        PendingClass p = pending.computeIfAbsent(classId, id -> new PendingClass());
+        p.deleted = false;
+        p.enrollmentCount = enrollmentCount;
+        return p;
+    }
+
+    private boolean buffered() {
+        // The pending resync reloads everything anyway
+        if (resync) pending.clear();
+        int size = 0;
+        for (PendingClass p : pending.values()) size += p.size();
+        if (size > maxBuffered) {
+            pending.clear();
+            resync = true;
+        }
+        return startDrain();
+    }
+
+    private boolean startDrain() {
+        if (draining) return false;
+        draining = true;
+        return true;
+    }
+
+    private List<Message> takeBatch() {
+        List<Message> batch = new ArrayList<>(pending.size() + 1);
+        if (resync) {
+            batch.add(new Message("resync", Map.of()));
+        } else {
+            pending.forEach((classId, p) -> batch.add(p.deleted
+                    ? new Message("class-deleted", new ClassDeleted(classId))
+                    : new Message("class", new ClassUpdate(classId, p.enrollmentCount,
+                            List.copyOf(p.added.values()), List.copyOf(p.removed)))));
+        }
+        if (heartbeat && batch.isEmpty()) batch.add(new Message(null, null));
+        pending.clear();
+        resync = false;
+        heartbeat = false;
+        return batch;
+    }
+}
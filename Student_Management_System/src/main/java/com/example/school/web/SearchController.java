@@ -0,0 +1,43 @@
+package com.example.school.web;
+
+import com.example.school.security.SchoolUserDetails;
+import com.example.school.service.SearchService;
+import com.example.school.service.UserService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Optional;
+
+/** Typeahead: every word of {@code q} must start a word of the student or class. */
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final SearchService searchService;
+    private final UserService userService;
+
+    public SearchController(SearchService searchService, UserService userService) {
+        this.searchService = searchService;
+        this.userService = userService;
+    }
+
+    @GetMapping
+    public ResponseEntity<SearchResponse> search(@RequestParam String q,
+                                                 @RequestParam(defaultValue = "10") int limit) {
+        Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
+        if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        int n = Math.max(1, Math.min(limit, MAX_LIMIT));
+        return ResponseEntity.ok(new SearchResponse(
+                searchService.searchStudents(q, n, current.get()),
+                searchService.searchClasses(q, n, current.get())));
+    }
+
+    public record SearchResponse(List<SearchService.StudentHit> students, List<SearchService.ClassHit> classes) {}
+}
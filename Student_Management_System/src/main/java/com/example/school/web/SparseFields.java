@@ -0,0 +1,40 @@
+package com.example.school.web;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The {@code fields=} parameter of a listing: a comma-separated subset of an element's properties.
+ * Controllers pass the names down so only those columns are read, and build each element from them.
+ */
+final class SparseFields {
+
+    private SparseFields() {
+    }
+
+    /**
+     * The named properties in the listing's own order; empty if the list names nothing or names a
+     * property the listing does not have.
+     */
+    static Optional<List<String>> parse(String fields, List<String> properties) {
+        Set<String> requested = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(f -> !f.isEmpty())
+                .collect(Collectors.toSet());
+        if (requested.isEmpty() || !properties.containsAll(requested)) return Optional.empty();
+        return Optional.of(properties.stream().filter(requested::contains).toList());
+    }
+
+    /** One element holding just {@code fields}, in order, each read through {@code value}. */
+    static Map<String, Object> select(List<String> fields, Function<String, Object> value) {
+        Map<String, Object> element = new LinkedHashMap<>();
+        for (String field : fields) element.put(field, value.apply(field));
+        return element;
+    }
+}
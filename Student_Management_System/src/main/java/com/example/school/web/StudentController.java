@@ -1,14 +1,28 @@
 package com.example.school.web;
 
+import com.example.school.admission.AdmissionControlFilter;
+import com.example.school.dto.CreateStudentRequest;
+import com.example.school.dto.EnrolledClass;
+import com.example.school.dto.StudentSummary;
+import com.example.school.dto.UpdateStudentRequest;
 import com.example.school.entity.User;
+import com.example.school.repository.UserRepositoryCustom;
 import com.example.school.security.SchoolUserDetails;
+import com.example.school.service.ClassService;
+import com.example.school.service.KeysetPage;
 import com.example.school.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.example.school.entity.Role;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -18,27 +32,44 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/students")
 public class StudentController {
 
+    /** Properties of a {@link StudentResponse}, the names {@code fields=} accepts. */
+    static final List<String> STUDENT_FIELDS = UserRepositoryCustom.STUDENT_COLUMNS;
+
     private final UserService userService;
+    private final ClassService classService;
+    private final JsonArrayStreamer jsonArrayStreamer;
 
-    public StudentController(UserService userService) {
+    public StudentController(UserService userService, ClassService classService, JsonArrayStreamer jsonArrayStreamer) {
         this.userService = userService;
+        this.classService = classService;
+        this.jsonArrayStreamer = jsonArrayStreamer;
     }
 
+    /**
+     * Teacher: every student, streamed from the database into the response as a JSON (or CBOR) array.
+     * Student: only ever their own record. {@code fields=} narrows each element, and the columns read,
+     * to the named properties.
+     */
     @GetMapping
-    public ResponseEntity<?> listStudents() {
+    public ResponseEntity<StreamingResponseBody> listStudents(@RequestParam(required = false) String fields,
+                                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                              HttpServletRequest request) {
         Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
         if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        List<StudentResponse> list = userService.findStudentsForCurrentUser(current.get()).stream()
+        Optional<List<String>> selected = fields == null ? Optional.of(STUDENT_FIELDS) : SparseFields.parse(fields, STUDENT_FIELDS);
+        if (selected.isEmpty()) return ResponseEntity.badRequest().build();
+        request.setAttribute(AdmissionControlFilter.ASYNC_WORK_ATTRIBUTE, true);
+        if (current.get().isTeacher()) {
+            if (fields == null) return jsonArrayStreamer.<StudentSummary>stream(accept, userService::forEachStudent);
+            return jsonArrayStreamer.<Map<String, Object>>stream(accept, sink -> userService.forEachStudent(selected.get(),
+                    row -> sink.accept(SparseFields.select(selected.get(), row::get))));
+        }
+        List<?> own = userService.findStudentsForCurrentUser(current.get()).stream()
+                .filter(u -> u.getId().equals(current.get().getUserId()))
                 .map(StudentResponse::from)
+                .map(s -> fields == null ? s : SparseFields.select(selected.get(), s::property))
                 .collect(Collectors.toList());
-        // Student: only ever return their own record (never others)
-        if (!current.get().isTeacher() && !list.isEmpty()) {
-            list = list.stream()
-                    .filter(s -> s.id().equals(current.get().getUserId()))
-                    .limit(1)
-                    .collect(Collectors.toList());
-        }
-        return ResponseEntity.ok(list);
+        return jsonArrayStreamer.stream(accept, own::forEach);
     }
 
     @GetMapping("/me")
@@ -50,6 +81,19 @@ public class StudentController {
         return ResponseEntity.ok(StudentResponse.from(user.get()));
     }
 
+    /** Student only: the classes I am enrolled in, by name, paged like {@code GET /api/classes}. */
+    @GetMapping("/me/classes")
+    public ResponseEntity<List<EnrolledClass>> getMyClasses(@RequestParam(required = false) String after,
+                                                            @RequestParam(defaultValue = "" + KeysetPaging.DEFAULT_PAGE_SIZE) int limit) {
+        Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
+        if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        if (current.get().isTeacher()) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        Optional<KeysetPage.Key> position = KeysetPaging.position(after);
+        if (position.isEmpty()) return ResponseEntity.badRequest().build();
+        KeysetPage<EnrolledClass> page = classService.findEnrolledClassPage(current.get(), position.get(), KeysetPaging.pageSize(limit));
+        return KeysetPaging.withNextLink(page).body(page.items());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<StudentResponse> getStudent(@PathVariable Long id) {
         Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
@@ -63,22 +107,30 @@ public class StudentController {
     }
 
     @PostMapping
-    public ResponseEntity<StudentResponse> createStudent(@RequestBody Map<String, Object> body) {
+    public ResponseEntity<StudentResponse> createStudent(@Valid @RequestBody CreateStudentRequest body) {
         Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
         if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        Optional<User> created = userService.createStudent(body, current.get());
+        String passwordHash = userService.hashPasswordFor(body, current.get());
+        Optional<User> created = userService.createStudent(body, passwordHash, current.get());
         if (created.isEmpty()) return ResponseEntity.badRequest().build();
-        return ResponseEntity.status(HttpStatus.CREATED).body(StudentResponse.from(created.get()));
+        StudentResponse response = StudentResponse.from(created.get());
+        return ResponseEntity.created(locationOf(response.id())).body(response);
+    }
+
+    /** Relative URI of the resource just created under this request's path. */
+    private static URI locationOf(Long id) {
+        return URI.create(ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{id}").buildAndExpand(id).getPath());
     }
 
     @PatchMapping("/{id}")
     public ResponseEntity<StudentResponse> updateStudent(
             @PathVariable Long id,
-            @RequestBody Map<String, Object> updates
+            @Valid @RequestBody UpdateStudentRequest updates
     ) {
         Optional<SchoolUserDetails> current = userService.getCurrentUserDetails();
         if (current.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        Optional<User> updated = userService.updateStudentInfo(id, updates, current.get());
+        String passwordHash = userService.hashPasswordFor(updates, current.get());
+        Optional<User> updated = userService.updateStudentInfo(id, updates, passwordHash, current.get());
         if (updated.isEmpty()) return ResponseEntity.notFound().build();
         return ResponseEntity.ok(StudentResponse.from(updated.get()));
     }
@@ -95,5 +147,17 @@ public class StudentController {
         static StudentResponse from(User u) {
             return new StudentResponse(u.getId(), u.getUsername(), u.getName(), u.getEmail(), u.getGrade());
         }
+
+        /** Value of one of {@link #STUDENT_FIELDS}. */
+        Object property(String field) {
+            return switch (field) {
+                case "id" -> id;
+                case "username" -> username;
+                case "name" -> name;
+                case "email" -> email;
+                case "grade" -> grade;
+                default -> throw new IllegalArgumentException(field);
+            };
+        }
     }
 }
@@ -0,0 +1,118 @@
+package com.example.school.admission;
+
+import com.example.school.admission.AdmissionControl.Outcome;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlTest {
+
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AdmissionControl admission(AdaptiveConcurrencyLimit limit) {
+        return new AdmissionControl(2, 2, 100, 100, limit, 0.5, 1000, 3, 3, meterRegistry, now::get);
+    }
+
+    @Test
+    @DisplayName("per-user bucket rate-limits bursts and refills over time")
+    void tokenBucketLimitsAndRefills() {
+        AdmissionControl admission = admission(new AdaptiveConcurrencyLimit(100, 10, 100, TARGET, 0.9));
+
+        assertThat(admit(admission, "student1", false, true)).isEqualTo(Outcome.ADMITTED);
+        assertThat(admit(admission, "student1", false, true)).isEqualTo(Outcome.ADMITTED);
+        assertThat(admission.tryAdmit("student1", false, true)).isEqualTo(Outcome.RATE_LIMITED);
+        assertThat(admit(admission, "student2", false, true)).isEqualTo(Outcome.ADMITTED);
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(admit(admission, "student1", false, true)).isEqualTo(Outcome.ADMITTED);
+    }
+
+    @Test
+    @DisplayName("once the table is full of active users, newcomers share the overflow bucket")
+    void newcomersShareOverflowBucketWhenFull() {
+        AdmissionControl admission = new AdmissionControl(2, 2, 100, 100,
+                new AdaptiveConcurrencyLimit(100, 10, 100, TARGET, 0.9), 0.5, 2, 3, 3, meterRegistry, now::get);
+        assertThat(admit(admission, "student1", false, true)).isEqualTo(Outcome.ADMITTED);
+        assertThat(admit(admission, "student2", false, true)).isEqualTo(Outcome.ADMITTED);
+
+        assertThat(admit(admission, "newcomer1", false, true)).isEqualTo(Outcome.ADMITTED);
+        assertThat(admit(admission, "newcomer2", false, true)).isEqualTo(Outcome.ADMITTED);
+        assertThat(admit(admission, "newcomer3", true, true)).isEqualTo(Outcome.ADMITTED);
+        assertThat(admission.tryAdmit("newcomer4", false, true)).isEqualTo(Outcome.RATE_LIMITED);
+        assertThat(meterRegistry.get("school.admission.overflow").counter().count()).isEqualTo(4);
+
+        // Once student1's bucket is full again it is swept and a newcomer gets its own bucket
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(admit(admission, "newcomer4", false, true)).isEqualTo(Outcome.ADMITTED);
+        assertThat(admit(admission, "newcomer4", false, true)).isEqualTo(Outcome.ADMITTED);
+        assertThat(meterRegistry.get("school.admission.overflow").counter().count()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("a multi-operation request is charged per operation and leaves the bucket in debt")
+    void multiOperationRequestIsChargedPerOperation() {
+        AdmissionControl admission = admission(new AdaptiveConcurrencyLimit(100, 10, 100, TARGET, 0.9));
+
+        assertThat(admit(admission, "student1", false, false)).isEqualTo(Outcome.ADMITTED);
+        assertThat(admission.tryCharge("student1", false, 9)).isTrue();
+        assertThat(admission.tryCharge("student1", false, 2)).isFalse();
+
+        // 1 token left after the request, 8 more charged: back to one token after 4 seconds
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(3_900));
+        assertThat(admission.tryAdmit("student1", false, true)).isEqualTo(Outcome.RATE_LIMITED);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(admit(admission, "student1", false, true)).isEqualTo(Outcome.ADMITTED);
+    }
+
+    @Test
+    @DisplayName("student writes are capped at their share; teachers and reads use the rest")
+    void studentWritesCannotTakePriorityCapacity() {
+        AdmissionControl admission = new AdmissionControl(1000, 1000, 1000, 1000,
+                new AdaptiveConcurrencyLimit(4, 4, 4, TARGET, 0.9), 0.5, 1000, 1000, 1000, meterRegistry, now::get);
+
+        assertThat(admission.tryAdmit("s1", false, false)).isEqualTo(Outcome.ADMITTED);
+        assertThat(admission.tryAdmit("s2", false, false)).isEqualTo(Outcome.ADMITTED);
+        assertThat(admission.tryAdmit("s3", false, false)).isEqualTo(Outcome.OVERLOADED);
+        assertThat(admission.tryAdmit("teacher", true, false)).isEqualTo(Outcome.ADMITTED);
+        assertThat(admission.tryAdmit("s4", false, true)).isEqualTo(Outcome.ADMITTED);
+        assertThat(admission.tryAdmit("teacher", true, true)).isEqualTo(Outcome.OVERLOADED);
+
+        admission.release(false, 1);
+        assertThat(admission.tryAdmit("teacher", true, true)).isEqualTo(Outcome.ADMITTED);
+        assertThat(meterRegistry.get("school.admission.rejected").tag("lane", "student-write").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("school.admission.rejected").tag("lane", "priority").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("limit backs off on slow requests and recovers on fast ones, within bounds")
+    void limitAdaptsToLatency() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 10, 60, TARGET, 0.9);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limit.tryAcquire(1.0)).isTrue();
+            limit.release(TARGET * 2);
+        }
+        assertThat(limit.limit()).isEqualTo(10);
+
+        for (int i = 0; i < 2_000; i++) {
+            assertThat(limit.tryAcquire(1.0)).isTrue();
+            limit.release(TARGET / 2);
+        }
+        assertThat(limit.limit()).isEqualTo(60);
+        assertThat(limit.inFlight()).isZero();
+    }
+
+    private static Outcome admit(AdmissionControl admission, String user, boolean teacher, boolean readOnly) {
+        Outcome outcome = admission.tryAdmit(user, teacher, readOnly);
+        if (outcome == Outcome.ADMITTED) admission.release(teacher || readOnly, 1);
+        return outcome;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.school.admission;
+
+import com.example.school.repository.EnrollmentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Student enroll/unenroll spike while a teacher keeps reading a roster. Each student write holds a
+ * pooled connection for {@value #WRITE_HOLD_MILLIS} ms (standing in for a contended registration
+ * table) and the spike is larger than the pool; since student writes may only fill half of the
+ * concurrency limit, the teacher still gets a connection and is never shed. The teacher's p99 during
+ * the spike is wall-clock bound, so it is a benchmark.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "school.admission.initial-limit=8",
+        "school.admission.min-limit=8",
+        "school.admission.max-limit=8",
+        "school.admission.student-write-share=0.5",
+        "school.admission.user-rate=100000",
+        "school.admission.user-burst=100000",
+        "spring.datasource.hikari.maximum-pool-size=6"
+})
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class AdmissionLoadTest {
+
+    private static final int STUDENTS = 8;
+    private static final int THREADS_PER_STUDENT = 2;
+    private static final long SPIKE_MILLIS = 3_000;
+    private static final long WRITE_HOLD_MILLIS = 100;
+    private static final Set<String> WRITE_LOOKUPS = Set.of("existsByStudentAndSchoolClass", "findByStudentAndSchoolClass");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static volatile boolean holdWrites;
+
+    @Test
+    @DisplayName("teacher roster reads are all admitted during a student enroll spike; student writes are shed with 503, never 500")
+    void teacherAdmittedDuringStudentSpike() throws Exception {
+        Spike spike = spike(1_000);
+
+        assertThat(spike.teacherStatuses()).isNotEmpty().containsOnly(200);
+        assertThat(spike.shed()).isPositive();
+        assertThat(spike.studentStatuses()).containsKey(503).doesNotContainKey(500);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("benchmark: teacher roster reads keep a bounded p99 during a student enroll spike")
+    void benchmarkTeacherP99DuringStudentSpike() throws Exception {
+        Spike spike = spike(SPIKE_MILLIS);
+
+        List<Long> latencies = new ArrayList<>(spike.teacherLatencies());
+        Collections.sort(latencies);
+        long p99Millis = TimeUnit.NANOSECONDS.toMillis(latencies.get((int) (latencies.size() * 0.99)));
+        assertThat(spike.teacherStatuses()).containsOnly(200);
+        assertThat(p99Millis).isLessThan(500);
+    }
+
+    private record Spike(List<Long> teacherLatencies, List<Integer> teacherStatuses,
+                         Map<Integer, Integer> studentStatuses, double shed) {}
+
+    /** Students enroll and unenroll in a loop for {@code millis} while the teacher keeps reading a roster. */
+    private Spike spike(long millis) throws Exception {
+        Long teacherId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'test_teacher'", Long.class);
+        List<Long> classIds = new ArrayList<>();
+        for (int i = 0; i < THREADS_PER_STUDENT; i++) {
+            jdbcTemplate.update("INSERT INTO school_classes (name, teacher_id) VALUES (?, ?)", "Spike " + i, teacherId);
+            classIds.add(jdbcTemplate.queryForObject("SELECT id FROM school_classes WHERE name = ?", Long.class, "Spike " + i));
+        }
+        String hash = new BCryptPasswordEncoder(4).encode("pw");
+        List<HttpClient> students = new ArrayList<>();
+        for (int s = 0; s < STUDENTS; s++) {
+            jdbcTemplate.update("INSERT INTO users (username, password, name, role) VALUES (?, ?, ?, 'STUDENT')",
+                    "spike_student_" + s, hash, "Spike Student " + s);
+            students.add(login("spike_student_" + s, "pw"));
+        }
+        HttpClient teacher = login("test_teacher", "password");
+        String roster = "/api/classes/" + classIds.get(0) + "/enrollments";
+        for (int i = 0; i < 20; i++) {
+            teacher.send(request(roster).GET().build(), HttpResponse.BodyHandlers.discarding());
+        }
+        holdWrites = true;
+
+        ExecutorService pool = Executors.newFixedThreadPool(STUDENTS * THREADS_PER_STUDENT);
+        AtomicBoolean running = new AtomicBoolean(true);
+        ConcurrentHashMap<Integer, Integer> studentStatuses = new ConcurrentHashMap<>();
+        List<Future<?>> writers = new ArrayList<>();
+        for (HttpClient student : students) {
+            for (Long classId : classIds) {
+                writers.add(pool.submit(() -> {
+                    boolean enroll = true;
+                    while (running.get()) {
+                        HttpRequest.Builder b = request("/api/classes/" + classId + "/enroll");
+                        HttpResponse<Void> response = student.send(
+                                enroll ? b.POST(HttpRequest.BodyPublishers.noBody()).build() : b.DELETE().build(),
+                                HttpResponse.BodyHandlers.discarding());
+                        studentStatuses.merge(response.statusCode(), 1, Integer::sum);
+                        // Well-behaved clients back off for Retry-After seconds
+                        long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(0);
+                        if (retryAfter > 0) Thread.sleep(TimeUnit.SECONDS.toMillis(retryAfter));
+                        enroll = !enroll;
+                    }
+                    return null;
+                }));
+            }
+        }
+
+        List<Long> teacherLatencies = new ArrayList<>();
+        List<Integer> teacherStatuses = new ArrayList<>();
+        long end = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < end) {
+            long start = System.nanoTime();
+            int status = teacher.send(request(roster).GET().build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode();
+            teacherLatencies.add(System.nanoTime() - start);
+            teacherStatuses.add(status);
+        }
+        running.set(false);
+        try {
+            for (Future<?> f : writers) f.get(30, TimeUnit.SECONDS);
+        } finally {
+            holdWrites = false;
+            pool.shutdown();
+        }
+
+        double shed = meterRegistry.get("school.admission.rejected").tag("lane", "student-write").counter().count();
+        return new Spike(teacherLatencies, teacherStatuses, studentStatuses, shed);
+    }
+
+    @TestConfiguration
+    static class SlowEnrollmentLookups {
+
+        /** Wraps the repository so the lookups done by enroll/unenroll sleep inside their transaction. */
+        @Bean
+        static BeanPostProcessor holdConnectionDuringWrites() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof EnrollmentRepository repository)) return bean;
+                    return Proxy.newProxyInstance(EnrollmentRepository.class.getClassLoader(),
+                            new Class<?>[]{EnrollmentRepository.class}, (proxy, method, args) -> {
+                                if (holdWrites && WRITE_LOOKUPS.contains(method.getName())) Thread.sleep(WRITE_HOLD_MILLIS);
+                                try {
+                                    return method.invoke(repository, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            });
+                }
+            };
+        }
+    }
+
+    private HttpClient login(String username, String password) throws Exception {
+        HttpClient client = HttpClient.newBuilder().cookieHandler(new CookieManager()).build();
+        String form = "username=" + URLEncoder.encode(username, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8);
+        HttpResponse<Void> response = client.send(request("/login")
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form)).build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertThat(response.headers().firstValue("Location")).hasValueSatisfying(l -> assertThat(l).doesNotContain("error"));
+        return client;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.school.admission;
+
+import com.example.school.security.SchoolUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Open event streams and long polls wait on the async side without holding a slot under the
+ * concurrency limit, so normal API calls are still admitted while more of them are open than the
+ * limit allows, and their open time is not fed to the limit as latency.
+ */
+@SpringBootTest(properties = {
+        "school.admission.initial-limit=8",
+        "school.admission.min-limit=1",
+        "school.admission.max-limit=8",
+        "school.admission.target-latency=100ms"
+})
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class AsyncAdmissionIntegrationTest {
+
+    private static final int STREAMS = 10;
+    private static final int LONG_POLLS = 2;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private SchoolUserDetailsService userDetailsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private MockMvc mockMvc;
+    private UserDetails teacher;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        teacher = userDetailsService.loadUserByUsername("test_teacher");
+    }
+
+    @Test
+    @DisplayName("open event streams and long polls beyond the limit leave normal requests admitted and the limit unchanged")
+    void longLivedAsyncRequestsHoldNoSlot() throws Exception {
+        List<MvcResult> open = new ArrayList<>();
+        for (int i = 0; i < STREAMS; i++) {
+            open.add(mockMvc.perform(get("/api/classes/events").with(user(teacher)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn());
+        }
+        for (int i = 0; i < LONG_POLLS; i++) {
+            open.add(mockMvc.perform(get("/api/changes?after=" + Long.MAX_VALUE + "&waitSeconds=30").with(user(teacher)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn());
+        }
+        assertThat(gauge("school.admission.in-flight")).isZero();
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Integer>> calls = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                calls.add(pool.submit(() -> mockMvc.perform(get("/api/classes").with(user(teacher)))
+                        .andReturn().getResponse().getStatus()));
+            }
+            for (Future<Integer> call : calls) assertThat(call.get(30, TimeUnit.SECONDS)).isEqualTo(200);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Open well past the target latency; ending them must not shrink the limit
+        double limit = gauge("school.admission.limit");
+        Thread.sleep(200);
+        for (MvcResult result : open) result.getRequest().getAsyncContext().complete();
+        assertThat(gauge("school.admission.limit")).isEqualTo(limit);
+        assertThat(gauge("school.admission.in-flight")).isZero();
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+}
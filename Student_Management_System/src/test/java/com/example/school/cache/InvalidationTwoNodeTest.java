@@ -0,0 +1,104 @@
+package com.example.school.cache;
+
+import com.example.school.SchoolApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two nodes on one database, each with its own class cache: a rename committed on node A must
+ * show up in node B's cached {@code GET /api/classes/{id}} within a bounded delay.
+ */
+class InvalidationTwoNodeTest {
+
+    private static final String DB_URL = "jdbc:h2:mem:two_node_cache;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+    private static final String TEACHER = "Basic " + Base64.getEncoder().encodeToString("teacher:teacher".getBytes(StandardCharsets.UTF_8));
+    private static final long MAX_DELAY_MILLIS = 1_000;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = start("create");
+        nodeB = start("none");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) nodeB.close();
+        if (nodeA != null) nodeA.close();
+    }
+
+    private static ConfigurableApplicationContext start(String ddlAuto) {
+        return new SpringApplicationBuilder(SchoolApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + DB_URL,
+                        "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                        "--spring.jmx.enabled=false");
+    }
+
+    @Test
+    @DisplayName("class renamed on node A is visible in node B's cache within a bounded delay")
+    void renameOnOneNodeInvalidatesTheOther() throws Exception {
+        JdbcTemplate jdbc = new JdbcTemplate(nodeA.getBean(DataSource.class));
+        Long teacherId = jdbc.queryForObject("SELECT id FROM users WHERE username = 'teacher'", Long.class);
+        jdbc.update("INSERT INTO school_classes (name, teacher_id) VALUES ('Biology', ?)", teacherId);
+        Long classId = jdbc.queryForObject("SELECT id FROM school_classes WHERE name = 'Biology'", Long.class);
+
+        assertThat(get(nodeB, "/api/classes/" + classId)).contains("\"name\":\"Biology\"");
+        assertThat(get(nodeB, "/api/classes/" + classId)).contains("\"name\":\"Biology\"");
+        assertThat(hits(nodeB)).isPositive();
+
+        HttpResponse<String> rename = http.send(request(nodeA, "/api/classes/" + classId)
+                        .header("Content-Type", "application/json")
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"name\":\"Marine Biology\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(rename.statusCode()).isEqualTo(200);
+        long committed = System.nanoTime();
+
+        long delayMillis;
+        while (true) {
+            delayMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - committed);
+            if (get(nodeB, "/api/classes/" + classId).contains("\"name\":\"Marine Biology\"")) break;
+            assertThat(delayMillis).as("node B still serves the old name").isLessThan(MAX_DELAY_MILLIS);
+            Thread.sleep(10);
+        }
+    }
+
+    private static double hits(ConfigurableApplicationContext node) {
+        return node.getBean(MeterRegistry.class).get("school.cache.requests")
+                .tag("cache", "classes").tag("result", "hit").counter().count();
+    }
+
+    private String get(ConfigurableApplicationContext node, String path) throws Exception {
+        HttpResponse<String> response = http.send(request(node, path).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(200);
+        return response.body();
+    }
+
+    private static HttpRequest.Builder request(ConfigurableApplicationContext node, String path) {
+        int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).header("Authorization", TEACHER);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.school.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LocalCache<Long, String> cache = new LocalCache<>("test", 3, meterRegistry);
+
+    @Test
+    @DisplayName("second read is a hit; evict forces a reload")
+    void cachesUntilEvicted() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get(1L, k -> Optional.of("v" + loads.incrementAndGet()))).contains("v1");
+        assertThat(cache.get(1L, k -> Optional.of("v" + loads.incrementAndGet()))).contains("v1");
+        cache.evict(1L);
+        assertThat(cache.get(1L, k -> Optional.of("v" + loads.incrementAndGet()))).contains("v2");
+
+        assertThat(meterRegistry.get("school.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("school.cache.requests").tag("result", "miss").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("a load that races with an invalidation is returned but not stored")
+    void loadRacingInvalidationIsNotStored() {
+        assertThat(cache.get(1L, k -> {
+            cache.evict(1L); // another node's change arrives while we read the old row
+            return Optional.of("stale");
+        })).contains("stale");
+
+        assertThat(cache.get(1L, k -> Optional.of("fresh"))).contains("fresh");
+    }
+
+    @Test
+    @DisplayName("empty results are not cached; a full cache starts over")
+    void emptyNotCachedAndBounded() {
+        assertThat(cache.get(1L, k -> Optional.empty())).isEmpty();
+        assertThat(cache.get(1L, k -> Optional.of("later"))).contains("later");
+
+        cache.get(2L, k -> Optional.of("b"));
+        cache.get(3L, k -> Optional.of("c"));
+        cache.get(4L, k -> Optional.of("d"));
+        assertThat(meterRegistry.get("school.cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("entries older than the TTL are reloaded")
+    void expiredEntriesAreReloaded() {
+        AtomicLong now = new AtomicLong();
+        LocalCache<Long, String> ttlCache = new LocalCache<>("ttl", 10, Duration.ofSeconds(1), meterRegistry, now::get);
+
+        assertThat(ttlCache.get(1L, k -> Optional.of("v1"))).contains("v1");
+        now.addAndGet(Duration.ofMillis(999).toNanos());
+        assertThat(ttlCache.get(1L, k -> Optional.of("v2"))).contains("v1");
+        now.addAndGet(Duration.ofMillis(1).toNanos());
+        assertThat(ttlCache.get(1L, k -> Optional.of("v2"))).contains("v2");
+    }
+
+    @Test
+    @DisplayName("change events survive an encode/decode round trip; unknown payloads are ignored")
+    void changeEventPayload() {
+        ChangeEvent event = new ChangeEvent(ChangeEvent.EntityType.ENROLLMENT, 42, 1_700_000_000_000L);
+
+        assertThat(event.encode()).isEqualTo("E:42:1700000000000");
+        assertThat(ChangeEvent.decode(event.encode())).contains(event);
+        assertThat(ChangeEvent.decode("X:1:2")).isEmpty();
+        assertThat(ChangeEvent.decode("C:abc:2")).isEmpty();
+        assertThat(ChangeEvent.decode(null)).isEmpty();
+    }
+}
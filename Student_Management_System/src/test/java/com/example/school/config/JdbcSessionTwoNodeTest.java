@@ -0,0 +1,113 @@
+package com.example.school.config;
+
+import com.example.school.SchoolApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two app instances on one shared database, as behind a load balancer without sticky sessions: a
+ * session created by logging in on one node is accepted by the other, and logging out on either
+ * ends it for both.
+ */
+class JdbcSessionTwoNodeTest {
+
+    private static final String DB_URL = "jdbc:h2:mem:two_node_sessions;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = start("create");
+        nodeB = start("none");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) nodeB.close();
+        if (nodeA != null) nodeA.close();
+    }
+
+    private static ConfigurableApplicationContext start(String ddlAuto) {
+        return new SpringApplicationBuilder(SchoolApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + DB_URL,
+                        "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                        "--spring.jmx.enabled=false");
+    }
+
+    @Test
+    @DisplayName("session from a login on node A authenticates on node B; logout on B ends it on A")
+    void sessionIsSharedAcrossNodes() throws Exception {
+        String sessionCookie = login(nodeA, "student", "student");
+
+        assertThat(get(nodeB, "/api/students/me", sessionCookie).statusCode()).isEqualTo(200);
+        assertThat(get(nodeB, "/api/students/me", null).statusCode()).isNotEqualTo(200);
+
+        http.send(request(nodeB, "/logout", sessionCookie).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertThat(get(nodeA, "/api/students/me", sessionCookie).statusCode()).isNotEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("stored security context holds the compact principal, not the password hash or profile fields")
+    void storedPrincipalIsCompact() throws Exception {
+        login(nodeA, "student", "student");
+
+        byte[] stored = new JdbcTemplate(nodeA.getBean(DataSource.class)).queryForObject(
+                "SELECT a.ATTRIBUTE_BYTES FROM SPRING_SESSION_ATTRIBUTES a "
+                        + "JOIN SPRING_SESSION s ON s.PRIMARY_ID = a.SESSION_PRIMARY_ID "
+                        + "WHERE s.PRINCIPAL_NAME = 'student' AND a.ATTRIBUTE_NAME = 'SPRING_SECURITY_CONTEXT' "
+                        + "ORDER BY s.CREATION_TIME DESC LIMIT 1",
+                byte[].class);
+        String contents = new String(stored, StandardCharsets.ISO_8859_1);
+
+        assertThat(contents).contains("Default Student");
+        assertThat(contents).doesNotContain("$2a$").doesNotContain("{bcrypt}").doesNotContain("student@school.com");
+        assertThat(contents).doesNotContain("com.example.school.entity.User");
+    }
+
+    /** Form login; returns the {@code SESSION} cookie (name=value) set on success. */
+    private String login(ConfigurableApplicationContext node, String username, String password) throws Exception {
+        HttpResponse<String> response = http.send(request(node, "/login", null)
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString("username=" + username + "&password=" + password))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(302);
+        assertThat(response.headers().firstValue("Location")).hasValueSatisfying(l -> assertThat(l).doesNotContain("error"));
+        return response.headers().allValues("Set-Cookie").stream()
+                .filter(c -> c.startsWith("SESSION="))
+                .map(c -> c.substring(0, c.indexOf(';')))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no SESSION cookie in " + response.headers().map()));
+    }
+
+    private HttpResponse<String> get(ConfigurableApplicationContext node, String path, String cookie) throws Exception {
+        return http.send(request(node, path, cookie).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpRequest.Builder request(ConfigurableApplicationContext node, String path, String cookie) {
+        int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (cookie != null) builder.header("Cookie", cookie);
+        return builder;
+    }
+}
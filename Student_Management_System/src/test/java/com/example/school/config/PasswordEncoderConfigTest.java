@@ -0,0 +1,96 @@
+package com.example.school.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordEncoderConfigTest {
+
+    /** Unprefixed strength-10 hash of "password", as seeded by test-users.sql and older deployments. */
+    private static final String LEGACY_HASH = "$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fqvM/BG";
+
+    private final SecurityConfig securityConfig = new SecurityConfig();
+
+    private PasswordEncoder encoder(String algorithm, int bcryptStrength) {
+        return securityConfig.passwordEncoder(algorithm, bcryptStrength, 1000);
+    }
+
+    @Test
+    @DisplayName("legacy unprefixed BCrypt hash still matches and is flagged for upgrade")
+    void legacyHash_matchesAndNeedsUpgrade() {
+        PasswordEncoder encoder = encoder("bcrypt", 10);
+
+        assertThat(encoder.matches("password", LEGACY_HASH)).isTrue();
+        assertThat(encoder.upgradeEncoding(LEGACY_HASH)).isTrue();
+    }
+
+    @Test
+    @DisplayName("hash below the configured BCrypt cost is flagged for upgrade, current cost is not")
+    void lowerCostHash_needsUpgrade() {
+        String cost4 = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("password");
+        PasswordEncoder encoder = encoder("bcrypt", 5);
+
+        assertThat(encoder.matches("password", cost4)).isTrue();
+        assertThat(encoder.upgradeEncoding(cost4)).isTrue();
+        assertThat(encoder.upgradeEncoding(encoder.encode("password"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("pbkdf2 writes prefixed hashes and still verifies legacy BCrypt")
+    void pbkdf2_encodesWithPrefix() {
+        PasswordEncoder encoder = encoder("pbkdf2", 10);
+
+        String hash = encoder.encode("password");
+        assertThat(hash).startsWith("{pbkdf2}");
+        assertThat(encoder.matches("password", hash)).isTrue();
+        assertThat(encoder.matches("password", LEGACY_HASH)).isTrue();
+    }
+
+    @Test
+    @DisplayName("unknown algorithm fails fast")
+    void unknownAlgorithm_throws() {
+        assertThatThrownBy(() -> encoder("md5", 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("md5");
+    }
+
+    @Test
+    @DisplayName("the configured BCrypt strength is the cost recorded in each hash")
+    void strengthIsRecordedInHash() {
+        for (int strength = 8; strength <= 11; strength++) {
+            String hash = encoder("bcrypt", strength).encode("password");
+            assertThat(hash).contains(String.format("$%02d$", strength));
+        }
+    }
+
+    /**
+     * Login cost: single-core verifies per second at several BCrypt strengths. Multiply by the cores
+     * you can spare for logins to pick {@code school.password-hashing.bcrypt-strength}.
+     */
+    @Test
+    @Tag("benchmark")
+    @DisplayName("login verify throughput roughly halves per BCrypt cost step")
+    void verifyThroughputByCost() {
+        Map<Integer, Double> verifiesPerSecond = new LinkedHashMap<>();
+        for (int strength = 8; strength <= 11; strength++) {
+            PasswordEncoder encoder = encoder("bcrypt", strength);
+            String hash = encoder.encode("password");
+            encoder.matches("password", hash);
+            int ops = 8;
+            long start = System.nanoTime();
+            for (int i = 0; i < ops; i++) {
+                assertThat(encoder.matches("password", hash)).isTrue();
+            }
+            verifiesPerSecond.put(strength, ops * 1e9 / (System.nanoTime() - start));
+        }
+        assertThat(verifiesPerSecond.get(8)).isGreaterThan(verifiesPerSecond.get(11) * 3);
+    }
+}
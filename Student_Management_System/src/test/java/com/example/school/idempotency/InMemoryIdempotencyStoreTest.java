@@ -0,0 +1,103 @@
+package com.example.school.idempotency;
+
+import com.example.school.idempotency.IdempotencyStore.Claim;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryIdempotencyStoreTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+    private static final StoredResponse CREATED =
+            new StoredResponse(201, "application/json", Map.of(), "{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private InMemoryIdempotencyStore store(int maxKeys) {
+        return new InMemoryIdempotencyStore(TTL, maxKeys, meterRegistry, now::get);
+    }
+
+    @Test
+    @DisplayName("first claim runs, a duplicate is in progress until completed, then gets the response")
+    void claimCompleteReplay() {
+        InMemoryIdempotencyStore store = store(100);
+        assertThat(store.claim("alice:k1", "fp")).isEqualTo(Claim.CLAIMED);
+        assertThat(store.claim("alice:k1", "fp")).isEqualTo(Claim.IN_PROGRESS);
+
+        store.complete("alice:k1", CREATED);
+        Claim replay = store.claim("alice:k1", "fp");
+        assertThat(replay.state()).isEqualTo(Claim.State.COMPLETED);
+        assertThat(replay.response()).isSameAs(CREATED);
+
+        assertThat(store.claim("bob:k1", "fp")).isEqualTo(Claim.CLAIMED);
+        assertThat(meterRegistry.get("school.idempotency.keys").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("the same key with another fingerprint is a mismatch, running or finished")
+    void mismatch() {
+        InMemoryIdempotencyStore store = store(100);
+        store.claim("alice:k1", "fp");
+        assertThat(store.claim("alice:k1", "other")).isEqualTo(Claim.MISMATCH);
+        store.complete("alice:k1", CREATED);
+        assertThat(store.claim("alice:k1", "other")).isEqualTo(Claim.MISMATCH);
+    }
+
+    @Test
+    @DisplayName("a released claim can be claimed again; a completed one cannot be released")
+    void release() {
+        InMemoryIdempotencyStore store = store(100);
+        store.claim("alice:k1", "fp");
+        store.release("alice:k1");
+        assertThat(store.size()).isZero();
+        assertThat(store.claim("alice:k1", "other")).isEqualTo(Claim.CLAIMED);
+
+        store.complete("alice:k1", CREATED);
+        store.release("alice:k1");
+        assertThat(store.claim("alice:k1", "fp")).isEqualTo(Claim.MISMATCH);
+    }
+
+    @Test
+    @DisplayName("keys expire after the TTL and are dropped on the next claim")
+    void expiresAfterTtl() {
+        InMemoryIdempotencyStore store = store(100);
+        store.claim("alice:k1", "fp");
+        store.complete("alice:k1", CREATED);
+        now.addAndGet(TTL.toNanos() / 2);
+        store.claim("alice:k2", "fp");
+
+        now.addAndGet(TTL.toNanos() / 2);
+        assertThat(store.claim("alice:k3", "fp")).isEqualTo(Claim.CLAIMED);
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.claim("alice:k1", "other")).isEqualTo(Claim.CLAIMED);
+        assertThat(store.claim("alice:k2", "other")).isEqualTo(Claim.MISMATCH);
+    }
+
+    @Test
+    @DisplayName("at max keys the oldest claim is dropped first, not one re-claimed later")
+    void evictsOldestWhenFull() {
+        InMemoryIdempotencyStore store = store(3);
+        for (int i = 0; i < 3; i++) {
+            store.claim("k" + i, "fp");
+            now.addAndGet(1_000);
+        }
+        store.release("k0");
+        store.claim("k0", "fp");
+
+        // Full: k1 goes, k0's first place in the queue is skipped
+        store.claim("k3", "fp");
+        assertThat(store.size()).isEqualTo(3);
+        // Full again: k2 goes, k0 stays
+        assertThat(store.claim("k0", "other")).isEqualTo(Claim.MISMATCH);
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.claim("k1", "other")).isEqualTo(Claim.CLAIMED);
+    }
+}
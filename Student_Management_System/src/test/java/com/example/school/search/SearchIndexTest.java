@@ -0,0 +1,123 @@
+package com.example.school.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchIndexTest {
+
+    private static final String[] FIRST = {"Anna", "Andre", "Beatriz", "Bruno", "Chloé", "Carlos", "Dmitri", "Diana",
+            "Elena", "Emil", "Fatima", "Felix", "Grace", "Gustavo", "Hana", "Henrik", "Ines", "Ivan", "Jana", "Jonas",
+            "Kofi", "Karin", "Lena", "Luca", "Maya", "Mateo", "Nadia", "Noah", "Olga", "Omar", "Priya", "Pablo"};
+    private static final String[] LAST = {"Smith", "Silva", "Novak", "Nguyen", "Okafor", "Olsen", "Petrov", "Park",
+            "Rossi", "Rahman", "Schmidt", "Sato", "Tanaka", "Torres", "Weber", "Wong", "Yilmaz", "Young", "Zhang", "Zimmer"};
+
+    private final SearchIndex<String> index = new SearchIndex<>();
+
+    @Test
+    @DisplayName("every query word must prefix a word of the document, ignoring case and accents")
+    void matchesAllPrefixes() {
+        index.put(1, "anna", "anna_s", "Anna Smith", "anna.smith");
+        index.put(2, "andre", "andre_n", "André Novak", null);
+        index.put(3, "chloe", "c_d", "Chloé Dubois", "chloe");
+
+        assertThat(index.search("an", 10, v -> true)).containsExactlyInAnyOrder("anna", "andre");
+        assertThat(index.search("an sm", 10, v -> true)).containsExactly("anna");
+        assertThat(index.search("ANDRE", 10, v -> true)).containsExactly("andre");
+        assertThat(index.search("chloé du", 10, v -> true)).containsExactly("chloe");
+        assertThat(index.search("an zz", 10, v -> true)).isEmpty();
+        assertThat(index.search("  ", 10, v -> true)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("exact word matches come before longer words with the same prefix")
+    void exactTokenFirst() {
+        index.put(1, "annabel", "Annabel");
+        index.put(2, "ann", "Ann");
+
+        assertThat(index.search("ann", 10, v -> true)).containsExactly("ann", "annabel");
+    }
+
+    @Test
+    @DisplayName("re-indexing drops old words, removing drops the document, and limit and filter apply")
+    void updatesInPlace() {
+        index.put(1, "one", "Maria Lopez");
+        index.put(2, "two", "Maria Costa");
+        index.put(3, "three", "Maria Perez");
+
+        index.put(1, "one", "Maria Garcia");
+        index.remove(2);
+
+        assertThat(index.search("lopez", 10, v -> true)).isEmpty();
+        assertThat(index.search("garc", 10, v -> true)).containsExactly("one");
+        assertThat(index.search("maria", 10, v -> true)).containsExactly("one", "three");
+        assertThat(index.search("maria", 1, v -> true)).hasSize(1);
+        assertThat(index.search("maria", 10, v -> !v.equals("one"))).containsExactly("three");
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("loader replaces the whole index at once")
+    void loaderPublishes() {
+        index.put(9, "old", "Old Entry");
+        SearchIndex<String>.Loader loader = index.loader();
+        loader.add(1, "new", "New Entry");
+        assertThat(index.search("old", 10, v -> true)).containsExactly("old");
+
+        loader.publish();
+        index.put(2, "later", "Newer Entry");
+
+        assertThat(index.search("old", 10, v -> true)).isEmpty();
+        assertThat(index.search("ne", 10, v -> true)).containsExactly("new", "later");
+    }
+
+    /** 500k students with realistic name overlap; typeahead queries of one and two words. */
+    @Test
+    @Tag("benchmark")
+    @DisplayName("typeahead over 500k students answers in under a millisecond")
+    void typeaheadLatencyAt500k() {
+        int students = 500_000;
+        SearchIndex<String>.Loader loader = index.loader();
+        for (int i = 0; i < students; i++) {
+            String first = FIRST[i % FIRST.length];
+            String last = LAST[(i / FIRST.length) % LAST.length];
+            String username = "s" + i;
+            loader.add(i, username, username, first + " " + last + " " + i, first.toLowerCase() + "." + last.toLowerCase() + i);
+        }
+        loader.publish();
+
+        Random random = new Random(42);
+        String[] queries = new String[2_000];
+        for (int i = 0; i < queries.length; i++) {
+            String first = FIRST[random.nextInt(FIRST.length)];
+            String last = LAST[random.nextInt(LAST.length)];
+            queries[i] = switch (i % 4) {
+                case 0 -> first.substring(0, 2);
+                case 1 -> first.substring(0, 3) + " " + last.substring(0, 2);
+                case 2 -> last;
+                default -> "s" + random.nextInt(students);
+            };
+        }
+        for (String q : queries) index.search(q, 10, v -> true); // warm up
+
+        long[] nanos = new long[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            long started = System.nanoTime();
+            List<String> hits = index.search(queries[i], 10, v -> true);
+            nanos[i] = System.nanoTime() - started;
+            assertThat(hits).isNotEmpty();
+        }
+        Arrays.sort(nanos);
+        long p95 = nanos[nanos.length * 95 / 100];
+        long p99 = nanos[nanos.length * 99 / 100];
+
+        assertThat(p95).isLessThan(1_000_000);
+        assertThat(p99).isLessThan(5_000_000); // leaves room for a GC pause on a busy build machine
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.school.security;
+
+import com.example.school.cache.LocalCache;
+import com.example.school.entity.Role;
+import com.example.school.repository.SchoolClassRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClassOwnershipTest {
+
+    private static final SchoolUserDetails OWNER = new SchoolUserDetails(1L, "owner", "Owner", Role.TEACHER, null);
+    private static final SchoolUserDetails OTHER_TEACHER = new SchoolUserDetails(2L, "other", "Other", Role.TEACHER, null);
+    private static final SchoolUserDetails STUDENT = new SchoolUserDetails(1L, "student", "Student", Role.STUDENT, null);
+
+    @Mock
+    private SchoolClassRepository schoolClassRepository;
+
+    private final LocalCache<Long, Long> cache = new LocalCache<>("class-owners", 100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+    @Test
+    @DisplayName("owner check reads teacher_id once, then answers from the cache")
+    void ownerIsCached() {
+        when(schoolClassRepository.findTeacherIdById(10L)).thenReturn(Optional.of(1L));
+        ClassOwnership ownership = new ClassOwnership(schoolClassRepository, cache);
+
+        assertThat(ownership.isOwner(10L, OWNER)).isTrue();
+        assertThat(ownership.isOwner(10L, OWNER)).isTrue();
+        assertThat(ownership.isOwner(10L, OTHER_TEACHER)).isFalse();
+        verify(schoolClassRepository, times(1)).findTeacherIdById(10L);
+    }
+
+    @Test
+    @DisplayName("students never own a class, even with a matching id; they cost no query")
+    void studentIsNeverOwner() {
+        ClassOwnership ownership = new ClassOwnership(schoolClassRepository, cache);
+
+        assertThat(ownership.isOwner(10L, STUDENT)).isFalse();
+        verifyNoInteractions(schoolClassRepository);
+    }
+
+    @Test
+    @DisplayName("a deleted class (evicted) is looked up again and is then owned by nobody")
+    void evictedClassIsReloaded() {
+        when(schoolClassRepository.findTeacherIdById(10L)).thenReturn(Optional.of(1L), Optional.empty());
+        ClassOwnership ownership = new ClassOwnership(schoolClassRepository, cache);
+
+        assertThat(ownership.isOwner(10L, OWNER)).isTrue();
+        cache.evict(10L);
+        assertThat(ownership.isOwner(10L, OWNER)).isFalse();
+        assertThat(ownership.ownerOf(10L)).isEmpty();
+        verify(schoolClassRepository, times(3)).findTeacherIdById(10L);
+    }
+}
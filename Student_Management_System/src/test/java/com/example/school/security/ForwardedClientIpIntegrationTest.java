@@ -0,0 +1,53 @@
+package com.example.school.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the real Tomcat connector, where the remote IP valve sets the client address from
+ * X-Forwarded-For. The test client connects over loopback, which is a trusted proxy, so it plays
+ * the load balancer in front of several clients.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class ForwardedClientIpIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    @DisplayName("clients behind the proxy get separate per-IP login budgets")
+    void loginThrottleIsKeyedOnForwardedClientIp() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            assertThat(me("victim_" + i, "guess", "203.0.113.1")).isEqualTo(401);
+        }
+        assertThat(me("victim_x", "guess", "203.0.113.1")).isEqualTo(429);
+
+        assertThat(me("test_teacher", "password", "203.0.113.2")).isEqualTo(200);
+    }
+
+    private int me(String username, String password, String clientIp) throws Exception {
+        String credentials = Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/me"))
+                .header("Authorization", "Basic " + credentials)
+                .header("X-Forwarded-For", clientIp)
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
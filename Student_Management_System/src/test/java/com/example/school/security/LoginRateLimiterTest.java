@@ -0,0 +1,169 @@
+package com.example.school.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginRateLimiterTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(5);
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private LoginRateLimiter limiter(int maxTrackedKeys) {
+        return new LoginRateLimiter(WINDOW, 3, 10, Duration.ofSeconds(1), Duration.ofSeconds(8), maxTrackedKeys,
+                meterRegistry, now::get);
+    }
+
+    @Test
+    @DisplayName("past its free attempts a username backs off exponentially, capped, until a success")
+    void userBacksOffAfterFreeAttempts() {
+        LoginRateLimiter limiter = limiter(1000);
+        for (int i = 0; i < 3; i++) assertThat(limiter.tryAcquire("Alice", "10.0.0." + i)).isZero();
+
+        assertThat(limiter.tryAcquire("alice", "10.0.1.1")).isEqualTo(SECOND);
+        assertThat(limiter.tryAcquire("bob", "10.0.1.1")).isZero();
+        assertThat(meterRegistry.get("school.login.throttle.rejected").tag("key", "user").counter().count()).isEqualTo(1);
+
+        now.addAndGet(SECOND);
+        assertThat(limiter.tryAcquire("alice", "10.0.1.1")).isZero();
+        assertThat(limiter.tryAcquire("alice", "10.0.1.1")).isEqualTo(2 * SECOND);
+        for (int i = 0; i < 5; i++) {
+            now.addAndGet(8 * SECOND);
+            assertThat(limiter.tryAcquire("alice", "10.0.1.2")).isZero();
+        }
+        assertThat(limiter.tryAcquire("alice", "10.0.1.2")).isEqualTo(8 * SECOND);
+
+        limiter.recordSuccess("alice");
+        assertThat(limiter.tryAcquire("alice", "10.0.1.2")).isZero();
+    }
+
+    @Test
+    @DisplayName("an IP is refused after max attempts across many usernames; a success does not give one back")
+    void ipBudgetAcrossUsernames() {
+        LoginRateLimiter limiter = limiter(1000);
+        for (int i = 0; i < 10; i++) assertThat(limiter.tryAcquire("user" + i, "10.0.0.1")).isZero();
+
+        assertThat(limiter.tryAcquire("someone-new", "10.0.0.1")).isPositive();
+        assertThat(limiter.tryAcquire("someone-new", "10.0.0.2")).isZero();
+
+        limiter.recordSuccess("user0");
+        assertThat(limiter.tryAcquire("user0", "10.0.0.1")).isPositive();
+    }
+
+    @Test
+    @DisplayName("logging in to an owned account between guesses does not refill the IP's budget")
+    void ownedAccountLoginsDoNotRefillIp() {
+        LoginRateLimiter limiter = limiter(1000);
+        int guesses = 0;
+        for (int i = 0; i < 100; i++) {
+            if (limiter.tryAcquire("mallory", "10.0.0.1") == 0) limiter.recordSuccess("mallory");
+            if (limiter.tryAcquire("victim" + i, "10.0.0.1") == 0) guesses++;
+        }
+        assertThat(guesses).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Basic-style checks count nothing; only recorded failures use up the IP and username budgets")
+    void checkCountsOnlyFailures() {
+        LoginRateLimiter limiter = limiter(1000);
+        for (int i = 0; i < 1_000; i++) assertThat(limiter.check("client", "10.0.0.1")).isZero();
+
+        for (int i = 0; i < 3; i++) limiter.recordFailure("alice", "10.0.0.2");
+        assertThat(limiter.check("alice", "10.0.0.3")).isEqualTo(SECOND);
+        assertThat(limiter.check("client", "10.0.0.2")).isZero();
+        limiter.recordSuccess("alice");
+        assertThat(limiter.check("alice", "10.0.0.3")).isZero();
+
+        for (int i = 0; i < 7; i++) limiter.recordFailure("user" + i, "10.0.0.2");
+        assertThat(limiter.check("client", "10.0.0.2")).isPositive();
+        assertThat(limiter.tryAcquire("client", "10.0.0.2")).isPositive();
+        assertThat(limiter.check("client", "10.0.0.1")).isZero();
+    }
+
+    @Test
+    @DisplayName("an attempt refused by the username backoff does not use up the IP's budget")
+    void userRefusalRefundsIp() {
+        LoginRateLimiter limiter = limiter(1000);
+        for (int i = 0; i < 3; i++) limiter.tryAcquire("alice", "10.0.0.1");
+        for (int i = 0; i < 20; i++) assertThat(limiter.tryAcquire("alice", "10.0.0.1")).isPositive();
+
+        for (int i = 0; i < 7; i++) assertThat(limiter.tryAcquire("user" + i, "10.0.0.1")).isZero();
+        assertThat(limiter.tryAcquire("bob", "10.0.0.1")).isPositive();
+    }
+
+    @Test
+    @DisplayName("attempts slide out of the window over time")
+    void attemptsExpireWithWindow() {
+        LoginRateLimiter limiter = limiter(1000);
+        for (int i = 0; i < 10; i++) limiter.tryAcquire(null, "10.0.0.1");
+        assertThat(limiter.tryAcquire(null, "10.0.0.1")).isPositive();
+
+        now.addAndGet(WINDOW.toNanos() + WINDOW.toNanos() / 2);
+        assertThat(limiter.tryAcquire(null, "10.0.0.1")).isZero();
+
+        now.addAndGet(WINDOW.toNanos());
+        assertThat(limiter.tryAcquire(null, "10.0.0.1")).isZero();
+    }
+
+    @Test
+    @DisplayName("tracked keys are capped and idle keys are swept")
+    void trackedKeysAreBounded() {
+        LoginRateLimiter limiter = limiter(50);
+        for (int i = 0; i < 200; i++) limiter.tryAcquire("user" + i, null);
+        assertThat(limiter.trackedKeys()).isEqualTo(50);
+        assertThat(meterRegistry.get("school.login.throttle.untracked").counter().count()).isEqualTo(150);
+
+        now.addAndGet(2 * WINDOW.toNanos());
+        limiter.tryAcquire("late", null);
+        assertThat(limiter.trackedKeys()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("concurrent attempts are admitted exactly up to the budget, without locks")
+    void concurrentAttemptsAreAdmittedAtomically() throws Exception {
+        LoginRateLimiter limiter = new LoginRateLimiter(WINDOW, 5, 100, Duration.ofMinutes(1), Duration.ofMinutes(1),
+                10_000, meterRegistry, now::get);
+        int threads = 8;
+        int perThread = 5_000;
+        AtomicInteger ipAdmitted = new AtomicInteger();
+        AtomicInteger userAdmitted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        if (limiter.tryAcquire("user" + thread + "-" + i, "10.0.0.1") == 0) ipAdmitted.incrementAndGet();
+                        if (limiter.tryAcquire("alice", "10.1." + thread + "." + (i % 250)) == 0) userAdmitted.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        pool.shutdown();
+
+        assertThat(ipAdmitted).hasValue(100);
+        assertThat(userAdmitted).hasValue(5);
+    }
+}
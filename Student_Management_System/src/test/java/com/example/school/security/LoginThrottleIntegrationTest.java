@@ -0,0 +1,157 @@
+package com.example.school.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A minute of backoff keeps the per-username budget at exactly max-failures-per-user for the whole test
+@SpringBootTest(properties = "school.login-throttle.user-backoff=1m")
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class LoginThrottleIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @MockitoSpyBean
+    private SchoolUserDetailsService userDetailsService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        clearInvocations(userDetailsService);
+    }
+
+    @Test
+    @DisplayName("10k-attempt Basic flood from one IP reaches the user lookup at most max-failures-per-ip times")
+    void basicAuthFlood_isRejectedBeforeLookup() throws Exception {
+        int attempts = 10_000;
+        int throttled = 0;
+        for (int i = 0; i < attempts; i++) {
+            int status = mockMvc.perform(get("/api/auth/me")
+                            .with(httpBasic("victim_" + i, "guess"))
+                            .with(from("10.9.9.9")))
+                    .andReturn().getResponse().getStatus();
+            if (status == 429) throttled++;
+        }
+        verify(userDetailsService, atMost(20)).loadUserByUsername(anyString());
+        assertThat(throttled).isGreaterThanOrEqualTo(attempts - 20);
+
+        mockMvc.perform(get("/api/auth/me").with(httpBasic("test_teacher", "password")).with(from("10.9.9.10")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("a concurrent Basic flood from one IP overshoots max-failures-per-ip by at most what it has in flight")
+    void concurrentFloodFromOneIp_isBounded() throws Exception {
+        List<Integer> statuses = flood(16, 200, (thread, i) ->
+                get("/api/auth/me").with(httpBasic("victim_" + thread + "_" + i, "guess")).with(from("10.9.8.8")));
+
+        // Basic attempts are counted when they fail, so each thread can have one past the check as the budget runs out
+        verify(userDetailsService, atMost(20 + 16)).loadUserByUsername(anyString());
+        assertThat(statuses).filteredOn(status -> status != 429).hasSizeLessThanOrEqualTo(20 + 16);
+    }
+
+    @Test
+    @DisplayName("a busy Basic client with valid credentials is never throttled, however many calls it makes from one IP")
+    void legitimateBasicClient_isNotThrottled() throws Exception {
+        List<Integer> statuses = flood(16, 10, (thread, i) ->
+                get("/api/auth/me").with(httpBasic("test_teacher", "password")).with(from("10.9.7.7")));
+
+        assertThat(statuses).hasSize(160).containsOnly(200);
+    }
+
+    @Test
+    @DisplayName("a concurrent Basic flood on one username from many IPs gets about max-failures-per-user attempts, then backs off")
+    void concurrentFloodOnOneUser_isBounded() throws Exception {
+        List<Integer> statuses = flood(16, 50, (thread, i) ->
+                get("/api/auth/me").with(httpBasic("test_student", "guess")).with(from("10.7." + thread + "." + i)));
+
+        verify(userDetailsService, atMost(5 + 16)).loadUserByUsername("test_student");
+        assertThat(statuses).filteredOn(status -> status == 401).hasSizeLessThanOrEqualTo(5 + 16);
+        assertThat(statuses).filteredOn(status -> status == 429).hasSizeGreaterThanOrEqualTo(16 * 50 - 5 - 16);
+    }
+
+    @Test
+    @DisplayName("form login for one username is slowed down after max-failures-per-user from any IP")
+    void formLogin_throttledPerUsername() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(post("/login").param("username", "auth_test_teacher").param("password", "wrong")
+                            .with(from("10.8.0." + i)))
+                    .andExpect(status().is3xxRedirection());
+        }
+        mockMvc.perform(post("/login").param("username", "auth_test_teacher").param("password", "password")
+                        .with(from("10.8.1.1")))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "60"));
+        verify(userDetailsService, atMost(5)).loadUserByUsername("auth_test_teacher");
+    }
+
+    private List<Integer> flood(int threads, int perThread, AttemptFactory attempt) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<List<Integer>>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                tasks.add(() -> {
+                    List<Integer> statuses = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        statuses.add(mockMvc.perform(attempt.build(thread, i)).andReturn().getResponse().getStatus());
+                    }
+                    return statuses;
+                });
+            }
+            List<Integer> statuses = new ArrayList<>();
+            for (Future<List<Integer>> result : pool.invokeAll(tasks, 2, TimeUnit.MINUTES)) statuses.addAll(result.get());
+            return statuses;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface AttemptFactory {
+        MockHttpServletRequestBuilder build(int thread, int attempt);
+    }
+
+    private static RequestPostProcessor from(String ip) {
+        return request -> {
+            request.setRemoteAddr(ip);
+            return request;
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.school.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHasherTest {
+
+    private static final int POOL_SIZE = 2;
+    private static final int QUEUE_CAPACITY = 20;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+    private final PasswordHasher hasher = new PasswordHasher(encoder, POOL_SIZE, QUEUE_CAPACITY, Duration.ofSeconds(10), meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        hasher.shutdown();
+    }
+
+    @Test
+    @DisplayName("encode returns a hash the encoder can verify and records latency")
+    void encode_returnsVerifiableHash() {
+        String hash = hasher.encode("secret");
+
+        assertThat(encoder.matches("secret", hash)).isTrue();
+        assertThat(meterRegistry.get("school.password.hash").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("500 concurrent encodes: excess callers are rejected fast and queue depth stays bounded")
+    void concurrentEncodes_areBoundedAndRejectFast() throws Exception {
+        int callers = 500;
+        ExecutorService callerPool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicLong slowestRejectionNanos = new AtomicLong();
+        AtomicInteger maxQueueDepth = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                String raw = "password-" + i;
+                futures.add(callerPool.submit(() -> {
+                    start.await();
+                    long began = System.nanoTime();
+                    try {
+                        hasher.encode(raw);
+                        succeeded.incrementAndGet();
+                    } catch (PasswordHashingBusyException e) {
+                        rejected.incrementAndGet();
+                        slowestRejectionNanos.accumulateAndGet(System.nanoTime() - began, Math::max);
+                    }
+                    int depth = (int) meterRegistry.get("school.password.hash.queue").gauge().value();
+                    maxQueueDepth.accumulateAndGet(depth, Math::max);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        } finally {
+            callerPool.shutdownNow();
+        }
+
+        assertThat(succeeded.get() + rejected.get()).isEqualTo(callers);
+        assertThat(succeeded.get()).isGreaterThanOrEqualTo(POOL_SIZE + QUEUE_CAPACITY);
+        assertThat(rejected.get()).isPositive();
+        assertThat(maxQueueDepth.get()).isLessThanOrEqualTo(QUEUE_CAPACITY);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(slowestRejectionNanos.get())).isLessThan(1_000);
+        assertThat(meterRegistry.get("school.password.hash.rejected").counter().count()).isEqualTo(rejected.get());
+        assertThat(meterRegistry.get("school.password.hash").timer().count()).isEqualTo(succeeded.get());
+    }
+
+    @Test
+    @DisplayName("encode times out with busy exception when hashing takes too long")
+    void encode_timesOut() {
+        PasswordHasher slow = new PasswordHasher(new BCryptPasswordEncoder(16), 1, 1, Duration.ofMillis(50), new SimpleMeterRegistry());
+        try {
+            assertThatThrownBy(() -> slow.encode("secret")).isInstanceOf(PasswordHashingBusyException.class);
+        } finally {
+            slow.shutdown();
+        }
+    }
+}
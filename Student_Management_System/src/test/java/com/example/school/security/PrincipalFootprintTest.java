@@ -0,0 +1,117 @@
+package com.example.school.security;
+
+import com.example.school.entity.Role;
+import com.example.school.entity.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.ref.Reference;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * What a logged-in session keeps: the slim {@link SchoolUserDetails} holds no entity, no password once
+ * credentials are erased, and shares its authorities. The heap retained per session with 50k simulated
+ * sessions, against the previous principal wrapping the full {@link User} entity, is a benchmark.
+ */
+class PrincipalFootprintTest {
+
+    private static final int SESSIONS = 50_000;
+
+    @Test
+    @DisplayName("slim principal copies the fields it needs, keeps no entity, drops the password and shares authorities")
+    void slimPrincipalHoldsNoEntity() throws IllegalAccessException {
+        User user = user(1);
+        SchoolUserDetails principal = SchoolUserDetails.from(user);
+        for (Field field : SchoolUserDetails.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) continue;
+            assertThat(field.getType()).as(field.getName()).isIn(Long.class, String.class, Role.class);
+            field.setAccessible(true);
+            assertThat(field.get(principal)).as(field.getName()).isNotSameAs(user);
+        }
+        assertThat(principal.getUserId()).isEqualTo(user.getId());
+        assertThat(principal.getUsername()).isEqualTo(user.getUsername());
+        assertThat(principal.getRole()).isEqualTo(Role.STUDENT);
+
+        SecurityContextImpl session = session(principal);
+        assertThat(session.getAuthentication().getPrincipal()).isSameAs(principal);
+        assertThat(principal.getPassword()).isNull();
+        assertThat(principal.getAuthorities()).isSameAs(SchoolUserDetails.from(user(2)).getAuthorities());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("benchmark: slim principal retains less heap per session than the entity-backed one")
+    void slimPrincipalIsSmaller() {
+        retainedBytesPerSession(i -> session(new EntityBackedPrincipal(user(i)))); // warm up class loading and JIT
+        long entityBacked = retainedBytesPerSession(i -> session(new EntityBackedPrincipal(user(i))));
+        long slim = retainedBytesPerSession(i -> session(SchoolUserDetails.from(user(i))));
+        assertThat(slim).isLessThan(entityBacked * 3 / 4);
+    }
+
+    /** What a successful login leaves in the session; credentials are erased as ProviderManager does. */
+    private static SecurityContextImpl session(UserDetails principal) {
+        UsernamePasswordAuthenticationToken token =
+                UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities());
+        token.eraseCredentials();
+        return new SecurityContextImpl(token);
+    }
+
+    /** A freshly loaded row, as each login reads its own copy of the user. */
+    private static User user(int i) {
+        User user = new User();
+        user.setId((long) i + 1_000);
+        user.setUsername("student" + i);
+        user.setPassword("$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fq" + String.format("%05d", i));
+        user.setName("Student Number " + i);
+        user.setEmail("student" + i + "@school.example.com");
+        user.setGrade("Grade " + (i % 12 + 1));
+        user.setRole(Role.STUDENT);
+        return user;
+    }
+
+    private static long retainedBytesPerSession(IntFunction<Object> newSession) {
+        Object[] sessions = new Object[SESSIONS];
+        long before = usedHeapAfterGc();
+        for (int i = 0; i < SESSIONS; i++) sessions[i] = newSession.apply(i);
+        long after = usedHeapAfterGc();
+        Reference.reachabilityFence(sessions);
+        return (after - before) / SESSIONS;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /** The principal as it was before: a wrapper holding the whole entity for the session's lifetime. */
+    private record EntityBackedPrincipal(User user) implements UserDetails {
+
+        @Override
+        public Collection<? extends GrantedAuthority> getAuthorities() {
+            return List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
+        }
+
+        @Override
+        public String getPassword() {
+            return user.getPassword();
+        }
+
+        @Override
+        public String getUsername() {
+            return user.getUsername();
+        }
+    }
+}
@@ -16,6 +16,7 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -64,6 +65,24 @@ class SchoolUserDetailsServiceTest {
         assertThat(details.getAuthorities()).extracting("authority").contains("ROLE_STUDENT");
     }
 
+    @Test
+    @DisplayName("updatePassword stores the upgraded hash")
+    void updatePassword_savesNewHash() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("teacher1");
+        user.setPassword("$2a$10$old");
+        user.setRole(Role.TEACHER);
+        when(userRepository.findByUsername("teacher1")).thenReturn(Optional.of(user));
+        when(userRepository.save(any(User.class))).thenAnswer(i -> i.getArgument(0));
+
+        UserDetails details = userDetailsService.updatePassword(SchoolUserDetails.from(user), "{bcrypt}$2a$12$new");
+
+        assertThat(user.getPassword()).isEqualTo("{bcrypt}$2a$12$new");
+        assertThat(details.getPassword()).isEqualTo("{bcrypt}$2a$12$new");
+        verify(userRepository).save(user);
+    }
+
     @Test
     @DisplayName("loadUserByUsername throws when user not found")
     void loadUserByUsername_userNotFound_throws() {
@@ -1,9 +1,16 @@
 package com.example.school.service;
 
+import com.example.school.cache.ChangeEvent;
+import com.example.school.cache.InvalidationBus;
+import com.example.school.cache.LocalCache;
+import com.example.school.dto.CreateClassRequest;
+import com.example.school.dto.EnrolledClass;
+import com.example.school.dto.UpdateClassRequest;
 import com.example.school.entity.*;
 import com.example.school.repository.EnrollmentRepository;
 import com.example.school.repository.SchoolClassRepository;
 import com.example.school.repository.UserRepository;
+import com.example.school.security.ClassOwnership;
 import com.example.school.security.SchoolUserDetails;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -18,9 +25,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,6 +47,18 @@ class ClassServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private InvalidationBus invalidationBus;
+
+    @Mock
+    private LocalCache<Long, ClassService.ClassSummary> classSummaryCache;
+
+    @Mock
+    private ChangeFeedService changeFeedService;
+
+    @Mock
+    private ClassOwnership classOwnership;
+
     @InjectMocks
     private ClassService classService;
 
@@ -51,14 +75,14 @@ class ClassServiceTest {
         teacher.setUsername("teacher1");
         teacher.setRole(Role.TEACHER);
         teacher.setName("Teacher");
-        teacherDetails = new SchoolUserDetails(teacher);
+        teacherDetails = SchoolUserDetails.from(teacher);
 
         student = new User();
         student.setId(2L);
         student.setUsername("student1");
         student.setRole(Role.STUDENT);
         student.setName("Student");
-        studentDetails = new SchoolUserDetails(student);
+        studentDetails = SchoolUserDetails.from(student);
 
         schoolClass = new SchoolClass();
         schoolClass.setId(10L);
@@ -68,23 +92,37 @@ class ClassServiceTest {
     }
 
     @Nested
-    @DisplayName("findClassesForCurrentUser")
-    class FindClassesForCurrentUser {
+    @DisplayName("findClassPage")
+    class FindClassPage {
         @Test
-        @DisplayName("teacher gets their classes")
-        void teacherGetsTheirClasses() {
-            when(userRepository.findById(1L)).thenReturn(Optional.of(teacher));
-            when(schoolClassRepository.findByTeacherOrderByName(teacher)).thenReturn(List.of(schoolClass));
-            List<SchoolClass> result = classService.findClassesForCurrentUser(teacherDetails);
-            assertThat(result).containsExactly(schoolClass);
+        @DisplayName("teacher pages only their own classes, whatever teacherId is asked for")
+        void teacherPagesOwnClasses() {
+            when(schoolClassRepository.findPage(eq(1L), isNull(), eq(""), eq(0L), any())).thenReturn(List.of(schoolClass));
+            KeysetPage<SchoolClass> page = classService.findClassPage(teacherDetails, 99L, null, KeysetPage.Key.FIRST, 10);
+            assertThat(page.items()).containsExactly(schoolClass);
+            assertThat(page.hasNext()).isFalse();
+        }
+
+        @Test
+        @DisplayName("student pages the catalog; an extra row means a next page keyed on the last item")
+        void studentPagesCatalog() {
+            SchoolClass second = new SchoolClass();
+            second.setId(11L);
+            second.setName("Math 102");
+            when(schoolClassRepository.findPage(isNull(), eq("ma!_th%"), eq("Art"), eq(5L), any()))
+                    .thenReturn(List.of(schoolClass, second));
+            KeysetPage<SchoolClass> page = classService.findClassPage(studentDetails, null, " Ma_th", new KeysetPage.Key("Art", 5L), 1);
+            assertThat(page.items()).containsExactly(schoolClass);
+            assertThat(page.next()).isEqualTo(new KeysetPage.Key("Math 101", 10L));
         }
 
         @Test
-        @DisplayName("student gets all classes")
-        void studentGetsAllClasses() {
-            when(schoolClassRepository.findAllByOrderByName()).thenReturn(List.of(schoolClass));
-            List<SchoolClass> result = classService.findClassesForCurrentUser(studentDetails);
-            assertThat(result).containsExactly(schoolClass);
+        @DisplayName("page keys survive an encode/decode round trip; foreign tokens are rejected")
+        void keyRoundTrip() {
+            KeysetPage.Key key = new KeysetPage.Key("Intro: 1/2 ?&", 42L);
+            assertThat(KeysetPage.Key.decode(key.encode())).contains(key);
+            assertThat(KeysetPage.Key.decode("not base64!")).isEmpty();
+            assertThat(KeysetPage.Key.decode("bm9jb2xvbg")).isEmpty();
         }
     }
 
@@ -106,6 +144,21 @@ class ClassServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("findSummary")
+    class FindSummary {
+        @Test
+        @DisplayName("loads through the node cache")
+        @SuppressWarnings("unchecked")
+        void loadsThroughCache() {
+            when(classSummaryCache.get(eq(10L), any())).thenAnswer(i ->
+                    ((Function<Long, Optional<ClassService.ClassSummary>>) i.getArgument(1)).apply(10L));
+            when(schoolClassRepository.findById(10L)).thenReturn(Optional.of(schoolClass));
+            assertThat(classService.findSummary(10L))
+                    .contains(new ClassService.ClassSummary(10L, "Math 101", "Algebra", 1L, "Teacher"));
+        }
+    }
+
     @Nested
     @DisplayName("createClass")
     class CreateClass {
@@ -114,7 +167,7 @@ class ClassServiceTest {
         void teacherCanCreateClass() {
             when(userRepository.findById(1L)).thenReturn(Optional.of(teacher));
             when(schoolClassRepository.save(any(SchoolClass.class))).thenReturn(schoolClass);
-            Map<String, Object> body = Map.of("name", "Math 101", "description", "Algebra");
+            CreateClassRequest body = new CreateClassRequest("Math 101", "Algebra");
             Optional<SchoolClass> result = classService.createClass(body, teacherDetails);
             assertThat(result).isPresent();
             verify(schoolClassRepository).save(any(SchoolClass.class));
@@ -124,7 +177,7 @@ class ClassServiceTest {
         @DisplayName("non-teacher cannot create class")
         void nonTeacherCannotCreateClass() {
             Optional<SchoolClass> result = classService.createClass(
-                    Map.of("name", "Math", "description", "x"),
+                    new CreateClassRequest("Math", "x"),
                     studentDetails
             );
             assertThat(result).isEmpty();
@@ -135,7 +188,7 @@ class ClassServiceTest {
         void blankNameReturnsEmpty() {
             when(userRepository.findById(1L)).thenReturn(Optional.of(teacher));
             Optional<SchoolClass> result = classService.createClass(
-                    Map.of("name", "   ", "description", "x"),
+                    new CreateClassRequest("   ", "x"),
                     teacherDetails
             );
             assertThat(result).isEmpty();
@@ -148,23 +201,46 @@ class ClassServiceTest {
         @Test
         @DisplayName("teacher can update own class")
         void teacherCanUpdateOwnClass() {
+            when(classOwnership.isOwner(10L, teacherDetails)).thenReturn(true);
             when(schoolClassRepository.findById(10L)).thenReturn(Optional.of(schoolClass));
             when(schoolClassRepository.save(any(SchoolClass.class))).thenReturn(schoolClass);
-            Map<String, Object> updates = Map.of("name", "Updated Math", "description", "New desc");
+            UpdateClassRequest updates = new UpdateClassRequest("Updated Math", Optional.of("New desc"));
             Optional<SchoolClass> result = classService.updateClass(10L, updates, teacherDetails);
             assertThat(result).isPresent();
             assertThat(schoolClass.getName()).isEqualTo("Updated Math");
+            verify(invalidationBus).publish(argThat(e -> e.type() == ChangeEvent.EntityType.CLASS && e.id() == 10L));
+        }
+
+        @Test
+        @DisplayName("absent fields are left unchanged")
+        void absentFieldsAreUnchanged() {
+            when(classOwnership.isOwner(10L, teacherDetails)).thenReturn(true);
+            when(schoolClassRepository.findById(10L)).thenReturn(Optional.of(schoolClass));
+            when(schoolClassRepository.save(any(SchoolClass.class))).thenReturn(schoolClass);
+            classService.updateClass(10L, new UpdateClassRequest(null, Optional.of("New desc")), teacherDetails);
+            assertThat(schoolClass.getName()).isEqualTo("Math 101");
+            assertThat(schoolClass.getDescription()).isEqualTo("New desc");
+        }
+
+        @Test
+        @DisplayName("explicit null clears the description")
+        void explicitNullClearsDescription() {
+            schoolClass.setDescription("Old desc");
+            when(classOwnership.isOwner(10L, teacherDetails)).thenReturn(true);
+            when(schoolClassRepository.findById(10L)).thenReturn(Optional.of(schoolClass));
+            when(schoolClassRepository.save(any(SchoolClass.class))).thenReturn(schoolClass);
+            classService.updateClass(10L, new UpdateClassRequest(null, Optional.empty()), teacherDetails);
+            assertThat(schoolClass.getName()).isEqualTo("Math 101");
+            assertThat(schoolClass.getDescription()).isNull();
         }
 
         @Test
         @DisplayName("returns empty when class not owned by teacher")
         void returnsEmptyWhenNotOwned() {
-            User otherTeacher = new User();
-            otherTeacher.setId(99L);
-            schoolClass.setTeacher(otherTeacher);
-            when(schoolClassRepository.findById(10L)).thenReturn(Optional.of(schoolClass));
-            Optional<SchoolClass> result = classService.updateClass(10L, Map.of("name", "x"), teacherDetails);
+            when(classOwnership.isOwner(10L, teacherDetails)).thenReturn(false);
+            Optional<SchoolClass> result = classService.updateClass(10L, new UpdateClassRequest("x", null), teacherDetails);
             assertThat(result).isEmpty();
+            verifyNoInteractions(invalidationBus, schoolClassRepository);
         }
     }
 
@@ -174,21 +250,57 @@ class ClassServiceTest {
         @Test
         @DisplayName("teacher can delete own class")
         void teacherCanDeleteOwnClass() {
-            when(schoolClassRepository.findById(10L)).thenReturn(Optional.of(schoolClass));
+            when(classOwnership.isOwner(10L, teacherDetails)).thenReturn(true);
+            when(schoolClassRepository.deleteClassById(10L)).thenReturn(1);
             boolean result = classService.deleteClass(10L, teacherDetails);
             assertThat(result).isTrue();
-            verify(schoolClassRepository).delete(schoolClass);
+            verify(enrollmentRepository).deleteBySchoolClassId(10L);
+            verify(schoolClassRepository, never()).findById(any());
+            verify(changeFeedService).record(OutboxEvent.Type.CLASS_DELETED, 10L, null);
         }
 
         @Test
         @DisplayName("returns false when not owner")
         void returnsFalseWhenNotOwner() {
-            User other = new User();
-            other.setId(99L);
-            schoolClass.setTeacher(other);
-            when(schoolClassRepository.findById(10L)).thenReturn(Optional.of(schoolClass));
+            when(classOwnership.isOwner(10L, teacherDetails)).thenReturn(false);
             boolean result = classService.deleteClass(10L, teacherDetails);
             assertThat(result).isFalse();
+            verifyNoInteractions(enrollmentRepository, schoolClassRepository, changeFeedService);
+        }
+    }
+
+    @Nested
+    @DisplayName("rollOver")
+    class RollOver {
+        @Test
+        @DisplayName("copies owned classes and their rosters set-based")
+        void copiesOwnedClasses() {
+            when(schoolClassRepository.countByIdInAndTeacher_Id(Set.of(10L), 1L)).thenReturn(1L);
+            when(schoolClassRepository.insertRolloverCopies(Set.of(10L), 1L, " 2027")).thenReturn(Map.of(11L, 10L));
+            when(enrollmentRepository.copyEnrollmentsFromRolloverSources(Set.of(11L))).thenReturn(3);
+
+            Optional<ClassService.Rollover> result = classService.rollOver(List.of(10L, 10L), " 2027 ", teacherDetails);
+
+            assertThat(result).contains(new ClassService.Rollover(Map.of(11L, 10L), 3));
+            verify(schoolClassRepository).recountEnrollments(Set.of(11L));
+            verify(changeFeedService).recordAllEnrolled(Set.of(11L));
+            verify(invalidationBus).publish(argThat(e -> e.type() == ChangeEvent.EntityType.ENROLLMENT && e.id() == 11L));
+        }
+
+        @Test
+        @DisplayName("copies nothing when any class is not the teacher's")
+        void returnsEmptyWhenNotOwner() {
+            when(schoolClassRepository.countByIdInAndTeacher_Id(Set.of(10L, 20L), 1L)).thenReturn(1L);
+
+            assertThat(classService.rollOver(List.of(10L, 20L), null, teacherDetails)).isEmpty();
+            verify(schoolClassRepository, never()).insertRolloverCopies(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("student cannot roll over")
+        void studentCannotRollOver() {
+            assertThat(classService.rollOver(List.of(10L), null, studentDetails)).isEmpty();
+            verifyNoInteractions(schoolClassRepository);
         }
     }
 
@@ -204,6 +316,8 @@ class ClassServiceTest {
             when(enrollmentRepository.save(any(Enrollment.class))).thenAnswer(i -> i.getArgument(0));
             boolean result = classService.enroll(10L, studentDetails);
             assertThat(result).isTrue();
+            verify(schoolClassRepository).adjustEnrollmentCount(10L, 1);
+            verify(changeFeedService).record(OutboxEvent.Type.ENROLLED, 10L, 2L);
         }
 
         @Test
@@ -222,6 +336,7 @@ class ClassServiceTest {
             boolean result = classService.enroll(10L, studentDetails);
             assertThat(result).isTrue();
             verify(enrollmentRepository, never()).save(any());
+            verify(schoolClassRepository, never()).adjustEnrollmentCount(any(), anyInt());
         }
     }
 
@@ -231,16 +346,23 @@ class ClassServiceTest {
         @Test
         @DisplayName("student can unenroll")
         void studentCanUnenroll() {
-            Enrollment enrollment = new Enrollment();
-            enrollment.setStudent(student);
-            enrollment.setSchoolClass(schoolClass);
-            when(userRepository.findById(2L)).thenReturn(Optional.of(student));
-            when(schoolClassRepository.findById(10L)).thenReturn(Optional.of(schoolClass));
-            when(enrollmentRepository.findByStudentAndSchoolClass(student, schoolClass))
-                    .thenReturn(Optional.of(enrollment));
+            when(enrollmentRepository.deleteByClassIdAndStudentId(10L, 2L)).thenReturn(1);
             boolean result = classService.unenroll(10L, studentDetails);
             assertThat(result).isTrue();
-            verify(enrollmentRepository).delete(enrollment);
+            verify(schoolClassRepository).adjustEnrollmentCount(10L, -1);
+            verify(changeFeedService).record(OutboxEvent.Type.UNENROLLED, 10L, 2L);
+            verify(invalidationBus).publish(argThat(e -> e.type() == ChangeEvent.EntityType.ENROLLMENT && e.id() == 10L));
+            verifyNoInteractions(userRepository);
+            verifyNoMoreInteractions(schoolClassRepository);
+        }
+
+        @Test
+        @DisplayName("not enrolled: returns false and records nothing")
+        void notEnrolledReturnsFalse() {
+            when(enrollmentRepository.deleteByClassIdAndStudentId(10L, 2L)).thenReturn(0);
+            boolean result = classService.unenroll(10L, studentDetails);
+            assertThat(result).isFalse();
+            verifyNoInteractions(changeFeedService, invalidationBus, schoolClassRepository);
         }
 
         @Test
@@ -257,12 +379,10 @@ class ClassServiceTest {
         @Test
         @DisplayName("returns enrolled class ids for student")
         void returnsEnrolledClassIds() {
-            Enrollment e = new Enrollment();
-            e.setSchoolClass(schoolClass);
-            when(userRepository.findById(2L)).thenReturn(Optional.of(student));
-            when(enrollmentRepository.findByStudentOrderBySchoolClass_Name(student)).thenReturn(List.of(e));
+            when(enrollmentRepository.findClassIdsByStudentId(2L)).thenReturn(List.of(10L));
             Set<Long> result = classService.enrolledClassIdsForStudent(studentDetails);
             assertThat(result).containsExactly(10L);
+            verifyNoInteractions(userRepository);
         }
 
         @Test
@@ -274,36 +394,45 @@ class ClassServiceTest {
     }
 
     @Nested
-    @DisplayName("enrollmentCountByClassId")
-    class EnrollmentCountByClassId {
+    @DisplayName("findEnrolledClassPage")
+    class FindEnrolledClassPage {
+        @Test
+        @DisplayName("student gets a page of their classes from the projection")
+        void studentGetsProjectedPage() {
+            EnrolledClass row = new EnrolledClass(10L, "Math 101", "Teacher");
+            when(enrollmentRepository.findEnrolledClassPage(eq(2L), eq(""), eq(0L), any())).thenReturn(List.of(row));
+            KeysetPage<EnrolledClass> page = classService.findEnrolledClassPage(studentDetails, KeysetPage.Key.FIRST, 20);
+            assertThat(page.items()).containsExactly(row);
+            verifyNoInteractions(userRepository, schoolClassRepository);
+        }
+
         @Test
-        @DisplayName("returns count per class")
-        void returnsCountPerClass() {
-            when(enrollmentRepository.findBySchoolClass(schoolClass)).thenReturn(List.of(new Enrollment(), new Enrollment()));
-            Map<Long, Long> result = classService.enrollmentCountByClassId(List.of(schoolClass));
-            assertThat(result).containsEntry(10L, 2L);
+        @DisplayName("teacher gets an empty page")
+        void teacherGetsEmptyPage() {
+            assertThat(classService.findEnrolledClassPage(teacherDetails, KeysetPage.Key.FIRST, 20).items()).isEmpty();
+            verifyNoInteractions(enrollmentRepository);
         }
     }
 
     @Nested
-    @DisplayName("findEnrolledStudentsByClassId")
-    class FindEnrolledStudentsByClassId {
+    @DisplayName("findEnrolledStudentPage")
+    class FindEnrolledStudentPage {
         @Test
-        @DisplayName("teacher gets enrolled students")
-        void teacherGetsEnrolledStudents() {
-            Enrollment e = new Enrollment();
-            e.setStudent(student);
-            when(schoolClassRepository.findById(10L)).thenReturn(Optional.of(schoolClass));
-            when(enrollmentRepository.findBySchoolClassWithStudents(schoolClass)).thenReturn(List.of(e));
-            List<User> result = classService.findEnrolledStudentsByClassId(10L, teacherDetails);
-            assertThat(result).containsExactly(student);
+        @DisplayName("owner gets a page of enrolled students")
+        void ownerGetsEnrolledStudents() {
+            when(classOwnership.isOwner(10L, teacherDetails)).thenReturn(true);
+            when(enrollmentRepository.findStudentPage(eq(10L), isNull(), eq(""), eq(0L), any())).thenReturn(List.of(student));
+            KeysetPage<User> page = classService.findEnrolledStudentPage(10L, teacherDetails, null, KeysetPage.Key.FIRST, 50);
+            assertThat(page.items()).containsExactly(student);
+            assertThat(page.hasNext()).isFalse();
         }
 
         @Test
-        @DisplayName("non-teacher gets empty list")
-        void nonTeacherGetsEmptyList() {
-            List<User> result = classService.findEnrolledStudentsByClassId(10L, studentDetails);
-            assertThat(result).isEmpty();
+        @DisplayName("non-owner gets an empty page without a roster query")
+        void nonOwnerGetsEmptyPage() {
+            KeysetPage<User> page = classService.findEnrolledStudentPage(10L, studentDetails, null, KeysetPage.Key.FIRST, 50);
+            assertThat(page.items()).isEmpty();
+            verifyNoInteractions(enrollmentRepository);
         }
     }
 
@@ -313,14 +442,23 @@ class ClassServiceTest {
         @Test
         @DisplayName("teacher can remove student from class")
         void teacherCanRemoveStudent() {
-            Enrollment enrollment = new Enrollment();
-            when(schoolClassRepository.findById(10L)).thenReturn(Optional.of(schoolClass));
-            when(userRepository.findById(2L)).thenReturn(Optional.of(student));
-            when(enrollmentRepository.findByStudentAndSchoolClass(student, schoolClass))
-                    .thenReturn(Optional.of(enrollment));
+            when(enrollmentRepository.deleteByClassIdAndStudentIdForTeacher(10L, 2L, 1L)).thenReturn(1);
             boolean result = classService.removeStudentFromClass(10L, 2L, teacherDetails);
             assertThat(result).isTrue();
-            verify(enrollmentRepository).delete(enrollment);
+            verify(schoolClassRepository).adjustEnrollmentCount(10L, -1);
+            verify(changeFeedService).record(OutboxEvent.Type.UNENROLLED, 10L, 2L);
+            verify(invalidationBus).publish(argThat(e -> e.type() == ChangeEvent.EntityType.ENROLLMENT && e.id() == 10L));
+            verifyNoInteractions(userRepository);
+            verifyNoMoreInteractions(schoolClassRepository);
+        }
+
+        @Test
+        @DisplayName("class not owned or student not enrolled: returns false and records nothing")
+        void nothingMatchedReturnsFalse() {
+            when(enrollmentRepository.deleteByClassIdAndStudentIdForTeacher(10L, 2L, 1L)).thenReturn(0);
+            boolean result = classService.removeStudentFromClass(10L, 2L, teacherDetails);
+            assertThat(result).isFalse();
+            verifyNoInteractions(changeFeedService, invalidationBus, schoolClassRepository);
         }
 
         @Test
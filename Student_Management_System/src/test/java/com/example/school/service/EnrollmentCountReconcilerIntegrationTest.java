@@ -0,0 +1,181 @@
+package com.example.school.service;
+
+import com.example.school.entity.Role;
+import com.example.school.repository.SchoolClassRepository;
+import com.example.school.security.SchoolUserDetails;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code school_classes.enrollment_count} follows enrollments made through {@link ClassService}, and
+ * the reconciler brings drifted counts back to the enrollment rows, batch by batch, without losing
+ * enrollments that commit while it runs.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class EnrollmentCountReconcilerIntegrationTest {
+
+    private static final String PASSWORD_HASH = "$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fqvM/BG";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClassService classService;
+
+    @Autowired
+    private SchoolClassRepository schoolClassRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private Long teacherId;
+
+    @BeforeEach
+    void setUp() {
+        teacherId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'test_teacher'", Long.class);
+    }
+
+    private EnrollmentCountReconciler reconciler(int batchSize) {
+        return new EnrollmentCountReconciler(schoolClassRepository, transactionManager, batchSize, meterRegistry);
+    }
+
+    private Long insertClass(String name, int storedCount) {
+        jdbcTemplate.update("INSERT INTO school_classes (name, teacher_id, enrollment_count) VALUES (?, ?, ?)",
+                name, teacherId, storedCount);
+        return jdbcTemplate.queryForObject("SELECT id FROM school_classes WHERE name = ?", Long.class, name);
+    }
+
+    private List<SchoolUserDetails> insertStudents(int count) {
+        List<SchoolUserDetails> students = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String username = "count_student_" + i;
+            jdbcTemplate.update("INSERT INTO users (username, password, name, role) VALUES (?, ?, ?, 'STUDENT')",
+                    username, PASSWORD_HASH, "Count Student " + i);
+            Long id = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, username);
+            students.add(new SchoolUserDetails(id, username, "Count Student " + i, Role.STUDENT, null));
+        }
+        return students;
+    }
+
+    private void insertEnrollments(Long classId, List<SchoolUserDetails> students) {
+        for (SchoolUserDetails s : students) {
+            jdbcTemplate.update("INSERT INTO enrollments (student_id, school_class_id) VALUES (?, ?)", s.getUserId(), classId);
+        }
+    }
+
+    private int storedCount(Long classId) {
+        return jdbcTemplate.queryForObject("SELECT enrollment_count FROM school_classes WHERE id = ?", Integer.class, classId);
+    }
+
+    private int actualCount(Long classId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM enrollments WHERE school_class_id = ?", Integer.class, classId);
+    }
+
+    @Test
+    @DisplayName("enroll, unenroll and teacher removal keep the stored count in step")
+    void serviceKeepsCountInStep() {
+        Long classId = insertClass("Counted", 0);
+        List<SchoolUserDetails> students = insertStudents(3);
+        SchoolUserDetails teacher = new SchoolUserDetails(teacherId, "test_teacher", "Test Teacher", Role.TEACHER, null);
+
+        students.forEach(s -> classService.enroll(classId, s));
+        classService.enroll(classId, students.get(0));
+        assertThat(storedCount(classId)).isEqualTo(3);
+
+        classService.unenroll(classId, students.get(0));
+        classService.unenroll(classId, students.get(0));
+        classService.removeStudentFromClass(classId, students.get(1).getUserId(), teacher);
+        assertThat(storedCount(classId)).isEqualTo(1);
+        assertThat(classService.countEnrollments(classId)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("reconcile fixes drifted counts across batches, leaves correct ones alone, and counts the repairs")
+    void reconcileRepairsDrift() {
+        List<SchoolUserDetails> students = insertStudents(4);
+        Long missedInserts = insertClass("Drift A", 0);
+        insertEnrollments(missedInserts, students);
+        Long overCounted = insertClass("Drift B", 7);
+        Long correct = insertClass("Drift C", 2);
+        insertEnrollments(correct, students.subList(0, 2));
+        Long negative = insertClass("Drift D", -1);
+
+        int fixed = reconciler(2).reconcile();
+
+        assertThat(fixed).isEqualTo(3);
+        assertThat(storedCount(missedInserts)).isEqualTo(4);
+        assertThat(storedCount(overCounted)).isZero();
+        assertThat(storedCount(correct)).isEqualTo(2);
+        assertThat(storedCount(negative)).isZero();
+        assertThat(meterRegistry.get("school.enrollments.count.repaired").counter().count()).isEqualTo(3);
+        assertThat(reconciler(2).reconcile()).isZero();
+    }
+
+    @Test
+    @DisplayName("enrollments committed while the reconciler runs are not lost")
+    void reconcileDoesNotLoseConcurrentEnrollments() throws Exception {
+        int classCount = 6;
+        List<Long> classIds = new ArrayList<>();
+        for (int i = 0; i < classCount; i++) classIds.add(insertClass("Busy " + i, 0));
+        List<SchoolUserDetails> students = insertStudents(20);
+
+        EnrollmentCountReconciler reconciler = reconciler(2);
+        AtomicBoolean enrolling = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < 3; w++) {
+                List<SchoolUserDetails> mine = students.subList(w * 6, w * 6 + 6);
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    for (SchoolUserDetails s : mine) {
+                        for (Long classId : classIds) {
+                            classService.enroll(classId, s);
+                            if (s.getUserId() % 2 == 0) classService.unenroll(classId, s);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            Future<?> reconciling = pool.submit(() -> {
+                start.await();
+                do reconciler.reconcile(); while (enrolling.get());
+                return null;
+            });
+            start.countDown();
+            for (Future<?> f : writers) f.get(60, TimeUnit.SECONDS);
+            enrolling.set(false);
+            reconciling.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (Long classId : classIds) {
+            assertThat(storedCount(classId)).as("class %d", classId).isEqualTo(actualCount(classId));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.school.service;
+
+import com.example.school.cache.InvalidationBus;
+import com.example.school.entity.Role;
+import com.example.school.entity.User;
+import com.example.school.repository.SchoolClassRepository;
+import com.example.school.repository.UserRepository;
+import com.example.school.security.SchoolUserDetails;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SearchServiceTest {
+
+    private static final long BUSY_TEACHER = 1;
+    private static final long OTHER_TEACHER = 2;
+    /** Classes of the busy teacher, all under the prefix the other teacher types. */
+    private static final int BUSY_CLASSES = 100_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SearchService searchService;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= BUSY_CLASSES; id++) rows.add(new Object[]{id, "Algebra " + id % 100, null, BUSY_TEACHER});
+        for (long id = BUSY_CLASSES + 1; id <= BUSY_CLASSES + 3; id++) rows.add(new Object[]{id, "Astronomy " + id, null, OTHER_TEACHER});
+
+        UserRepository userRepository = mock(UserRepository.class);
+        SchoolClassRepository schoolClassRepository = mock(SchoolClassRepository.class);
+        when(userRepository.findSearchRowsAfter(eq(Role.STUDENT), anyLong(), any())).thenReturn(List.of());
+        when(schoolClassRepository.findSearchRowsAfter(anyLong(), any())).thenAnswer(inv -> {
+            // Ids run from 1 in row order
+            int after = (int) (long) inv.<Long>getArgument(0);
+            return rows.subList(after, Math.min(rows.size(), after + inv.<Limit>getArgument(1).max()));
+        });
+        searchService = new SearchService(userRepository, schoolClassRepository, mock(InvalidationBus.class), meterRegistry);
+        searchService.loadIndexes();
+        while (meterRegistry.get("school.search.documents").tag("index", "classes").gauge().value() < rows.size()) {
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        searchService.shutdown();
+    }
+
+    private static SchoolUserDetails teacher(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("teacher" + id);
+        user.setRole(Role.TEACHER);
+        return SchoolUserDetails.from(user);
+    }
+
+    @Test
+    @DisplayName("a teacher's one-letter search does not walk another teacher's 100k classes")
+    void teacherSearchWalksOwnClassesOnly() {
+        SchoolUserDetails other = teacher(OTHER_TEACHER);
+        assertThat(searchService.searchClasses("a", 10, other))
+                .extracting(SearchService.ClassHit::teacherId).containsOnly(OTHER_TEACHER).hasSize(3);
+
+        // Filtering the shared index walked every "algebra" posting first: milliseconds per search
+        long started = System.nanoTime();
+        for (int i = 0; i < 1_000; i++) assertThat(searchService.searchClasses("a", 10, other)).hasSize(3);
+        assertThat(System.nanoTime() - started).isLessThan(1_000_000_000L);
+
+        assertThat(searchService.searchClasses("a", 10, teacher(BUSY_TEACHER)))
+                .extracting(SearchService.ClassHit::teacherId).containsOnly(BUSY_TEACHER).hasSize(10);
+        assertThat(searchService.searchClasses("a", 10, teacher(3))).isEmpty();
+    }
+}
@@ -1,27 +1,37 @@
 package com.example.school.service;
 
+import com.example.school.cache.ChangeEvent;
+import com.example.school.cache.InvalidationBus;
+import com.example.school.dto.CreateStudentRequest;
+import com.example.school.dto.UpdateStudentRequest;
 import com.example.school.entity.Role;
 import com.example.school.entity.User;
+import com.example.school.repository.EnrollmentRepository;
+import com.example.school.repository.SchoolClassRepository;
 import com.example.school.repository.UserRepository;
+import com.example.school.security.PasswordHasher;
 import com.example.school.security.SchoolUserDetails;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,7 +41,19 @@ class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private EnrollmentRepository enrollmentRepository;
+
+    @Mock
+    private SchoolClassRepository schoolClassRepository;
+
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @Mock
+    private InvalidationBus invalidationBus;
+
+    @Mock
+    private ChangeFeedService changeFeedService;
 
     @InjectMocks
     private UserService userService;
@@ -48,14 +70,14 @@ class UserServiceTest {
         teacher.setUsername("teacher1");
         teacher.setRole(Role.TEACHER);
         teacher.setName("Teacher One");
-        teacherDetails = new SchoolUserDetails(teacher);
+        teacherDetails = SchoolUserDetails.from(teacher);
 
         student = new User();
         student.setId(2L);
         student.setUsername("student1");
         student.setRole(Role.STUDENT);
         student.setName("Student One");
-        studentDetails = new SchoolUserDetails(student);
+        studentDetails = SchoolUserDetails.from(student);
     }
 
     @Nested
@@ -126,30 +148,42 @@ class UserServiceTest {
         @DisplayName("teacher can create student")
         void teacherCanCreateStudent() {
             when(userRepository.findByUsername("newuser")).thenReturn(Optional.empty());
-            when(passwordEncoder.encode(anyString())).thenReturn("encoded");
             User saved = new User();
             saved.setId(10L);
             saved.setUsername("newuser");
             saved.setRole(Role.STUDENT);
             when(userRepository.save(any(User.class))).thenReturn(saved);
 
-            Map<String, Object> body = Map.of(
-                    "username", "newuser",
-                    "password", "secret",
-                    "name", "New User"
-            );
-            Optional<User> result = userService.createStudent(body, teacherDetails);
+            CreateStudentRequest body = new CreateStudentRequest("newuser", "secret", "New User", null, null);
+            Optional<User> result = userService.createStudent(body, "encoded", teacherDetails);
 
             assertThat(result).isPresent();
             assertThat(result.get().getUsername()).isEqualTo("newuser");
-            verify(userRepository).save(any(User.class));
+            verify(userRepository).save(argThat(u -> "encoded".equals(u.getPassword())));
+            verifyNoInteractions(passwordHasher);
+        }
+
+        @Test
+        @DisplayName("the password is hashed for teachers only, with a default when none is given")
+        void hashPasswordFor() {
+            when(passwordHasher.encode(anyString())).thenAnswer(inv -> "hash:" + inv.getArgument(0));
+
+            assertThat(userService.hashPasswordFor(new CreateStudentRequest("newuser", "secret", null, null, null),
+                    teacherDetails)).isEqualTo("hash:secret");
+            assertThat(userService.hashPasswordFor(new CreateStudentRequest("newuser", null, null, null, null),
+                    teacherDetails)).isEqualTo("hash:changeme");
+            assertThat(userService.hashPasswordFor(new CreateStudentRequest("newuser", "secret", null, null, null),
+                    studentDetails)).isNull();
+            assertThat(userService.hashPasswordFor(new UpdateStudentRequest(null, null, null, "  "), teacherDetails)).isNull();
+            assertThat(userService.hashPasswordFor(new UpdateStudentRequest(null, null, null, "new"), teacherDetails))
+                    .isEqualTo("hash:new");
         }
 
         @Test
         @DisplayName("non-teacher cannot create student")
         void nonTeacherCannotCreateStudent() {
             Optional<User> result = userService.createStudent(
-                    Map.of("username", "x", "password", "y"),
+                    new CreateStudentRequest("x", "y", null, null, null), "encoded",
                     studentDetails
             );
             assertThat(result).isEmpty();
@@ -160,7 +194,7 @@ class UserServiceTest {
         void duplicateUsernameReturnsEmpty() {
             when(userRepository.findByUsername("existing")).thenReturn(Optional.of(student));
             Optional<User> result = userService.createStudent(
-                    Map.of("username", "existing", "password", "p"),
+                    new CreateStudentRequest("existing", "p", null, null, null), "encoded",
                     teacherDetails
             );
             assertThat(result).isEmpty();
@@ -170,13 +204,46 @@ class UserServiceTest {
         @DisplayName("blank username returns empty")
         void blankUsernameReturnsEmpty() {
             Optional<User> result = userService.createStudent(
-                    Map.of("username", "   ", "password", "p"),
+                    new CreateStudentRequest("   ", "p", null, null, null), "encoded",
                     teacherDetails
             );
             assertThat(result).isEmpty();
         }
     }
 
+    @Nested
+    @DisplayName("registerUser")
+    class RegisterUser {
+        @Test
+        @DisplayName("teacher registers a user with a free username, which is published")
+        void teacherRegistersUser() {
+            User user = new User();
+            user.setUsername("new_teacher");
+            user.setRole(Role.TEACHER);
+            when(userRepository.findByUsername("new_teacher")).thenReturn(Optional.empty());
+            when(userRepository.save(user)).thenAnswer(inv -> {
+                user.setId(12L);
+                return user;
+            });
+
+            assertThat(userService.registerUser(user, teacherDetails)).contains(user);
+            verify(invalidationBus).publish(argThat(e -> e.type() == ChangeEvent.EntityType.USER && e.id() == 12L));
+        }
+
+        @Test
+        @DisplayName("a taken username or a student caller stores nothing")
+        void refused() {
+            User user = new User();
+            user.setUsername("student1");
+            when(userRepository.findByUsername("student1")).thenReturn(Optional.of(student));
+
+            assertThat(userService.registerUser(user, teacherDetails)).isEmpty();
+            assertThat(userService.registerUser(user, studentDetails)).isEmpty();
+            verify(userRepository, never()).save(any());
+            verifyNoInteractions(invalidationBus);
+        }
+    }
+
     @Nested
     @DisplayName("updateStudentInfo")
     class UpdateStudentInfo {
@@ -185,16 +252,53 @@ class UserServiceTest {
         void teacherCanUpdateStudent() {
             when(userRepository.findById(2L)).thenReturn(Optional.of(student));
             when(userRepository.save(any(User.class))).thenReturn(student);
-            Map<String, Object> updates = Map.of("name", "Updated Name");
-            Optional<User> result = userService.updateStudentInfo(2L, updates, teacherDetails);
+            UpdateStudentRequest updates = new UpdateStudentRequest("Updated Name", null, null, null);
+            Optional<User> result = userService.updateStudentInfo(2L, updates, null, teacherDetails);
             assertThat(result).isPresent();
             assertThat(student.getName()).isEqualTo("Updated Name");
         }
 
+        @Test
+        @DisplayName("absent fields are left unchanged")
+        void absentFieldsAreUnchanged() {
+            student.setEmail("old@school.com");
+            student.setGrade("B");
+            when(userRepository.findById(2L)).thenReturn(Optional.of(student));
+            when(userRepository.save(any(User.class))).thenReturn(student);
+            userService.updateStudentInfo(2L, new UpdateStudentRequest(null, null, Optional.of("A"), null), null, teacherDetails);
+            assertThat(student.getName()).isEqualTo("Student One");
+            assertThat(student.getEmail()).isEqualTo("old@school.com");
+            assertThat(student.getGrade()).isEqualTo("A");
+        }
+
+        @Test
+        @DisplayName("explicit null clears email and grade; a blank name is ignored")
+        void explicitNullClears() {
+            student.setEmail("old@school.com");
+            student.setGrade("B");
+            when(userRepository.findById(2L)).thenReturn(Optional.of(student));
+            when(userRepository.save(any(User.class))).thenReturn(student);
+            userService.updateStudentInfo(2L, new UpdateStudentRequest("", Optional.empty(), Optional.of(""), null),
+                    null, teacherDetails);
+            assertThat(student.getName()).isEqualTo("Student One");
+            assertThat(student.getEmail()).isNull();
+            assertThat(student.getGrade()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("a password change stores the hash it is given")
+        void passwordChangeStoresHash() {
+            when(userRepository.findById(2L)).thenReturn(Optional.of(student));
+            when(userRepository.save(any(User.class))).thenReturn(student);
+            userService.updateStudentInfo(2L, new UpdateStudentRequest(null, null, null, "new"), "hashed", teacherDetails);
+            assertThat(student.getPassword()).isEqualTo("hashed");
+            verifyNoInteractions(passwordHasher);
+        }
+
         @Test
         @DisplayName("non-teacher cannot update")
         void nonTeacherCannotUpdate() {
-            Optional<User> result = userService.updateStudentInfo(2L, Map.of("name", "X"), studentDetails);
+            Optional<User> result = userService.updateStudentInfo(2L, new UpdateStudentRequest("X", null, null, null), null, studentDetails);
             assertThat(result).isEmpty();
         }
 
@@ -202,7 +306,7 @@ class UserServiceTest {
         @DisplayName("returns empty when student not found")
         void returnsEmptyWhenStudentNotFound() {
             when(userRepository.findById(999L)).thenReturn(Optional.empty());
-            Optional<User> result = userService.updateStudentInfo(999L, Map.of("name", "X"), teacherDetails);
+            Optional<User> result = userService.updateStudentInfo(999L, new UpdateStudentRequest("X", null, null, null), null, teacherDetails);
             assertThat(result).isEmpty();
         }
     }
@@ -216,6 +320,9 @@ class UserServiceTest {
             when(userRepository.findById(2L)).thenReturn(Optional.of(student));
             boolean result = userService.deleteStudent(2L, teacherDetails);
             assertThat(result).isTrue();
+            InOrder order = inOrder(schoolClassRepository, enrollmentRepository);
+            order.verify(schoolClassRepository).decrementEnrollmentCountsForStudent(2L);
+            order.verify(enrollmentRepository).deleteByStudentId(2L);
             verify(userRepository).delete(student);
         }
 
@@ -5,7 +5,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
@@ -13,6 +13,8 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -29,6 +31,9 @@ class AuthControllerIntegrationTest {
     @Autowired
     private WebApplicationContext webApplicationContext;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private MockMvc mockMvc;
 
     @BeforeEach
@@ -64,4 +69,18 @@ class AuthControllerIntegrationTest {
                 .andExpect(jsonPath("$.username").value(STUDENT_USERNAME))
                 .andExpect(jsonPath("$.role").value("STUDENT"));
     }
+
+    @Test
+    @DisplayName("successful login re-encodes a legacy hash with the configured encoder")
+    void login_rehashesLegacyHash() throws Exception {
+        String sql = "SELECT password FROM users WHERE username = ?";
+        assertThat(jdbcTemplate.queryForObject(sql, String.class, TEACHER_USERNAME)).startsWith("$2a$10$");
+
+        mockMvc.perform(get("/api/auth/me").with(httpBasic(TEACHER_USERNAME, "password")))
+                .andExpect(status().isOk());
+
+        assertThat(jdbcTemplate.queryForObject(sql, String.class, TEACHER_USERNAME)).startsWith("{bcrypt}$2a$10$");
+        mockMvc.perform(get("/api/auth/me").with(httpBasic(TEACHER_USERNAME, "password")))
+                .andExpect(status().isOk());
+    }
 }
@@ -0,0 +1,389 @@
+package com.example.school.web;
+
+import com.example.school.entity.Role;
+import com.example.school.security.SchoolUserDetails;
+import com.example.school.security.SchoolUserDetailsService;
+import com.example.school.service.BatchExecutor;
+import com.example.school.service.BatchExecutor.Operation;
+import com.example.school.service.ChangeFeedService;
+import com.example.school.service.ClassService;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.WebApplicationContext;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * POST /api/batch: operations run as the caller through the same service methods as their own
+ * endpoints and report the same statuses; chunks commit together, and an operation that throws fails
+ * alone. The benchmark (tagged, run with {@code -Pbenchmark}) compares 10,000 enrollments sent one
+ * call each against the same number sent as batches.
+ */
+// Transaction counts are asserted, so chunks are capped by size only (not by how fast H2 runs) and the
+// once-a-minute session cleanup, which would add a transaction of its own, is off
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "school.admission.user-rate=100000", "school.admission.user-burst=100000", "school.batch.chunk-time=1m",
+        "spring.session.jdbc.cleanup-cron=-"})
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class BatchIntegrationTest {
+
+    private static final String PASSWORD_HASH = "$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fqvM/BG";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SchoolUserDetailsService userDetailsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private ClassService classService;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    private MockMvc mockMvc;
+    private Statistics statistics;
+    private SchoolUserDetails teacher;
+    private SchoolUserDetails student;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        teacher = (SchoolUserDetails) userDetailsService.loadUserByUsername("test_teacher");
+        student = (SchoolUserDetails) userDetailsService.loadUserByUsername("test_student");
+    }
+
+    private List<Long> insertStudents(int count) {
+        jdbcTemplate.update("INSERT INTO users (username, password, name, email, grade, role) "
+                + "SELECT CONCAT('batch_', X), ?, CONCAT('Student ', X), CONCAT('b', X, '@school.com'), 'B', 'STUDENT' "
+                + "FROM SYSTEM_RANGE(0, ?)", PASSWORD_HASH, count - 1);
+        return jdbcTemplate.queryForList("SELECT id FROM users WHERE username LIKE 'batch_%' ORDER BY id", Long.class);
+    }
+
+    private Long insertClass(String name) {
+        jdbcTemplate.update("INSERT INTO school_classes (name, teacher_id) VALUES (?, ?)", name, teacher.getUserId());
+        return jdbcTemplate.queryForObject("SELECT id FROM school_classes WHERE name = ?", Long.class, name);
+    }
+
+    private static Map<String, Object> op(String method, String path, Map<String, ?> body) {
+        Map<String, Object> op = new LinkedHashMap<>();
+        op.put("method", method);
+        op.put("path", path);
+        if (body != null) op.put("body", body);
+        return op;
+    }
+
+    private DocumentContext batch(SchoolUserDetails as, List<Map<String, Object>> operations) throws Exception {
+        String response = mockMvc.perform(post("/api/batch").with(user(as))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(Map.of("operations", operations))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.parse(response);
+    }
+
+    @Test
+    @DisplayName("teacher batch: each operation gets the status and body its own call would")
+    void teacherOperations() throws Exception {
+        List<Long> students = insertStudents(2);
+        Long classId = insertClass("Batch Algebra");
+
+        DocumentContext results = batch(teacher, List.of(
+                op("PATCH", "/api/students/" + students.get(0), Map.of("grade", "A")),
+                op("POST", "/api/students", Map.of("username", "batch_created", "name", "Created")),
+                op("POST", "/api/classes", Map.of("name", "Batch Geometry")),
+                op("PATCH", "/api/classes/" + classId, Map.of("description", "Updated in batch")),
+                op("PATCH", "/api/students/999999", Map.of("grade", "A")),
+                op("PATCH", "/api/students/" + students.get(1), Map.of("email", "not an email")),
+                op("POST", "/api/students", null),
+                op("POST", "/api/classes/" + classId + "/enroll", null),
+                op("GET", "/api/students", null),
+                op("patch", "/api/students/" + students.get(1), Map.of("name", "Renamed"))));
+
+        assertThat(results.<List<Integer>>read("$[*].status"))
+                .containsExactly(200, 201, 201, 200, 404, 400, 400, 400, 404, 200);
+        assertThat(results.<String>read("$[0].body.grade")).isEqualTo("A");
+        assertThat(results.<String>read("$[1].body.username")).isEqualTo("batch_created");
+        assertThat(results.<String>read("$[2].body.teacherName")).isEqualTo("Test Teacher");
+        assertThat(results.<String>read("$[3].body.description")).isEqualTo("Updated in batch");
+        assertThat(results.<Object>read("$[4].body")).isNull();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT grade FROM users WHERE id = ?", String.class, students.get(0))).isEqualTo("A");
+        assertThat(jdbcTemplate.queryForObject("SELECT name FROM users WHERE id = ?", String.class, students.get(1))).isEqualTo("Renamed");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM school_classes WHERE name = 'Batch Geometry'", Integer.class)).isOne();
+    }
+
+    @Test
+    @DisplayName("student batch: enroll and unenroll keep enrollment counts and the outbox in step")
+    void studentEnrollments() throws Exception {
+        List<Long> classIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) classIds.add(insertClass("Batch Elective " + i));
+        List<Map<String, Object>> operations = new ArrayList<>();
+        for (Long id : classIds) operations.add(op("POST", "/api/classes/" + id + "/enroll", null));
+        operations.add(op("DELETE", "/api/classes/" + classIds.get(0) + "/enroll", null));
+        operations.add(op("DELETE", "/api/classes/" + classIds.get(0) + "/enroll", null));
+        operations.add(op("PATCH", "/api/students/" + student.getUserId(), Map.of("grade", "A")));
+
+        DocumentContext results = batch(student, operations);
+
+        assertThat(results.<List<Integer>>read("$[*].status")).containsExactly(204, 204, 204, 204, 204, 204, 404, 404);
+        assertThat(jdbcTemplate.queryForList("SELECT enrollment_count FROM school_classes WHERE name LIKE 'Batch Elective %' ORDER BY name",
+                Integer.class)).containsExactly(0, 1, 1, 1, 1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE student_id = ?", Integer.class,
+                student.getUserId())).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("a chunk commits as one transaction and looks the caller up once")
+    void chunkIsOneTransaction() throws Exception {
+        List<Map<String, Object>> operations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            operations.add(op("POST", "/api/classes/" + insertClass("Chunk " + i) + "/enroll", null));
+        }
+
+        statistics.clear();
+        batch(student, operations);
+
+        assertThat(statistics.getTransactionCount()).isOne();
+        assertThat(statistics.getPrepareStatementCount()).as("one student lookup, then five statements per enrollment")
+                .isEqualTo(1 + 100 * 5);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM enrollments WHERE student_id = ?", Integer.class,
+                student.getUserId())).isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("an operation that throws is a failure; only the operations before it in its chunk run again")
+    void failingOperationIsIsolated() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BatchExecutor executor = new BatchExecutor(transactionManager, 3, Duration.ofMinutes(1), meterRegistry);
+        AtomicInteger failingRuns = new AtomicInteger();
+        List<Operation<String>> operations = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            String name = "Chunked " + i;
+            operations.add(i == 4
+                    ? Operation.of(() -> { failingRuns.incrementAndGet(); insertClass(name); throw new IllegalStateException("boom"); })
+                    : Operation.of(() -> { insertClass(name); return "ok"; }));
+        }
+
+        List<String> results = executor.execute(operations, e -> "failed: " + e.getMessage());
+
+        assertThat(results).containsExactly("ok", "ok", "ok", "ok", "failed: boom", "ok", "ok");
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM school_classes WHERE name LIKE 'Chunked %' ORDER BY name", String.class))
+                .containsExactly("Chunked 0", "Chunked 1", "Chunked 2", "Chunked 3", "Chunked 5", "Chunked 6");
+        assertThat(failingRuns).hasValue(1);
+        assertThat(meterRegistry.get("school.batch.chunks.replayed").counter().count()).isOne();
+    }
+
+    @Test
+    @DisplayName("operations are prepared outside the transaction; a prepare that throws fails only its operation")
+    void prepareRunsOutsideTransaction() {
+        BatchExecutor executor = new BatchExecutor(transactionManager, 10, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        List<Operation<String>> operations = List.of(
+                () -> {
+                    boolean inTransaction = TransactionSynchronizationManager.isActualTransactionActive();
+                    return () -> "prepared in transaction: " + inTransaction;
+                },
+                () -> { throw new IllegalStateException("busy"); },
+                Operation.of(() -> "ran in transaction: " + TransactionSynchronizationManager.isActualTransactionActive()));
+
+        assertThat(executor.execute(operations, e -> "failed: " + e.getMessage()))
+                .containsExactly("prepared in transaction: false", "failed: busy", "ran in transaction: true");
+    }
+
+    @Test
+    @DisplayName("a chunk commits early once it has run for chunk-time")
+    void chunkIsCappedByTime() {
+        BatchExecutor executor = new BatchExecutor(transactionManager, 100, Duration.ofMillis(50), new SimpleMeterRegistry());
+        List<Object> transactions = new ArrayList<>();
+        Supplier<String> recordTransaction = () -> {
+            transactions.add(TransactionSynchronizationManager.getResource(entityManagerFactory));
+            return "ok";
+        };
+        List<Operation<String>> operations = List.of(
+                Operation.of(recordTransaction),
+                Operation.of(() -> { sleep(100); return recordTransaction.get(); }),
+                Operation.of(recordTransaction),
+                Operation.of(recordTransaction));
+
+        assertThat(executor.execute(operations, e -> "failed")).containsExactly("ok", "ok", "ok", "ok");
+        assertThat(transactions.get(1)).isSameAs(transactions.get(0));
+        assertThat(transactions.get(2)).isNotSameAs(transactions.get(1)).isSameAs(transactions.get(3));
+    }
+
+    @Test
+    @DisplayName("a batch running longer than chunk-time still delivers all its events, and others', to /api/changes")
+    void longBatchReachesChangeFeed() throws Exception {
+        List<Long> classIds = List.of(insertClass("Long batch A"), insertClass("Long batch B"), insertClass("Alongside"));
+        long cursor = changeFeedService.latestCursor();
+        BatchExecutor executor = new BatchExecutor(transactionManager, 100, Duration.ofSeconds(1), new SimpleMeterRegistry());
+        CountDownLatch slowStepStarted = new CountDownLatch(1);
+        List<Operation<Boolean>> operations = List.of(
+                Operation.of(() -> classService.enroll(classIds.get(0), student)),
+                Operation.of(() -> { slowStepStarted.countDown(); sleep(2_500); return true; }),
+                Operation.of(() -> classService.enroll(classIds.get(1), student)));
+
+        ExecutorService runner = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Boolean>> batch = runner.submit(() -> executor.execute(operations, e -> false));
+            assertThat(slowStepStarted.await(10, TimeUnit.SECONDS)).isTrue();
+            mockMvc.perform(post("/api/classes/" + classIds.get(2) + "/enroll").with(user(student)))
+                    .andExpect(status().isNoContent());
+            assertThat(batch.get(30, TimeUnit.SECONDS)).containsExactly(true, true, true);
+        } finally {
+            runner.shutdownNow();
+        }
+
+        MvcResult poll = mockMvc.perform(get("/api/changes").param("after", String.valueOf(cursor)).with(user(teacher)))
+                .andReturn();
+        String feed = mockMvc.perform(asyncDispatch(poll))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cursor").value(cursor + 3))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(JsonPath.parse(feed).<List<Integer>>read("$.events[*].classId"))
+                .containsExactlyInAnyOrder(classIds.stream().map(Long::intValue).toArray(Integer[]::new));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    @DisplayName("empty, oversized or too long batches are rejected before anything runs")
+    void rejectsEmptyAndOversized() throws Exception {
+        mockMvc.perform(post("/api/batch").with(user(teacher)).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\": []}"))
+                .andExpect(status().isBadRequest());
+        List<Map<String, Object>> tooMany = new ArrayList<>();
+        for (int i = 0; i <= 1000; i++) tooMany.add(op("POST", "/api/classes", Map.of("name", "Too many " + i)));
+        mockMvc.perform(post("/api/batch").with(user(teacher)).contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(Map.of("operations", tooMany))))
+                .andExpect(status().isContentTooLarge());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM school_classes WHERE name LIKE 'Too many %'", Integer.class)).isZero();
+
+        // A body over school.api.max-body is refused before it is read
+        mockMvc.perform(post("/api/batch").with(user(teacher)).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\": [], \"pad\": \"" + "x".repeat(1 << 20) + "\"}"))
+                .andExpect(status().isContentTooLarge());
+    }
+
+    @Test
+    @DisplayName("a batch is charged one admission token per operation")
+    void batchIsChargedPerOperation() throws Exception {
+        // Its own teacher, so the bucket this drains (burst 100, 50/s) is not the one other tests use
+        SchoolUserDetails charged = new SchoolUserDetails(teacher.getUserId(), "charged_teacher", "Charged",
+                Role.TEACHER, PASSWORD_HASH);
+        List<Map<String, Object>> operations = new ArrayList<>();
+        for (int i = 0; i < 150; i++) operations.add(op("PATCH", "/api/classes/999999", Map.of("name", "Nothing")));
+
+        DocumentContext results = batch(charged, operations);
+        assertThat(results.read("$.length()", Integer.class)).isEqualTo(150);
+        mockMvc.perform(post("/api/batch").with(user(charged)).contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(Map.of("operations", operations.subList(0, 1)))))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("benchmark: 10,000 enrollments as individual calls against batches of 1,000")
+    void benchmarkAgainstIndividualCalls() throws Exception {
+        int operations = 10_000;
+        jdbcTemplate.update("INSERT INTO school_classes (name, teacher_id) "
+                + "SELECT CONCAT('Bench ', LPAD(CAST(X AS VARCHAR), 5, '0')), ? FROM SYSTEM_RANGE(0, ?)",
+                teacher.getUserId(), 2 * operations - 1);
+        List<Long> classIds = jdbcTemplate.queryForList("SELECT id FROM school_classes WHERE name LIKE 'Bench %' ORDER BY id", Long.class);
+
+        statistics.clear();
+        long start = System.nanoTime();
+        for (Long id : classIds.subList(0, operations)) {
+            mockMvc.perform(post("/api/classes/" + id + "/enroll").with(user(student)))
+                    .andExpect(status().isNoContent());
+        }
+        Run individual = new Run((System.nanoTime() - start) / 1_000_000, statistics.getTransactionCount(),
+                statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        start = System.nanoTime();
+        for (int from = operations; from < classIds.size(); from += 1000) {
+            List<Map<String, Object>> chunk = classIds.subList(from, from + 1000).stream()
+                    .map(id -> op("POST", "/api/classes/" + id + "/enroll", null))
+                    .toList();
+            mockMvc.perform(post("/api/batch").with(user(student))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(jsonMapper.writeValueAsString(Map.of("operations", chunk))))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[999].status").value(204));
+        }
+        Run batched = new Run((System.nanoTime() - start) / 1_000_000, statistics.getTransactionCount(),
+                statistics.getPrepareStatementCount());
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM enrollments WHERE student_id = ?", Integer.class,
+                student.getUserId())).isEqualTo(2 * operations);
+        assertThat(individual.transactions()).isGreaterThanOrEqualTo(operations);
+        assertThat(batched.transactions() * 50).isLessThan(individual.transactions());
+        assertThat(batched.statements()).isLessThan(individual.statements());
+        assertThat(batched.millis()).isLessThan(individual.millis());
+    }
+
+    private record Run(long millis, long transactions, long statements) {}
+}
@@ -0,0 +1,231 @@
+package com.example.school.web;
+
+import com.example.school.security.SchoolUserDetails;
+import com.example.school.security.SchoolUserDetailsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import tools.jackson.databind.JavaType;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@code Accept: application/cbor} gets CBOR from the {@code ResponseEntity} endpoints and from the
+ * streamed student list, with the same content as the JSON default; create and update accept CBOR
+ * bodies. The benchmark compares encode/decode throughput and payload size of the two formats for
+ * lists of {@code StudentResponse} and {@code ClassResponse} through the application's mappers.
+ */
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "school.admission.user-rate=100000", "school.admission.user-burst=100000"})
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class CborNegotiationIntegrationTest {
+
+    private static final String PASSWORD_HASH = "$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fqvM/BG";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SchoolUserDetailsService userDetailsService;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private CBORMapper cborMapper;
+
+    private MockMvc mockMvc;
+    private SchoolUserDetails teacher;
+    private SchoolUserDetails student;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        teacher = (SchoolUserDetails) userDetailsService.loadUserByUsername("test_teacher");
+        student = (SchoolUserDetails) userDetailsService.loadUserByUsername("test_student");
+        jdbcTemplate.update("INSERT INTO school_classes (name, description, teacher_id) "
+                + "SELECT CONCAT('Cbor ', X), CONCAT('About ', X), ? FROM SYSTEM_RANGE(0, 4)", teacher.getUserId());
+        jdbcTemplate.update("INSERT INTO users (username, password, name, email, grade, role) "
+                + "SELECT CONCAT('cbor_', X), ?, CONCAT('Student ', X), CONCAT('c', X, '@school.com'), 'C', 'STUDENT' "
+                + "FROM SYSTEM_RANGE(0, 699)", PASSWORD_HASH);
+    }
+
+    /** The response to a GET, following a streamed listing through its async dispatch. */
+    private MockHttpServletResponse fetch(String url, SchoolUserDetails as, String accept) throws Exception {
+        MvcResult result = mockMvc.perform(get(url).with(user(as)).header("Accept", accept)).andReturn();
+        if (result.getRequest().isAsyncStarted()) result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        assertThat(result.getResponse().getStatus()).as(url).isEqualTo(200);
+        return result.getResponse();
+    }
+
+    @Test
+    @DisplayName("class page, single student and streamed student list decode to the same content as JSON")
+    void cborMatchesJson() throws Exception {
+        for (String url : List.of("/api/classes", "/api/students/me")) {
+            SchoolUserDetails as = url.endsWith("/me") ? student : teacher;
+            MockHttpServletResponse json = fetch(url, as, "application/json");
+            MockHttpServletResponse cbor = fetch(url, as, "application/cbor");
+            assertThat(cbor.getContentType()).isEqualTo("application/cbor");
+            assertThat(cborMapper.readTree(cbor.getContentAsByteArray())).as(url)
+                    .isEqualTo(jsonMapper.readTree(json.getContentAsByteArray()));
+        }
+
+        MockHttpServletResponse json = fetch("/api/students", teacher, "application/json");
+        MockHttpServletResponse cbor = fetch("/api/students", teacher, "application/cbor");
+        assertThat(cbor.getContentType()).isEqualTo("application/cbor");
+        List<?> fromCbor = cborMapper.readValue(cbor.getContentAsByteArray(), List.class);
+        assertThat(fromCbor).hasSize(702).isEqualTo(jsonMapper.readValue(json.getContentAsByteArray(), List.class));
+        assertThat(cbor.getContentAsByteArray().length).isLessThan(json.getContentAsByteArray().length);
+
+        MockHttpServletResponse sparse = fetch("/api/students?fields=id,name", teacher, "application/cbor");
+        List<Map<String, Object>> sparseRows = cborMapper.readValue(sparse.getContentAsByteArray(),
+                cborMapper.getTypeFactory().constructCollectionType(List.class, Map.class));
+        assertThat(sparseRows.get(2))
+                .containsOnlyKeys("id", "name")
+                .containsEntry("name", "Student 0");
+    }
+
+    @Test
+    @DisplayName("JSON stays the default: no Accept, wildcards, ties and a higher-quality JSON all get JSON; neither is 406")
+    void jsonIsTheDefault() throws Exception {
+        for (String accept : List.of("*/*", "application/*", "application/json, application/cbor",
+                "application/cbor;q=0.5, application/json", "application/cbor;q=0, */*")) {
+            assertThat(JsonArrayStreamer.negotiate(accept)).as(accept).isEqualTo(MediaType.APPLICATION_JSON);
+        }
+        assertThat(JsonArrayStreamer.negotiate(null)).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(JsonArrayStreamer.negotiate("not a media type")).isEqualTo(MediaType.APPLICATION_JSON);
+        // More ranges than Spring will sort is treated like any other unusable header
+        assertThat(JsonArrayStreamer.negotiate("application/cbor, " + "text/plain, ".repeat(60) + "*/*"))
+                .isEqualTo(MediaType.APPLICATION_JSON);
+        for (String accept : List.of("application/json;q=0.2, application/cbor", "application/json;q=0, */*",
+                "application/json;q=0, application/*;q=0.1")) {
+            assertThat(JsonArrayStreamer.negotiate(accept)).as(accept).isEqualTo(MediaType.APPLICATION_CBOR);
+        }
+        for (String accept : List.of("text/html", "application/json;q=0", "application/json;q=0, application/cbor;q=0, */*",
+                "*/*;q=0")) {
+            assertThat(JsonArrayStreamer.negotiate(accept)).as(accept).isNull();
+        }
+
+        mockMvc.perform(get("/api/classes").with(user(teacher)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        MvcResult students = mockMvc.perform(get("/api/students").with(user(teacher)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(students))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        mockMvc.perform(get("/api/students").with(user(teacher)).header("Accept", "text/html"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    @DisplayName("POST /api/students and PATCH /api/classes/{id} accept CBOR bodies")
+    void cborRequestBodies() throws Exception {
+        byte[] create = cborMapper.writeValueAsBytes(Map.of("username", "cbor_new", "name", "Cbor New", "grade", "D"));
+        MockHttpServletResponse created = mockMvc.perform(post("/api/students").with(user(teacher))
+                        .contentType(MediaType.APPLICATION_CBOR).accept(MediaType.APPLICATION_CBOR).content(create))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse();
+        assertThat(cborMapper.readValue(created.getContentAsByteArray(), Map.class))
+                .containsEntry("username", "cbor_new")
+                .containsEntry("grade", "D");
+
+        Long classId = jdbcTemplate.queryForObject("SELECT id FROM school_classes WHERE name = 'Cbor 0'", Long.class);
+        mockMvc.perform(patch("/api/classes/" + classId).with(user(teacher))
+                        .contentType(MediaType.APPLICATION_CBOR).content(cborMapper.writeValueAsBytes(Map.of("description", "Renamed"))))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        assertThat(jdbcTemplate.queryForObject("SELECT description FROM school_classes WHERE id = ?", String.class, classId))
+                .isEqualTo("Renamed");
+
+        mockMvc.perform(post("/api/students").with(user(teacher))
+                        .contentType(MediaType.APPLICATION_CBOR).content(cborMapper.writeValueAsBytes(Map.of("username", ""))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("benchmark: CBOR against JSON, encode/decode throughput and size for student and class lists")
+    void benchmarkAgainstJson() {
+        List<StudentController.StudentResponse> students = list(10_000, i -> new StudentController.StudentResponse(
+                (long) i, "student_" + i, "Student Number " + i, "student" + i + "@school.com", "B"));
+        List<ClassController.ClassResponse> classes = list(10_000, i -> new ClassController.ClassResponse(
+                (long) i, "Course " + i, "An introduction to topic " + i, "Test Teacher", (long) (i % 30), i % 3 == 0));
+
+        for (List<?> elements : List.of(students, classes)) {
+            Class<?> type = elements.get(0).getClass();
+            Codec json = codec(jsonMapper, elements, type);
+            Codec cbor = codec(cborMapper, elements, type);
+            assertThat(cbor.bytes()).as(type.getSimpleName()).isLessThan(json.bytes());
+            assertThat(cbor.encodeMbPerSecond() * 2).as(type.getSimpleName()).isGreaterThan(json.encodeMbPerSecond());
+            assertThat(cbor.decodeMbPerSecond() * 2).as(type.getSimpleName()).isGreaterThan(json.decodeMbPerSecond());
+        }
+    }
+
+    /** Payload size, and throughput in megabytes of the JSON payload per second so the two rates compare. */
+    private record Codec(int bytes, double encodeMbPerSecond, double decodeMbPerSecond) {}
+
+    private Codec codec(ObjectMapper mapper, List<?> elements, Class<?> type) {
+        JavaType listType = mapper.getTypeFactory().constructCollectionType(List.class, type);
+        byte[] encoded = mapper.writeValueAsBytes(elements);
+        assertThat((List<?>) mapper.readValue(encoded, listType)).isEqualTo(elements);
+        int jsonBytes = jsonMapper.writeValueAsBytes(elements).length;
+        long encodeNanos = medianNanos(() -> mapper.writeValueAsBytes(elements));
+        long decodeNanos = medianNanos(() -> mapper.readValue(encoded, listType));
+        return new Codec(encoded.length, jsonBytes * 1e3 / encodeNanos, jsonBytes * 1e3 / decodeNanos);
+    }
+
+    private static <T> List<T> list(int size, IntFunction<T> element) {
+        return IntStream.range(0, size).mapToObj(element).toList();
+    }
+
+    private static long medianNanos(Runnable call) {
+        for (int i = 0; i < 40; i++) call.run();
+        long[] samples = new long[15];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            call.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
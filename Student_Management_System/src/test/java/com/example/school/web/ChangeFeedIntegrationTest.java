@@ -0,0 +1,163 @@
+package com.example.school.web;
+
+import com.example.school.entity.OutboxEvent;
+import com.example.school.security.SchoolUserDetailsService;
+import com.example.school.service.ChangeFeedService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class ChangeFeedIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SchoolUserDetailsService userDetailsService;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private MockMvc mockMvc;
+    private UserDetails teacher;
+    private UserDetails student;
+    private Long classId;
+    private Long studentId;
+    private long cursor;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        teacher = userDetailsService.loadUserByUsername("test_teacher");
+        student = userDetailsService.loadUserByUsername("test_student");
+        Long teacherId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'test_teacher'", Long.class);
+        studentId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'test_student'", Long.class);
+        jdbcTemplate.update("INSERT INTO school_classes (name, teacher_id) VALUES ('Feed Class', ?)", teacherId);
+        classId = jdbcTemplate.queryForObject("SELECT id FROM school_classes WHERE name = 'Feed Class'", Long.class);
+        cursor = changeFeedService.latestCursor();
+    }
+
+    @Test
+    @DisplayName("enroll and unenroll appear in order after the cursor; the returned cursor yields nothing new")
+    void feedReturnsDeltasInOrder() throws Exception {
+        mockMvc.perform(post("/api/classes/" + classId + "/enroll").with(user(student))).andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/classes/" + classId + "/enroll").with(user(student))).andExpect(status().isNoContent());
+
+        MvcResult first = mockMvc.perform(get("/api/changes").param("after", String.valueOf(cursor)).with(user(teacher)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(first))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events.length()").value(2))
+                .andExpect(jsonPath("$.events[0].type").value("ENROLLED"))
+                .andExpect(jsonPath("$.events[0].classId").value(classId))
+                .andExpect(jsonPath("$.events[0].studentId").value(studentId))
+                .andExpect(jsonPath("$.events[1].type").value("UNENROLLED"))
+                .andExpect(jsonPath("$.cursor").value(cursor + 2));
+
+        MvcResult next = mockMvc.perform(get("/api/changes").param("after", String.valueOf(cursor + 2)).with(user(teacher)))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(next))
+                .andExpect(jsonPath("$.events.length()").value(0))
+                .andExpect(jsonPath("$.cursor").value(cursor + 2));
+    }
+
+    @Test
+    @DisplayName("long-poll is held until an enrollment commits, then returns it")
+    void longPollCompletesOnCommit() throws Exception {
+        MvcResult poll = mockMvc.perform(get("/api/changes")
+                        .param("after", String.valueOf(cursor))
+                        .param("waitSeconds", "10")
+                        .with(user(teacher)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(post("/api/classes/" + classId + "/enroll").with(user(student))).andExpect(status().isNoContent());
+
+        mockMvc.perform(asyncDispatch(poll))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events.length()").value(1))
+                .andExpect(jsonPath("$.events[0].type").value("ENROLLED"))
+                .andExpect(jsonPath("$.cursor").value(cursor + 1));
+    }
+
+    @Test
+    @DisplayName("an event whose transaction commits long after a later one is still delivered, after it")
+    void lateCommitIsDelivered() throws Exception {
+        CountDownLatch recorded = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> held = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            changeFeedService.record(OutboxEvent.Type.UNENROLLED, classId, studentId);
+            recorded.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(recorded.await(10, TimeUnit.SECONDS)).isTrue();
+        mockMvc.perform(post("/api/classes/" + classId + "/enroll").with(user(student))).andExpect(status().isNoContent());
+
+        // Held past the 2s the feed used to wait before skipping a gap in the ids as a rollback
+        Thread.sleep(2_500);
+        MvcResult before = mockMvc.perform(get("/api/changes").param("after", String.valueOf(cursor)).with(user(teacher)))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(before))
+                .andExpect(jsonPath("$.events.length()").value(1))
+                .andExpect(jsonPath("$.events[0].type").value("ENROLLED"))
+                .andExpect(jsonPath("$.cursor").value(cursor + 1));
+
+        release.countDown();
+        held.get(10, TimeUnit.SECONDS);
+        MvcResult after = mockMvc.perform(get("/api/changes").param("after", String.valueOf(cursor + 1)).with(user(teacher)))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(after))
+                .andExpect(jsonPath("$.events.length()").value(1))
+                .andExpect(jsonPath("$.events[0].type").value("UNENROLLED"))
+                .andExpect(jsonPath("$.cursor").value(cursor + 2));
+    }
+
+    @Test
+    @DisplayName("students cannot read the feed")
+    void studentForbidden() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/changes").with(user(student))).andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isForbidden());
+    }
+}
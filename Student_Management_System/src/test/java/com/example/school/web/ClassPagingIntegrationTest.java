@@ -0,0 +1,203 @@
+package com.example.school.web;
+
+import com.example.school.security.SchoolUserDetailsService;
+import com.example.school.service.KeysetPage;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Catalog and roster pages follow {@code Link: rel="next"} through every row once, in (name, id) order.
+ * One student walks many pages back to back, so the per-user rate limit is lifted.
+ */
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "school.admission.user-rate=100000", "school.admission.user-burst=100000"})
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class ClassPagingIntegrationTest {
+
+    private static final Pattern NEXT = Pattern.compile("<([^>]+)>;\\s*rel=\"next\"");
+    private static final String PASSWORD_HASH = "$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fqvM/BG";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SchoolUserDetailsService userDetailsService;
+
+    private MockMvc mockMvc;
+    private UserDetails teacher;
+    private UserDetails otherTeacher;
+    private UserDetails student;
+    private Long teacherId;
+    private Long otherTeacherId;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        teacher = userDetailsService.loadUserByUsername("test_teacher");
+        otherTeacher = userDetailsService.loadUserByUsername("auth_test_teacher");
+        student = userDetailsService.loadUserByUsername("test_student");
+        teacherId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'test_teacher'", Long.class);
+        otherTeacherId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'auth_test_teacher'", Long.class);
+    }
+
+    /** {@code count} classes named "{@code prefix} {@code i % distinct}", so names repeat and ids break ties. */
+    private void insertClasses(String prefix, int count, int distinct, Long owner) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) rows.add(new Object[]{prefix + " " + String.format("%05d", i % distinct), owner});
+        jdbcTemplate.batchUpdate("INSERT INTO school_classes (name, teacher_id) VALUES (?, ?)", rows);
+    }
+
+    private record Row(String name, long id) {}
+
+    /** Follows next links from {@code url}; returns every row seen and the number of pages. */
+    private List<Row> walk(String url, UserDetails as, int[] pages) throws Exception {
+        List<Row> rows = new ArrayList<>();
+        while (url != null) {
+            MvcResult result = mockMvc.perform(get(url).with(user(as))).andExpect(status().isOk()).andReturn();
+            String body = result.getResponse().getContentAsString();
+            List<String> names = JsonPath.read(body, "$[*].name");
+            List<Number> ids = JsonPath.read(body, "$[*].id");
+            for (int i = 0; i < ids.size(); i++) rows.add(new Row(names.get(i), ids.get(i).longValue()));
+            String link = result.getResponse().getHeader("Link");
+            Matcher m = link == null ? null : NEXT.matcher(link);
+            url = m != null && m.find() ? m.group(1) : null;
+            pages[0]++;
+        }
+        return rows;
+    }
+
+    private static void assertSortedByNameThenId(List<Row> rows) {
+        for (int i = 1; i < rows.size(); i++) {
+            Row a = rows.get(i - 1);
+            Row b = rows.get(i);
+            assertThat(a.name().compareTo(b.name()) < 0 || (a.name().equals(b.name()) && a.id() < b.id()))
+                    .as("%s before %s", a, b).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("student walks the whole catalog page by page with duplicate names, each class exactly once")
+    void catalogPagesCoverEveryClassOnce() throws Exception {
+        insertClasses("Course", 230, 40, teacherId);
+        insertClasses("Other", 20, 20, otherTeacherId);
+        int[] pages = {0};
+
+        List<Row> rows = walk("/api/classes?limit=50", student, pages);
+
+        assertThat(rows).hasSize(250);
+        assertThat(new HashSet<>(rows.stream().map(Row::id).toList())).hasSize(250);
+        assertThat(pages[0]).isEqualTo(5);
+        assertSortedByNameThenId(rows);
+    }
+
+    @Test
+    @DisplayName("teacherId and prefix filter the catalog; teachers only ever see their own classes")
+    void filters() throws Exception {
+        insertClasses("Algebra", 30, 30, teacherId);
+        insertClasses("Biology", 30, 30, teacherId);
+        insertClasses("algebra_x", 10, 10, otherTeacherId);
+        int[] pages = {0};
+
+        assertThat(walk("/api/classes?limit=7&teacherId=" + otherTeacherId, student, pages)).hasSize(10);
+        assertThat(walk("/api/classes?limit=7&prefix=ALGEBRA", student, pages)).hasSize(40);
+        assertThat(walk("/api/classes?limit=7&prefix=algebra_", student, pages)).hasSize(10);
+        assertThat(walk("/api/classes?limit=7&prefix=bio", teacher, pages)).hasSize(30);
+        assertThat(walk("/api/classes?limit=7&teacherId=" + teacherId, otherTeacher, pages))
+                .allSatisfy(r -> assertThat(r.name()).startsWith("algebra_x"));
+    }
+
+    @Test
+    @DisplayName("a tampered cursor is a 400; the last page has no next link")
+    void badCursorAndLastPage() throws Exception {
+        insertClasses("Course", 3, 3, teacherId);
+        mockMvc.perform(get("/api/classes?after=bm9jb2xvbg").with(user(student))).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/classes?limit=3").with(user(student)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    @DisplayName("a 1,000-seat roster is paged by student name; other teachers get an empty list")
+    void rosterPages() throws Exception {
+        insertClasses("Lecture", 1, 1, teacherId);
+        Long classId = jdbcTemplate.queryForObject("SELECT id FROM school_classes WHERE name LIKE 'Lecture%'", Long.class);
+        List<Object[]> students = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            students.add(new Object[]{"seat_" + i, PASSWORD_HASH, "Seat " + String.format("%03d", i % 300), "STUDENT"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, password, name, role) VALUES (?, ?, ?, ?)", students);
+        jdbcTemplate.update("INSERT INTO enrollments (student_id, school_class_id) SELECT id, ? FROM users WHERE username LIKE 'seat_%'", classId);
+        int[] pages = {0};
+
+        List<Row> rows = walk("/api/classes/" + classId + "/enrollments?limit=200", teacher, pages);
+
+        assertThat(rows).hasSize(1_000);
+        assertThat(pages[0]).isEqualTo(5);
+        assertSortedByNameThenId(rows);
+        assertThat(walk("/api/classes/" + classId + "/enrollments?prefix=seat 299", teacher, new int[1])).hasSize(3);
+        assertThat(walk("/api/classes/" + classId + "/enrollments", otherTeacher, new int[1])).isEmpty();
+    }
+
+    /**
+     * With 50k classes, a page is served in about the same time at the start of the catalog and deep
+     * into it: the cost is an index range scan of one page, not the catalog size or the offset.
+     */
+    @Test
+    @Tag("benchmark")
+    @DisplayName("benchmark: 50k classes, first and deep pages each answer in milliseconds")
+    void benchmarkFiftyThousandClasses() throws Exception {
+        insertClasses("Section", 50_000, 50_000, teacherId);
+        String deepCursor = new KeysetPage.Key("Section 49000", Long.MAX_VALUE).encode();
+
+        long first = medianMicros("/api/classes");
+        long deep = medianMicros("/api/classes?after=" + deepCursor);
+        assertThat(TimeUnit.MICROSECONDS.toMillis(first)).isLessThan(100);
+        assertThat(TimeUnit.MICROSECONDS.toMillis(deep)).isLessThan(100);
+    }
+
+    private long medianMicros(String url) throws Exception {
+        for (int i = 0; i < 20; i++) mockMvc.perform(get(url).with(user(student))).andExpect(status().isOk());
+        long[] samples = new long[31];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            mockMvc.perform(get(url).with(user(student))).andExpect(status().isOk());
+            samples[i] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.school.web;
+
+import com.example.school.entity.Enrollment;
+import com.example.school.entity.SchoolClass;
+import com.example.school.repository.EnrollmentRepository;
+import com.example.school.repository.SchoolClassRepository;
+import com.example.school.security.SchoolUserDetails;
+import com.example.school.security.SchoolUserDetailsService;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class ClassRolloverIntegrationTest {
+
+    private static final String TEACHER_USERNAME = "test_teacher";
+    private static final String STUDENT_USERNAME = "test_student";
+    private static final String PASSWORD_HASH = "$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fqvM/BG";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private SchoolClassRepository schoolClassRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SchoolUserDetailsService userDetailsService;
+
+    private MockMvc mockMvc;
+
+    private Statistics statistics;
+
+    private Long teacherId;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        teacherId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, TEACHER_USERNAME);
+    }
+
+    private Long insertClass(String name, Long ownerId) {
+        jdbcTemplate.update("INSERT INTO school_classes (name, description, teacher_id) VALUES (?, 'desc', ?)", name, ownerId);
+        return jdbcTemplate.queryForObject("SELECT id FROM school_classes WHERE name = ?", Long.class, name);
+    }
+
+    private void insertStudents(int count) {
+        List<Object[]> students = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            students.add(new Object[]{"term_student_" + i, PASSWORD_HASH, "Term Student " + i, "STUDENT"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, password, name, role) VALUES (?, ?, ?, ?)", students);
+    }
+
+    private void enrollAll(Long classId) {
+        jdbcTemplate.update("INSERT INTO enrollments (student_id, school_class_id) "
+                + "SELECT id, ? FROM users WHERE username LIKE 'term_student_%'", classId);
+    }
+
+    private List<Long> roster(Long classId) {
+        return jdbcTemplate.queryForList("SELECT student_id FROM enrollments WHERE school_class_id = ? ORDER BY student_id",
+                Long.class, classId);
+    }
+
+    private static String body(Long... classIds) {
+        StringBuilder ids = new StringBuilder();
+        for (Long id : classIds) ids.append(ids.isEmpty() ? "" : ",").append(id);
+        return "{\"classIds\":[" + ids + "],\"nameSuffix\":\"2027\"}";
+    }
+
+    @Test
+    @DisplayName("POST /api/classes/rollover copies classes and rosters and records one ENROLLED event per copy")
+    @WithUserDetails(value = TEACHER_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
+    void rollover_copiesClassesAndRosters() throws Exception {
+        insertStudents(3);
+        Long algebra = insertClass("Algebra", teacherId);
+        Long empty = insertClass("Empty", teacherId);
+        enrollAll(algebra);
+        long outboxBefore = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events", Long.class);
+
+        statistics.clear();
+        mockMvc.perform(post("/api/classes/rollover").contentType(MediaType.APPLICATION_JSON).content(body(algebra, empty)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.classes.length()").value(2))
+                .andExpect(jsonPath("$.enrollments").value(3));
+        // A fixed number of statements whatever the roster sizes, plus the search index re-reading each new class
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(10);
+
+        Long algebraCopy = jdbcTemplate.queryForObject(
+                "SELECT id FROM school_classes WHERE rolled_over_from_id = ?", Long.class, algebra);
+        assertThat(jdbcTemplate.queryForObject("SELECT name FROM school_classes WHERE id = ?", String.class, algebraCopy))
+                .isEqualTo("Algebra 2027");
+        assertThat(jdbcTemplate.queryForObject("SELECT teacher_id FROM school_classes WHERE id = ?", Long.class, algebraCopy))
+                .isEqualTo(teacherId);
+        assertThat(roster(algebraCopy)).hasSize(3).isEqualTo(roster(algebra));
+        assertThat(jdbcTemplate.queryForObject("SELECT enrollment_count FROM school_classes WHERE id = ?", Integer.class, algebraCopy))
+                .isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM school_classes WHERE rolled_over_from_id = ?",
+                Long.class, empty)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE type = 'ENROLLED' AND class_id = ?",
+                Long.class, algebraCopy)).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events", Long.class)).isEqualTo(outboxBefore + 3);
+    }
+
+    @Test
+    @DisplayName("POST /api/classes/rollover including another teacher's class returns 404 and copies nothing")
+    @WithUserDetails(value = TEACHER_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
+    void rollover_notOwner_returns404() throws Exception {
+        Long otherTeacherId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'auth_test_teacher'", Long.class);
+        Long mine = insertClass("Mine", teacherId);
+        Long theirs = insertClass("Theirs", otherTeacherId);
+
+        mockMvc.perform(post("/api/classes/rollover").contentType(MediaType.APPLICATION_JSON).content(body(mine, theirs)))
+                .andExpect(status().isNotFound());
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM school_classes", Long.class)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("POST /api/classes/rollover as student returns 403")
+    @WithUserDetails(value = STUDENT_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
+    void rollover_asStudent_returns403() throws Exception {
+        Long algebra = insertClass("Algebra", teacherId);
+        mockMvc.perform(post("/api/classes/rollover").contentType(MediaType.APPLICATION_JSON).content(body(algebra)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @DisplayName("concurrent rollovers of one class each report only the copy they made")
+    void rollover_concurrent_reportsOwnCopies() throws Exception {
+        SchoolUserDetails teacher = (SchoolUserDetails) userDetailsService.loadUserByUsername(TEACHER_USERNAME);
+        Long algebra = insertClass("Algebra", teacherId);
+        int callers = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> responses = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                responses.add(pool.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post("/api/classes/rollover").with(user(teacher))
+                                    .contentType(MediaType.APPLICATION_JSON).content(body(algebra)))
+                            .andExpect(status().isCreated())
+                            .andReturn().getResponse().getContentAsString();
+                }));
+            }
+            start.countDown();
+            Set<Long> copies = new HashSet<>();
+            for (Future<String> response : responses) {
+                List<Long> ids = JsonPath.read(response.get(60, TimeUnit.SECONDS), "$.classes[*].id");
+                assertThat(ids).hasSize(1);
+                copies.addAll(ids);
+            }
+            assertThat(copies).hasSize(callers);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Two classes of 2,500 students each: the set-based rollover against copying the same rows
+     * entity by entity, as re-creating classes through the API amounts to.
+     */
+    @Test
+    @Tag("benchmark")
+    @DisplayName("rollover of 5,000 enrollments runs in a fixed number of statements and beats a per-entity copy")
+    @WithUserDetails(value = TEACHER_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
+    void rollover_benchmark() throws Exception {
+        int studentsPerClass = 2_500;
+        insertStudents(studentsPerClass);
+        Long physics = insertClass("Physics", teacherId);
+        Long chemistry = insertClass("Chemistry", teacherId);
+        enrollAll(physics);
+        enrollAll(chemistry);
+        copyEntityByEntity(List.of(physics, chemistry)); // warm up both paths
+        mockMvc.perform(post("/api/classes/rollover").contentType(MediaType.APPLICATION_JSON).content(body(physics, chemistry)))
+                .andExpect(status().isCreated());
+
+        statistics.clear();
+        long started = System.nanoTime();
+        mockMvc.perform(post("/api/classes/rollover").contentType(MediaType.APPLICATION_JSON).content(body(physics, chemistry)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.enrollments").value(2 * studentsPerClass));
+        long setBasedMillis = (System.nanoTime() - started) / 1_000_000;
+        long setBasedStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        started = System.nanoTime();
+        copyEntityByEntity(List.of(physics, chemistry));
+        long perEntityMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertThat(setBasedStatements).isLessThanOrEqualTo(10);
+        assertThat(setBasedMillis).isLessThan(perEntityMillis);
+    }
+
+    private void copyEntityByEntity(List<Long> classIds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Long id : classIds) {
+                SchoolClass source = schoolClassRepository.findById(id).orElseThrow();
+                SchoolClass copy = new SchoolClass();
+                copy.setName(source.getName() + " copy");
+                copy.setDescription(source.getDescription());
+                copy.setTeacher(source.getTeacher());
+                schoolClassRepository.save(copy);
+                for (Enrollment e : enrollmentRepository.findBySchoolClassWithStudents(source)) {
+                    Enrollment c = new Enrollment();
+                    c.setStudent(e.getStudent());
+                    c.setSchoolClass(copy);
+                    enrollmentRepository.save(c);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.school.web;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the real Tomcat connector (MockMvc bypasses it) and compares bytes on the wire
+ * with and without {@code Accept-Encoding: gzip}. The JDK client does not decompress, so body
+ * length is what was actually transferred.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class CompressionIntegrationTest {
+
+    private static final String PASSWORD_HASH = "$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fqvM/BG";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    @DisplayName("static page is served from the precompressed variant with revalidation headers")
+    void staticPage_gzipVariantIsSmaller() throws Exception {
+        HttpResponse<byte[]> plain = send(request("/login.html").build());
+        HttpResponse<byte[]> gzip = send(request("/login.html").header("Accept-Encoding", "gzip").build());
+
+        assertThat(plain.statusCode()).isEqualTo(200);
+        assertThat(gzip.statusCode()).isEqualTo(200);
+        assertThat(gzip.headers().firstValue("Content-Encoding")).contains("gzip");
+        assertThat(gzip.body().length).isLessThan(plain.body().length / 2);
+        assertThat(plain.headers().firstValue("Cache-Control")).hasValueSatisfying(v -> assertThat(v).contains("no-cache"));
+        assertThat(plain.headers().firstValue("Last-Modified")).isPresent();
+
+        HttpResponse<byte[]> revalidated = send(request("/login.html")
+                .header("If-Modified-Since", plain.headers().firstValue("Last-Modified").get())
+                .build());
+        assertThat(revalidated.statusCode()).isEqualTo(304);
+        assertThat(revalidated.body()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("large JSON list is gzip-compressed by the connector")
+    void studentList_isCompressed() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            jdbcTemplate.update("INSERT INTO users (username, password, name, email, grade, role) VALUES (?, ?, ?, ?, ?, 'STUDENT')",
+                    "bulk_student_" + i, PASSWORD_HASH, "Bulk Student " + i, "bulk" + i + "@school.com", "A");
+        }
+        String auth = "Basic " + Base64.getEncoder().encodeToString("test_teacher:password".getBytes(StandardCharsets.UTF_8));
+
+        HttpResponse<byte[]> plain = send(request("/api/students").header("Authorization", auth).build());
+        HttpResponse<byte[]> gzip = send(request("/api/students").header("Authorization", auth)
+                .header("Accept-Encoding", "gzip").build());
+
+        assertThat(plain.statusCode()).isEqualTo(200);
+        assertThat(plain.headers().firstValue("Content-Encoding")).isEmpty();
+        assertThat(gzip.headers().firstValue("Content-Encoding")).contains("gzip");
+        assertThat(gzip.body().length).isLessThan(plain.body().length / 4);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET();
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
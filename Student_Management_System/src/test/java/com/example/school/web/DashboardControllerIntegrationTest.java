@@ -0,0 +1,104 @@
+package com.example.school.web;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class DashboardControllerIntegrationTest {
+
+    private static final String TEACHER_USERNAME = "test_teacher";
+    private static final String STUDENT_USERNAME = "test_student";
+    private static final int CLASS_COUNT = 5;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private MockMvc mockMvc;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Long teacherId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, TEACHER_USERNAME);
+        Long studentId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, STUDENT_USERNAME);
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            jdbcTemplate.update("INSERT INTO school_classes (name, description, teacher_id) VALUES (?, ?, ?)",
+                    "Class " + i, "Description " + i, teacherId);
+        }
+        jdbcTemplate.update("INSERT INTO enrollments (student_id, school_class_id) "
+                + "SELECT ?, id FROM school_classes WHERE name IN ('Class 0', 'Class 1')", studentId);
+    }
+
+    @Test
+    @DisplayName("GET /api/dashboard unauthenticated returns 401")
+    void dashboard_unauthorized_returns401() throws Exception {
+        mockMvc.perform(get("/api/dashboard"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @DisplayName("GET /api/dashboard as teacher returns classes, counts and rosters in a fixed number of queries")
+    @WithUserDetails(value = TEACHER_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
+    void dashboard_asTeacher_returnsRosters() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/dashboard"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.me.username").value(TEACHER_USERNAME))
+                .andExpect(jsonPath("$.me.role").value("TEACHER"))
+                .andExpect(jsonPath("$.classes.length()").value(CLASS_COUNT))
+                .andExpect(jsonPath("$.classes[0].name").value("Class 0"))
+                .andExpect(jsonPath("$.classes[0].enrollmentCount").value(1))
+                .andExpect(jsonPath("$.classes[2].enrollmentCount").value(0))
+                .andExpect(jsonPath("$.rosters.length()").value(CLASS_COUNT))
+                .andExpect(jsonPath("$.rosters.*[0].username").value(hasItem(STUDENT_USERNAME)));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("GET /api/dashboard as student returns catalog with enrolled flags in a fixed number of queries")
+    @WithUserDetails(value = STUDENT_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
+    void dashboard_asStudent_returnsEnrolledFlags() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/dashboard"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.me.role").value("STUDENT"))
+                .andExpect(jsonPath("$.classes.length()").value(CLASS_COUNT))
+                .andExpect(jsonPath("$.classes[0].enrolled").value(true))
+                .andExpect(jsonPath("$.classes[2].enrolled").value(false))
+                .andExpect(jsonPath("$.classes[0].teacherName").value("Test Teacher"))
+                .andExpect(jsonPath("$.rosters").doesNotExist());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+}
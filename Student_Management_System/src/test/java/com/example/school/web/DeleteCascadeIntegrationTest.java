@@ -0,0 +1,130 @@
+package com.example.school.web;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class DeleteCascadeIntegrationTest {
+
+    private static final String TEACHER_USERNAME = "test_teacher";
+    private static final int LARGE_CLASS = 500;
+    private static final int SMALL_CLASS = 5;
+    /**
+     * Four statements per delete, plus room for the search index re-reading the deleted row on its
+     * own thread, which the session-factory-wide statistics may count in the same window.
+     */
+    private static final int MAX_STATEMENTS_PER_DELETE = 6;
+    private static final String PASSWORD_HASH = "$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fqvM/BG";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private MockMvc mockMvc;
+
+    private Statistics statistics;
+
+    private Long largeClassId;
+    private Long smallClassId;
+    private Long otherClassId;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Long teacherId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, TEACHER_USERNAME);
+        largeClassId = insertClass("Large", teacherId);
+        smallClassId = insertClass("Small", teacherId);
+        otherClassId = insertClass("Other", teacherId);
+
+        List<Object[]> students = new ArrayList<>();
+        for (int i = 0; i < LARGE_CLASS; i++) {
+            students.add(new Object[]{"bulk_student_" + i, PASSWORD_HASH, "Bulk Student " + i, "STUDENT"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, password, name, role) VALUES (?, ?, ?, ?)", students);
+        enroll(largeClassId, LARGE_CLASS);
+        enroll(smallClassId, SMALL_CLASS);
+        enroll(otherClassId, SMALL_CLASS);
+    }
+
+    private Long insertClass(String name, Long teacherId) {
+        jdbcTemplate.update("INSERT INTO school_classes (name, teacher_id) VALUES (?, ?)", name, teacherId);
+        return jdbcTemplate.queryForObject("SELECT id FROM school_classes WHERE name = ?", Long.class, name);
+    }
+
+    /** Enrolls the first {@code count} bulk students, in one statement. */
+    private void enroll(Long classId, int count) {
+        jdbcTemplate.update("INSERT INTO enrollments (student_id, school_class_id) "
+                + "SELECT id, ? FROM users WHERE username LIKE 'bulk_student_%' ORDER BY id LIMIT ?", classId, count);
+    }
+
+    private int enrollmentCount(Long classId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM enrollments WHERE school_class_id = ?", Integer.class, classId);
+    }
+
+    @Test
+    @DisplayName("DELETE /api/classes/{id} removes the class and its enrollments in the same number of statements for 5 or 500")
+    @WithUserDetails(value = TEACHER_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
+    void deleteClass_statementCountIndependentOfEnrollments() throws Exception {
+        statistics.clear();
+        mockMvc.perform(delete("/api/classes/" + smallClassId)).andExpect(status().isNoContent());
+        long smallStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        mockMvc.perform(delete("/api/classes/" + largeClassId)).andExpect(status().isNoContent());
+        long largeStatements = statistics.getPrepareStatementCount();
+
+        assertThat(smallStatements).isLessThanOrEqualTo(MAX_STATEMENTS_PER_DELETE);
+        assertThat(largeStatements).isLessThanOrEqualTo(MAX_STATEMENTS_PER_DELETE);
+        assertThat(enrollmentCount(largeClassId)).isZero();
+        assertThat(enrollmentCount(smallClassId)).isZero();
+        assertThat(enrollmentCount(otherClassId)).isEqualTo(SMALL_CLASS);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM school_classes WHERE id IN (?, ?)",
+                Integer.class, largeClassId, smallClassId)).isZero();
+    }
+
+    @Test
+    @DisplayName("DELETE /api/students/{id} removes an enrolled student and only their enrollments")
+    @WithUserDetails(value = TEACHER_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
+    void deleteStudent_removesTheirEnrollments() throws Exception {
+        Long studentId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'bulk_student_0'", Long.class);
+
+        statistics.clear();
+        mockMvc.perform(delete("/api/students/" + studentId)).andExpect(status().isNoContent());
+
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS_PER_DELETE);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM enrollments WHERE student_id = ?", Integer.class, studentId)).isZero();
+        assertThat(enrollmentCount(largeClassId)).isEqualTo(LARGE_CLASS - 1);
+        assertThat(enrollmentCount(otherClassId)).isEqualTo(SMALL_CLASS - 1);
+    }
+}
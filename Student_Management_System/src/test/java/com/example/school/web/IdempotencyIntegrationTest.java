@@ -0,0 +1,280 @@
+package com.example.school.web;
+
+import com.example.school.idempotency.IdempotencyFilter;
+import com.example.school.idempotency.IdempotencyStore;
+import com.example.school.idempotency.IdempotencyStore.Claim;
+import com.example.school.idempotency.IdempotentRequests;
+import com.example.school.idempotency.StoredResponse;
+import com.example.school.security.SchoolUserDetails;
+import com.example.school.security.SchoolUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@code Idempotency-Key} on create class, create student and enroll: a retry replays the first
+ * response without running again, concurrent duplicates run once, and a different request under the
+ * same key is refused. Two {@link IdempotentRequests} over the one database store stand in for two
+ * nodes sharing the table.
+ */
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "school.admission.user-rate=100000", "school.admission.user-burst=100000"})
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class IdempotencyIntegrationTest {
+
+    private static final Duration LOCK_TIMEOUT = Duration.ofMinutes(1);
+    private static final StoredResponse CREATED =
+            new StoredResponse(201, "application/json", Map.of("Location", List.of("/api/classes/7")), "{\"id\":7}".getBytes(StandardCharsets.UTF_8));
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SchoolUserDetailsService userDetailsService;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private MockMvc mockMvc;
+    private SchoolUserDetails teacher;
+    private SchoolUserDetails student;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        teacher = (SchoolUserDetails) userDetailsService.loadUserByUsername("test_teacher");
+        student = (SchoolUserDetails) userDetailsService.loadUserByUsername("test_student");
+        jdbcTemplate.update("DELETE FROM idempotency_keys");
+    }
+
+    private ResultActions postWithKey(String url, SchoolUserDetails as, String key, String body) throws Exception {
+        return mockMvc.perform(post(url).with(user(as)).header(IdempotencyFilter.HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+
+    private int count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, args);
+    }
+
+    private double outcomes(String outcome) {
+        return meterRegistry.get("school.idempotency.requests").tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    @DisplayName("a retried POST /api/classes replays the first response and creates one class")
+    void retryReplaysCreateClass() throws Exception {
+        String body = "{\"name\":\"Idempotent Algebra\"}";
+        MockHttpServletResponse first = postWithKey("/api/classes", teacher, "create-algebra", body)
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER))
+                .andReturn().getResponse();
+        MockHttpServletResponse retry = postWithKey("/api/classes", teacher, "create-algebra", body)
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"))
+                .andReturn().getResponse();
+
+        assertThat(retry.getContentAsString()).isEqualTo(first.getContentAsString());
+        assertThat(retry.getContentType()).isEqualTo(first.getContentType());
+        assertThat(first.getHeader(HttpHeaders.LOCATION)).matches("/api/classes/\\d+");
+        assertThat(retry.getHeader(HttpHeaders.LOCATION)).isEqualTo(first.getHeader(HttpHeaders.LOCATION));
+        assertThat(count("SELECT COUNT(*) FROM school_classes WHERE name = 'Idempotent Algebra'")).isEqualTo(1);
+
+        // Without a key the same call runs again
+        mockMvc.perform(post("/api/classes").with(user(teacher)).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated());
+        assertThat(count("SELECT COUNT(*) FROM school_classes WHERE name = 'Idempotent Algebra'")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("the same key with another body is 422; keys are per user; blank keys are 400")
+    void mismatchScopeAndValidation() throws Exception {
+        postWithKey("/api/classes", teacher, "k1", "{\"name\":\"First\"}").andExpect(status().isCreated());
+        postWithKey("/api/classes", teacher, "k1", "{\"name\":\"Second\"}").andExpect(status().isUnprocessableContent());
+        postWithKey("/api/classes", teacher, "k1", "{\"name\":\"First\"}")
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"));
+
+        SchoolUserDetails otherTeacher = (SchoolUserDetails) userDetailsService.loadUserByUsername("auth_test_teacher");
+        postWithKey("/api/classes", otherTeacher, "k1", "{\"name\":\"First\"}")
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+        assertThat(count("SELECT COUNT(*) FROM school_classes WHERE name = 'First'")).isEqualTo(2);
+        assertThat(count("SELECT COUNT(*) FROM school_classes WHERE name = 'Second'")).isZero();
+
+        postWithKey("/api/classes", teacher, " ", "{\"name\":\"Blank\"}").andExpect(status().isBadRequest());
+        postWithKey("/api/classes", teacher, "k".repeat(256), "{\"name\":\"Long\"}").andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("a retried enroll is replayed as 204 and enrolls once")
+    void retryReplaysEnroll() throws Exception {
+        jdbcTemplate.update("INSERT INTO school_classes (name, teacher_id) VALUES ('Idempotent Chemistry', ?)", teacher.getUserId());
+        Long classId = jdbcTemplate.queryForObject("SELECT id FROM school_classes WHERE name = 'Idempotent Chemistry'", Long.class);
+        String url = "/api/classes/" + classId + "/enroll";
+
+        postWithKey(url, student, "enroll-chem", "").andExpect(status().isNoContent());
+        postWithKey(url, student, "enroll-chem", "")
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"));
+        assertThat(count("SELECT COUNT(*) FROM enrollments WHERE school_class_id = ?", classId)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("concurrent duplicate POST /api/students run once; every caller gets the same 201")
+    void concurrentDuplicatesRunOnce() throws Exception {
+        int callers = 8;
+        double claimedBefore = outcomes("claimed");
+        double completedBefore = outcomes("completed");
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                responses.add(pool.submit(() -> {
+                    start.await();
+                    return postWithKey("/api/students", teacher, "create-dup",
+                            "{\"username\":\"dup_student\",\"name\":\"Dup Student\",\"grade\":\"A\"}")
+                            .andReturn().getResponse();
+                }));
+            }
+            start.countDown();
+            List<String> bodies = new ArrayList<>();
+            int replayed = 0;
+            for (Future<MockHttpServletResponse> f : responses) {
+                MockHttpServletResponse response = f.get(60, TimeUnit.SECONDS);
+                assertThat(response.getStatus()).isEqualTo(201);
+                bodies.add(response.getContentAsString());
+                if ("true".equals(response.getHeader(IdempotencyFilter.REPLAYED_HEADER))) replayed++;
+            }
+            assertThat(bodies).containsOnly(bodies.get(0));
+            assertThat(replayed).isEqualTo(callers - 1);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(count("SELECT COUNT(*) FROM users WHERE username = 'dup_student'")).isEqualTo(1);
+        assertThat(outcomes("claimed") - claimedBefore).isEqualTo(1);
+        assertThat(outcomes("completed") - completedBefore).isEqualTo(callers - 1);
+    }
+
+    @Test
+    @DisplayName("two nodes: the second waits on the shared store and replays the first node's response")
+    void secondNodeWaitsForFirst() throws Exception {
+        IdempotentRequests nodeA = new IdempotentRequests(idempotencyStore, Duration.ofSeconds(10), LOCK_TIMEOUT, new SimpleMeterRegistry());
+        IdempotentRequests nodeB = new IdempotentRequests(idempotencyStore, Duration.ofSeconds(10), LOCK_TIMEOUT, new SimpleMeterRegistry());
+        assertThat(nodeA.begin("node:k1", "fp")).isEqualTo(Claim.CLAIMED);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Claim> waiting = pool.submit(() -> nodeB.begin("node:k1", "fp"));
+            Thread.sleep(300);
+            assertThat(waiting).isNotDone();
+            nodeA.finish("node:k1", CREATED);
+
+            Claim replay = waiting.get(5, TimeUnit.SECONDS);
+            assertThat(replay.state()).isEqualTo(Claim.State.COMPLETED);
+            assertThat(replay.response().status()).isEqualTo(201);
+            assertThat(replay.response().body()).isEqualTo(CREATED.body());
+            assertThat(replay.response().headers()).isEqualTo(CREATED.headers());
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(nodeB.begin("node:k1", "other").state()).isEqualTo(Claim.State.MISMATCH);
+    }
+
+    @Test
+    @DisplayName("two nodes: a wait times out as in progress; released and stale claims are taken over")
+    void timeoutReleaseAndStaleTakeover() throws Exception {
+        IdempotentRequests nodeA = new IdempotentRequests(idempotencyStore, Duration.ofSeconds(10), LOCK_TIMEOUT, new SimpleMeterRegistry());
+        IdempotentRequests nodeB = new IdempotentRequests(idempotencyStore, Duration.ofMillis(200), LOCK_TIMEOUT, new SimpleMeterRegistry());
+
+        assertThat(nodeA.begin("node:k2", "fp")).isEqualTo(Claim.CLAIMED);
+        assertThat(nodeB.begin("node:k2", "fp")).isEqualTo(Claim.IN_PROGRESS);
+        nodeA.finish("node:k2", null);
+        assertThat(nodeB.begin("node:k2", "fp")).isEqualTo(Claim.CLAIMED);
+
+        // Node B dies mid-request: once its claim is older than lock-timeout another node may run it
+        jdbcTemplate.update("UPDATE idempotency_keys SET created_at = DATEADD('MINUTE', -2, created_at) WHERE scope = 'node:k2'");
+        assertThat(nodeA.begin("node:k2", "fp")).isEqualTo(Claim.CLAIMED);
+        nodeA.finish("node:k2", CREATED);
+        IdempotentRequests nodeC = new IdempotentRequests(idempotencyStore, Duration.ofMillis(200), LOCK_TIMEOUT, new SimpleMeterRegistry());
+        assertThat(nodeC.begin("node:k2", "fp").state()).isEqualTo(Claim.State.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("a longest key is stored under a 64-character scope and replayed")
+    void longKeyFitsScope() throws Exception {
+        String key = "k".repeat(255);
+        postWithKey("/api/classes", teacher, key, "{\"name\":\"Long Key\"}").andExpect(status().isCreated());
+        postWithKey("/api/classes", teacher, key, "{\"name\":\"Long Key\"}")
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"));
+
+        assertThat(jdbcTemplate.queryForList("SELECT scope FROM idempotency_keys", String.class))
+                .singleElement().satisfies(scope -> assertThat(scope).hasSize(64));
+    }
+
+    @Test
+    @DisplayName("a body over school.api.max-body is 413 and claims nothing")
+    void oversizedBodyIsRefused() throws Exception {
+        postWithKey("/api/classes", teacher, "too-big", "{\"name\":\"" + "x".repeat(1 << 20) + "\"}")
+                .andExpect(status().isContentTooLarge());
+        assertThat(count("SELECT COUNT(*) FROM idempotency_keys")).isZero();
+    }
+
+    @Test
+    @DisplayName("a running claim is kept fresh, so a slow request is not taken over as stale")
+    void heartbeatKeepsClaim() throws Exception {
+        IdempotentRequests nodeA = new IdempotentRequests(idempotencyStore, Duration.ofSeconds(10),
+                Duration.ofMillis(300), new SimpleMeterRegistry());
+        IdempotentRequests nodeB = new IdempotentRequests(idempotencyStore, Duration.ofMillis(200), LOCK_TIMEOUT,
+                new SimpleMeterRegistry());
+        assertThat(nodeA.begin("node:k3", "fp")).isEqualTo(Claim.CLAIMED);
+
+        // As if node A's request had run for two minutes: its next beat moves the claim back to now
+        jdbcTemplate.update("UPDATE idempotency_keys SET created_at = DATEADD('MINUTE', -2, created_at) WHERE scope = 'node:k3'");
+        Thread.sleep(500);
+        assertThat(nodeB.begin("node:k3", "fp")).isEqualTo(Claim.IN_PROGRESS);
+
+        nodeA.finish("node:k3", CREATED);
+        assertThat(nodeB.begin("node:k3", "fp").state()).isEqualTo(Claim.State.COMPLETED);
+    }
+}
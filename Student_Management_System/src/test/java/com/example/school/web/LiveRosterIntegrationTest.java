@@ -0,0 +1,115 @@
+package com.example.school.web;
+
+import com.example.school.security.SchoolUserDetailsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class LiveRosterIntegrationTest {
+
+    private static final long WAIT_MILLIS = 5_000;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SchoolUserDetailsService userDetailsService;
+
+    private MockMvc mockMvc;
+    private UserDetails teacher;
+    private UserDetails otherTeacher;
+    private UserDetails student;
+    private Long classId;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        teacher = userDetailsService.loadUserByUsername("test_teacher");
+        otherTeacher = userDetailsService.loadUserByUsername("auth_test_teacher");
+        student = userDetailsService.loadUserByUsername("test_student");
+        Long teacherId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'test_teacher'", Long.class);
+        jdbcTemplate.update("INSERT INTO school_classes (name, teacher_id) VALUES ('Live Class', ?)", teacherId);
+        classId = jdbcTemplate.queryForObject("SELECT id FROM school_classes WHERE name = 'Live Class'", Long.class);
+    }
+
+    @Test
+    @DisplayName("owner's stream gets the new count and roster delta after enroll and unenroll; other teachers' do not")
+    void enrollmentsReachTheOwningTeacher() throws Exception {
+        MvcResult owner = subscribe(teacher);
+        MvcResult other = subscribe(otherTeacher);
+
+        mockMvc.perform(post("/api/classes/" + classId + "/enroll").with(user(student))).andExpect(status().isNoContent());
+        String afterEnroll = awaitBody(owner, b -> b.contains("\"enrollmentCount\":1"));
+        assertThat(afterEnroll).contains("event:class\n", "\"classId\":" + classId, "\"username\":\"test_student\"");
+
+        mockMvc.perform(delete("/api/classes/" + classId + "/enroll").with(user(student))).andExpect(status().isNoContent());
+        String afterUnenroll = awaitBody(owner, b -> b.contains("\"enrollmentCount\":0"));
+        assertThat(afterUnenroll).contains("\"removed\":[");
+
+        assertThat(other.getResponse().getContentAsString()).doesNotContain("event:class\n");
+    }
+
+    @Test
+    @DisplayName("deleting a class reaches subscribers as class-deleted")
+    void classDeletion() throws Exception {
+        MvcResult owner = subscribe(teacher);
+
+        mockMvc.perform(delete("/api/classes/" + classId).with(user(teacher))).andExpect(status().isNoContent());
+
+        assertThat(awaitBody(owner, b -> b.contains("{\"classId\":" + classId + "}"))).contains("event:class-deleted");
+    }
+
+    @Test
+    @DisplayName("students cannot subscribe")
+    void studentsAreForbidden() throws Exception {
+        mockMvc.perform(get("/api/classes/events").with(user(student))).andExpect(status().isForbidden());
+    }
+
+    /** Opens a stream and waits for its opening resync, after which every commit is delivered. */
+    private MvcResult subscribe(UserDetails who) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/classes/events").with(user(who)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitBody(result, b -> b.contains("event:resync"));
+        return result;
+    }
+
+    private static String awaitBody(MvcResult result, Predicate<String> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (true) {
+            String body = result.getResponse().getContentAsString();
+            if (condition.test(body)) return body;
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("timed out; stream so far:\n" + body);
+            Thread.sleep(20);
+        }
+    }
+}
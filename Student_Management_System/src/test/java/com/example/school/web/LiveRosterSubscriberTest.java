@@ -0,0 +1,91 @@
+package com.example.school.web;
+
+import com.example.school.web.ClassController.EnrolledStudentResponse;
+import com.example.school.web.LiveRosterSubscriber.ClassDeleted;
+import com.example.school.web.LiveRosterSubscriber.ClassUpdate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveRosterSubscriberTest {
+
+    private record Sent(String event, Object data) {}
+
+    private final List<Sent> sent = new ArrayList<>();
+    private LiveRosterSubscriber subscriber;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        subscriber = new LiveRosterSubscriber(1L, 8, (event, data) -> sent.add(new Sent(event, data)));
+        subscriber.drain();
+        sent.clear();
+    }
+
+    private static EnrolledStudentResponse student(long id) {
+        return new EnrolledStudentResponse(id, "s" + id, "Student " + id, null, null);
+    }
+
+    @Test
+    @DisplayName("a new subscriber's first event is resync")
+    void startsWithResync() throws Exception {
+        LiveRosterSubscriber fresh = new LiveRosterSubscriber(1L, 4, (event, data) -> sent.add(new Sent(event, data)));
+        fresh.drain();
+
+        assertThat(sent).containsExactly(new Sent("resync", Map.of()));
+    }
+
+    @Test
+    @DisplayName("updates to one class coalesce into the latest count and the last action per student")
+    void coalescesPerClass() throws Exception {
+        subscriber.enrolled(7L, 1, student(10));
+        subscriber.enrolled(7L, 2, student(11));
+        subscriber.unenrolled(7L, 1, 10);
+        subscriber.drain();
+
+        assertThat(sent).containsExactly(new Sent("class", new ClassUpdate(7L, 1, List.of(student(11)), List.of(10L))));
+    }
+
+    @Test
+    @DisplayName("only the first offer while a drain is pending asks for one")
+    void oneDrainAtATime() throws Exception {
+        assertThat(subscriber.enrolled(7L, 1, student(10))).isTrue();
+        assertThat(subscriber.enrolled(8L, 1, student(10))).isFalse();
+        assertThat(subscriber.classDeleted(9L)).isFalse();
+        subscriber.drain();
+
+        assertThat(sent).extracting(Sent::event).containsExactly("class", "class", "class-deleted");
+        assertThat(sent.get(2).data()).isEqualTo(new ClassDeleted(9L));
+        assertThat(subscriber.enrolled(7L, 2, student(11))).isTrue();
+    }
+
+    @Test
+    @DisplayName("overflowing the buffer drops pending updates for a single resync, until it is sent")
+    void overflowBecomesResync() throws Exception {
+        for (long id = 10; id < 20; id++) subscriber.enrolled(7L, id - 9, student(id));
+        subscriber.enrolled(8L, 1, student(20));
+        subscriber.drain();
+        subscriber.enrolled(8L, 2, student(21));
+        subscriber.drain();
+
+        assertThat(sent).containsExactly(new Sent("resync", Map.of()),
+                new Sent("class", new ClassUpdate(8L, 2, List.of(student(21)), List.of())));
+    }
+
+    @Test
+    @DisplayName("heartbeat is a keep-alive comment, and only when nothing else is being sent")
+    void heartbeat() throws Exception {
+        subscriber.heartbeat();
+        subscriber.drain();
+        subscriber.heartbeat();
+        subscriber.classDeleted(9L);
+        subscriber.drain();
+
+        assertThat(sent).extracting(Sent::event).containsExactly(null, "class-deleted");
+    }
+}
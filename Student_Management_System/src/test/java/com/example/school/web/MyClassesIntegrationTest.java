@@ -0,0 +1,166 @@
+package com.example.school.web;
+
+import com.example.school.security.SchoolUserDetailsService;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /api/students/me/classes against the older way of finding a student's classes: walking the
+ * catalog and keeping the rows flagged {@code enrolled}. The student repeats both many times, so the
+ * per-user rate limit is lifted.
+ */
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "school.admission.user-rate=100000", "school.admission.user-burst=100000"})
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class MyClassesIntegrationTest {
+
+    private static final Pattern NEXT = Pattern.compile("<([^>]+)>;\\s*rel=\"next\"");
+    private static final int CATALOG = 5_000;
+    private static final int ENROLLED = 20;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SchoolUserDetailsService userDetailsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private MockMvc mockMvc;
+    private Statistics statistics;
+    private UserDetails student;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        student = userDetailsService.loadUserByUsername("test_student");
+        Long teacherId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'test_teacher'", Long.class);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < CATALOG; i++) rows.add(new Object[]{String.format("Course %04d", i), teacherId});
+        jdbcTemplate.batchUpdate("INSERT INTO school_classes (name, teacher_id) VALUES (?, ?)", rows);
+        // Every 250th class, so the enrolled ones are spread over the whole catalog
+        jdbcTemplate.update("INSERT INTO enrollments (student_id, school_class_id) "
+                + "SELECT u.id, c.id FROM users u, school_classes c WHERE u.username = 'test_student' "
+                + "AND MOD(CAST(SUBSTRING(c.name, 8) AS INT), 250) = 0");
+    }
+
+    @Test
+    @DisplayName("returns only my classes, sorted by name with teacher names, in one query; teachers get 403")
+    void myClasses() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/students/me/classes").with(user(student)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Link"))
+                .andExpect(jsonPath("$.length()").value(ENROLLED))
+                .andExpect(jsonPath("$[0].name").value("Course 0000"))
+                .andExpect(jsonPath("$[1].name").value("Course 0250"))
+                .andExpect(jsonPath("$[0].teacherName").value("Test Teacher"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        List<String> names = new ArrayList<>();
+        String url = "/api/students/me/classes?limit=6";
+        while (url != null) {
+            MockHttpServletResponse response = mockMvc.perform(get(url).with(user(student)))
+                    .andExpect(status().isOk()).andReturn().getResponse();
+            names.addAll(JsonPath.read(response.getContentAsString(), "$[*].name"));
+            url = next(response);
+        }
+        assertThat(names).hasSize(ENROLLED).isSorted();
+
+        mockMvc.perform(get("/api/students/me/classes").with(user(userDetailsService.loadUserByUsername("test_teacher"))))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("benchmark: one projection page against walking a 5,000-class catalog and filtering")
+    void benchmarkAgainstCatalogFilter() throws Exception {
+        long[] catalogBytes = new long[1];
+        List<Long> viaCatalog = catalogThenFilter(catalogBytes);
+        MockHttpServletResponse direct = mockMvc.perform(get("/api/students/me/classes").with(user(student))).andReturn().getResponse();
+        List<Number> viaEndpoint = JsonPath.read(direct.getContentAsString(), "$[*].id");
+        assertThat(viaEndpoint.stream().map(Number::longValue).toList()).containsExactlyElementsOf(viaCatalog);
+
+        long catalogMicros = medianMicros(() -> catalogThenFilter(new long[1]));
+        long directMicros = medianMicros(() -> mockMvc.perform(get("/api/students/me/classes").with(user(student))));
+        assertThat(directMicros * 10).isLessThan(catalogMicros);
+        assertThat(direct.getContentAsByteArray().length * 50L).isLessThan(catalogBytes[0]);
+    }
+
+    /** What a client had to do before: page through the whole catalog and keep the enrolled rows. */
+    private List<Long> catalogThenFilter(long[] bytes) throws Exception {
+        List<Long> enrolled = new ArrayList<>();
+        String url = "/api/classes?limit=" + KeysetPaging.MAX_PAGE_SIZE;
+        while (url != null) {
+            MockHttpServletResponse response = mockMvc.perform(get(url).with(user(student))).andReturn().getResponse();
+            String body = response.getContentAsString();
+            bytes[0] += response.getContentAsByteArray().length;
+            List<Number> ids = JsonPath.read(body, "$[?(@.enrolled == true)].id");
+            ids.forEach(id -> enrolled.add(id.longValue()));
+            url = next(response);
+        }
+        return enrolled;
+    }
+
+    private static String next(MockHttpServletResponse response) {
+        String link = response.getHeader("Link");
+        Matcher m = link == null ? null : NEXT.matcher(link);
+        return m != null && m.find() ? m.group(1) : null;
+    }
+
+    private interface Call {
+        void run() throws Exception;
+    }
+
+    private static long medianMicros(Call call) throws Exception {
+        for (int i = 0; i < 3; i++) call.run();
+        long[] samples = new long[9];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            call.run();
+            samples[i] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.school.web;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestBodyLimitFilterTest {
+
+    private static final int MAX = 16;
+
+    private final RequestBodyLimitFilter filter = new RequestBodyLimitFilter(MAX);
+
+    /** A chunked request: the body is there, its length is not. */
+    private static MockHttpServletRequest chunked(byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/batch") {
+            @Override
+            public int getContentLength() {
+                return -1;
+            }
+
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        request.addHeader(HttpHeaders.TRANSFER_ENCODING, "chunked");
+        request.setContent(body);
+        return request;
+    }
+
+    @Test
+    @DisplayName("a declared length over the limit is 413 before the handler runs")
+    void declaredLengthOverLimit() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/batch");
+        request.setContent(new byte[MAX + 1]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(413);
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    @DisplayName("a chunked body is buffered up to the limit; one past it is 413")
+    void chunkedBodyIsCapped() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(chunked(new byte[MAX]), response, chain);
+        assertThat(response.getStatus()).isEqualTo(200);
+        ServletRequest passed = chain.getRequest();
+        assertThat(passed.getContentLengthLong()).isEqualTo(MAX);
+        assertThat(passed.getInputStream().readAllBytes()).hasSize(MAX);
+
+        MockHttpServletResponse tooLong = new MockHttpServletResponse();
+        MockFilterChain notRun = new MockFilterChain();
+        filter.doFilter(chunked(new byte[MAX + 1]), tooLong, notRun);
+        assertThat(tooLong.getStatus()).isEqualTo(413);
+        assertThat(notRun.getRequest()).isNull();
+    }
+
+    @Test
+    @DisplayName("only /api/** is limited")
+    void otherPathsPassThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+        request.setContent(new byte[MAX + 1]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+
+        assertThat(chain.getRequest()).isSameAs(request);
+    }
+
+    @Test
+    @DisplayName("a buffered body's read listener is told the data is available, then all read")
+    void readListenerSeesWholeBody() throws IOException {
+        BufferedBodyRequest request = BufferedBodyRequest.read(chunked("{}".getBytes()), MAX);
+        ServletInputStream in = request.getInputStream();
+        List<String> calls = new ArrayList<>();
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                calls.add("available:" + new String(in.readAllBytes()));
+            }
+
+            @Override
+            public void onAllDataRead() {
+                calls.add("all-read");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                calls.add("error");
+            }
+        });
+
+        assertThat(calls).containsExactly("available:{}", "all-read");
+        assertThat(in.isFinished()).isTrue();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.school.web;
+
+import com.example.school.security.SchoolUserDetailsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/** Writes reach the search index through the invalidation bus, so results are polled for briefly. */
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class SearchIntegrationTest {
+
+    private static final long WAIT_MILLIS = 5_000;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SchoolUserDetailsService userDetailsService;
+
+    private MockMvc mockMvc;
+    private UserDetails teacher;
+    private UserDetails student;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        teacher = userDetailsService.loadUserByUsername("test_teacher");
+        student = userDetailsService.loadUserByUsername("test_student");
+    }
+
+    @Test
+    @DisplayName("created, renamed and deleted students are found, re-found and dropped by typeahead")
+    void studentWritesUpdateTheIndex() throws Exception {
+        mockMvc.perform(post("/api/students").with(user(teacher)).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"zuzana_k\",\"password\":\"pw\",\"name\":\"Zuzana Kowalczyk\",\"email\":\"zk@school.com\"}"))
+                .andExpect(status().isCreated());
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'zuzana_k'", Long.class);
+
+        assertThat(awaitSearch(teacher, "zuz kow", b -> b.contains("\"username\":\"zuzana_k\""))).contains("\"id\":" + id);
+
+        mockMvc.perform(patch("/api/students/" + id).with(user(teacher)).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Zuzana Horvath\"}"))
+                .andExpect(status().isOk());
+        awaitSearch(teacher, "zuz horv", b -> b.contains("zuzana_k"));
+        assertThat(search(teacher, "kowal")).doesNotContain("zuzana_k");
+
+        mockMvc.perform(delete("/api/students/" + id).with(user(teacher))).andExpect(status().isNoContent());
+        awaitSearch(teacher, "zuz", b -> !b.contains("zuzana_k"));
+    }
+
+    @Test
+    @DisplayName("teachers find their own classes; students find the catalog but no students")
+    void resultsFollowRole() throws Exception {
+        mockMvc.perform(post("/api/classes").with(user(teacher)).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Quantum Basics\",\"description\":\"Wave functions\"}"))
+                .andExpect(status().isCreated());
+        UserDetails otherTeacher = userDetailsService.loadUserByUsername("auth_test_teacher");
+
+        awaitSearch(teacher, "quant", b -> b.contains("Quantum Basics"));
+        assertThat(search(student, "wave")).contains("Quantum Basics").contains("\"students\":[]");
+        assertThat(search(otherTeacher, "quant")).doesNotContain("Quantum Basics");
+    }
+
+    private String search(UserDetails who, String q) throws Exception {
+        return mockMvc.perform(get("/api/search").param("q", q).with(user(who)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private String awaitSearch(UserDetails who, String q, Predicate<String> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (true) {
+            String body = search(who, q);
+            if (condition.test(body)) return body;
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("timed out; last response: " + body);
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.school.web;
+
+import com.example.school.security.SchoolUserDetails;
+import com.example.school.security.SchoolUserDetailsService;
+import com.example.school.service.ClassService;
+import com.example.school.service.KeysetPage;
+import com.example.school.service.UserService;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@code fields=} on GET /api/classes and GET /api/students: only the named properties come back, only
+ * their columns are selected, and the teacher join and enrollment lookup run only when asked for.
+ * The benchmark compares payload size and database time against the full listings.
+ */
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "school.admission.user-rate=100000", "school.admission.user-burst=100000"})
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class SparseFieldsIntegrationTest {
+
+    private static final int CLASSES = 20_000;
+    private static final int STUDENTS = 20_000;
+    private static final String PASSWORD_HASH = "$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fqvM/BG";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SchoolUserDetailsService userDetailsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ClassService classService;
+
+    @Autowired
+    private UserService userService;
+
+    private MockMvc mockMvc;
+    private Statistics statistics;
+    private SchoolUserDetails teacher;
+    private SchoolUserDetails student;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        teacher = (SchoolUserDetails) userDetailsService.loadUserByUsername("test_teacher");
+        student = (SchoolUserDetails) userDetailsService.loadUserByUsername("test_student");
+        jdbcTemplate.update("INSERT INTO school_classes (name, description, teacher_id, enrollment_count) "
+                + "SELECT CONCAT('Course ', LPAD(CAST(X AS VARCHAR), 5, '0')), CONCAT('About course ', X), ?, MOD(X, 30) "
+                + "FROM SYSTEM_RANGE(0, ?)", teacher.getUserId(), CLASSES - 1);
+        jdbcTemplate.update("INSERT INTO users (username, password, name, email, grade, role) "
+                + "SELECT CONCAT('sparse_', X), ?, CONCAT('Student ', X), CONCAT('s', X, '@school.com'), 'B', 'STUDENT' "
+                + "FROM SYSTEM_RANGE(0, ?)", PASSWORD_HASH, STUDENTS - 1);
+        jdbcTemplate.update("INSERT INTO enrollments (student_id, school_class_id) "
+                + "SELECT ?, id FROM school_classes WHERE name = 'Course 00001'", student.getUserId());
+    }
+
+    private List<String> executedQueries() {
+        return Arrays.asList(statistics.getQueries());
+    }
+
+    @Test
+    @DisplayName("fields=id,name: two properties per class from one query without the teacher join")
+    void classIdAndName() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/classes?limit=3&fields=id,name").with(user(student)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[1].name").value("Course 00001"))
+                .andExpect(jsonPath("$[1].id").isNumber())
+                .andExpect(jsonPath("$[1].teacherName").doesNotExist())
+                .andExpect(jsonPath("$[1].enrolled").doesNotExist())
+                .andExpect(header().string("Link", containsString("fields=id,name")));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(executedQueries()).noneMatch(q -> q.contains("teacher t"));
+    }
+
+    @Test
+    @DisplayName("teacherName and enrolled are read only when named; enrollmentCount is the teacher's alone")
+    void classComputedFields() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/classes?limit=2&fields=enrolled,teacherName,id,enrollmentCount").with(user(student)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].teacherName").value("Test Teacher"))
+                .andExpect(jsonPath("$[0].enrolled").value(false))
+                .andExpect(jsonPath("$[1].enrolled").value(true))
+                .andExpect(jsonPath("$[1].enrollmentCount").doesNotExist())
+                .andExpect(jsonPath("$[1].name").doesNotExist());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(executedQueries()).anyMatch(q -> q.contains("teacher t"));
+
+        mockMvc.perform(get("/api/classes?limit=2&fields=id,enrollmentCount").with(user(teacher)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].enrollmentCount").value(1));
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/classes?limit=1&fields=name,id,teacherName").with(user(student)))
+                .andReturn().getResponse();
+        assertThat(JsonPath.<Map<String, Object>>read(response.getContentAsString(), "$[0]").keySet())
+                .containsExactly("id", "name", "teacherName");
+    }
+
+    @Test
+    @DisplayName("unknown or empty field lists are rejected with 400")
+    void rejectsUnknownFields() throws Exception {
+        mockMvc.perform(get("/api/classes?fields=id,teacher_id").with(user(student))).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/classes?fields=").with(user(student))).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/students?fields=id,password").with(user(teacher))).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /api/students?fields=id,name streams only those columns; a student gets their own")
+    void studentIdAndName() throws Exception {
+        statistics.clear();
+        MvcResult started = mockMvc.perform(get("/api/students?fields=name,id").with(user(teacher)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(STUDENTS + 2))
+                .andReturn().getResponse();
+        assertThat(JsonPath.<Map<String, Object>>read(response.getContentAsString(), "$[2]"))
+                .containsOnlyKeys("id", "name")
+                .containsEntry("name", "Student 0");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(executedQueries()).anyMatch(q -> q.startsWith("SELECT u.id AS id, u.name AS name FROM"));
+
+        MvcResult own = mockMvc.perform(get("/api/students?fields=username").with(user(student)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(own))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].username").value("test_student"))
+                .andExpect(jsonPath("$[0].id").doesNotExist());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("benchmark: id,name against full elements, for a catalog page and the student list")
+    void benchmarkAgainstFullElements() throws Exception {
+        int fullPage = bytes("/api/classes?limit=" + KeysetPaging.MAX_PAGE_SIZE, student);
+        int sparsePage = bytes("/api/classes?limit=" + KeysetPaging.MAX_PAGE_SIZE + "&fields=id,name", student);
+        int fullList = bytes("/api/students", teacher);
+        int sparseList = bytes("/api/students?fields=id,name", teacher);
+
+        List<String> idAndName = List.of("id", "name");
+        long fullPageMicros = medianMicros(() -> classService.findClassPage(student, null, null, KeysetPage.Key.FIRST, KeysetPaging.MAX_PAGE_SIZE));
+        long sparsePageMicros = medianMicros(() -> classService.findClassColumnsPage(student, null, null, idAndName,
+                KeysetPage.Key.FIRST, KeysetPaging.MAX_PAGE_SIZE));
+        long fullListMicros = medianMicros(() -> userService.forEachStudent(row -> {}));
+        long sparseListMicros = medianMicros(() -> userService.forEachStudent(idAndName, row -> {}));
+
+        assertThat(sparsePage * 3).isLessThan(fullPage);
+        assertThat(sparseList * 2).isLessThan(fullList);
+        assertThat(sparsePageMicros).isLessThan(fullPageMicros);
+        assertThat(sparseListMicros).isLessThan(fullListMicros);
+    }
+
+    private int bytes(String url, SchoolUserDetails as) throws Exception {
+        MvcResult result = mockMvc.perform(get(url).with(user(as))).andReturn();
+        if (result.getRequest().isAsyncStarted()) result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        return result.getResponse().getContentAsByteArray().length;
+    }
+
+    private static long medianMicros(Runnable call) {
+        for (int i = 0; i < 5; i++) call.run();
+        long[] samples = new long[15];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            call.run();
+            samples[i] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
@@ -6,17 +6,24 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -30,6 +37,9 @@ class StudentControllerIntegrationTest {
     @Autowired
     private WebApplicationContext webApplicationContext;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private MockMvc mockMvc;
 
     @BeforeEach
@@ -50,7 +60,10 @@ class StudentControllerIntegrationTest {
     @DisplayName("GET /api/students as teacher returns 200")
     @WithUserDetails(value = TEACHER_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
     void listStudents_asTeacher_returns200() throws Exception {
-        mockMvc.perform(get("/api/students"))
+        MvcResult started = mockMvc.perform(get("/api/students"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").isArray());
     }
@@ -89,4 +102,45 @@ class StudentControllerIntegrationTest {
                         .content(body))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    @DisplayName("POST /api/students with invalid body returns 400 before reaching the service")
+    @WithUserDetails(value = TEACHER_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
+    void createStudent_invalidBody_returns400() throws Exception {
+        String body = "{\"username\":\"  \",\"email\":\"not-an-email\"}";
+        mockMvc.perform(post("/api/students")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("PATCH /api/students/{id} clears fields sent as null, ignores a blank name, leaves absent ones alone")
+    @WithUserDetails(value = TEACHER_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
+    void updateStudent_clearsFields() throws Exception {
+        jdbcTemplate.update("UPDATE users SET email = 'old@school.com', grade = 'B' WHERE username = ?", STUDENT_USERNAME);
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, STUDENT_USERNAME);
+
+        mockMvc.perform(patch("/api/students/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"\",\"email\":null}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Test Student"))
+                .andExpect(jsonPath("$.email").value(nullValue()))
+                .andExpect(jsonPath("$.grade").value("B"));
+        assertThat(jdbcTemplate.queryForMap("SELECT name, email, grade FROM users WHERE id = ?", id))
+                .containsEntry("NAME", "Test Student")
+                .containsEntry("EMAIL", null)
+                .containsEntry("GRADE", "B");
+
+        mockMvc.perform(patch("/api/students/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"grade\":\"\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.grade").value(""));
+        mockMvc.perform(patch("/api/students/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"grade\":null,\"email\":\"not-an-email\"}"))
+                .andExpect(status().isBadRequest());
+    }
 }
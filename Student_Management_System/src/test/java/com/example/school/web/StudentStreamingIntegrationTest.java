@@ -0,0 +1,214 @@
+package com.example.school.web;
+
+import com.example.school.dto.StudentSummary;
+import com.example.school.entity.User;
+import com.example.school.security.SchoolUserDetails;
+import com.example.school.security.SchoolUserDetailsService;
+import com.example.school.service.UserService;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /api/students at 100,000 students: streamed from one cursor through {@link JsonArrayStreamer}
+ * against the previous shape (load entities, map to a DTO list, serialize the list). Allocation is read
+ * from the per-thread counter; live heap is sampled after a full GC at the point each path holds the
+ * most (half-way through the stream, and with the DTO list built).
+ */
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "school.admission.user-rate=100000", "school.admission.user-burst=100000"})
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class StudentStreamingIntegrationTest {
+
+    private static final int STUDENTS = 100_000;
+    private static final String PASSWORD_HASH = "$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fqvM/BG";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SchoolUserDetailsService userDetailsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JsonArrayStreamer jsonArrayStreamer;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private MockMvc mockMvc;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        jdbcTemplate.update("INSERT INTO users (username, password, name, email, grade, role) "
+                + "SELECT CONCAT('stream_', LPAD(CAST(X AS VARCHAR), 6, '0')), ?, CONCAT('Student ', X), "
+                + "CONCAT('s', X, '@school.com'), 'B', 'STUDENT' FROM SYSTEM_RANGE(0, ?)", PASSWORD_HASH, STUDENTS - 1);
+    }
+
+    @Test
+    @DisplayName("teacher gets every student in id order from one query with no entities loaded; a student gets only themself")
+    void streamsAllStudents() throws Exception {
+        UserDetails teacher = userDetailsService.loadUserByUsername("test_teacher");
+        statistics.clear();
+        MvcResult started = mockMvc.perform(get("/api/students").with(user(teacher)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        assertThat(response.getContentType()).startsWith("application/json");
+        DocumentContext body = JsonPath.parse(response.getContentAsString());
+        List<Number> ids = body.read("$[*].id");
+        assertThat(ids).hasSize(STUDENTS + 2);
+        assertThat(ids.stream().map(Number::longValue).toList()).isSorted();
+        assertThat(body.read("$[2]", Map.class))
+                .containsOnlyKeys("id", "username", "name", "email", "grade")
+                .containsEntry("username", "stream_000000")
+                .containsEntry("email", "s0@school.com")
+                .containsEntry("grade", "B");
+
+        MvcResult own = mockMvc.perform(get("/api/students").with(user(userDetailsService.loadUserByUsername("test_student"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(own))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].username").value("test_student"));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("benchmark: streaming 100k students allocates and holds far less than building the list first")
+    void benchmarkAgainstMaterializedList() {
+        materialized(() -> {});
+        streamed(() -> {});
+        Run materialized = measure(this::materialized);
+        Run streamed = measure(this::streamed);
+
+        assertThat(streamed.jsonBytes()).isEqualTo(materialized.jsonBytes());
+        assertThat(streamed.allocated() * 2).isLessThan(materialized.allocated());
+        assertThat(streamed.live() * 10).isLessThan(materialized.live());
+    }
+
+    private record Run(long jsonBytes, long allocated, long live) {}
+
+    /** Runs one path, sampling live heap (over a post-GC baseline) when the path reports its peak. */
+    private static Run measure(ToLongFunction<Runnable> path) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long baseline = liveHeap(memory);
+        long[] live = new long[1];
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long jsonBytes = path.applyAsLong(() -> live[0] = liveHeap(memory) - baseline);
+        return new Run(jsonBytes, threads.getCurrentThreadAllocatedBytes() - allocatedBefore, live[0]);
+    }
+
+    /** The previous GET /api/students: entities, then a DTO list, then one serialized body. */
+    private long materialized(Runnable atPeak) {
+        CountingOutputStream out = new CountingOutputStream();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<User> students = userService.findStudentsForCurrentUser(teacher());
+            List<StudentController.StudentResponse> list = students.stream()
+                    .map(StudentController.StudentResponse::from)
+                    .collect(Collectors.toList());
+            atPeak.run();
+            jsonMapper.writeValue(out, list);
+        });
+        return out.count;
+    }
+
+    private long streamed(Runnable atPeak) {
+        CountingOutputStream out = new CountingOutputStream();
+        int[] seen = {0};
+        try {
+            jsonArrayStreamer.<StudentSummary>stream(null, sink -> userService.forEachStudent(row -> {
+                sink.accept(row);
+                if (++seen[0] == STUDENTS / 2) atPeak.run();
+            })).getBody().writeTo(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.count;
+    }
+
+    private SchoolUserDetails teacher() {
+        return (SchoolUserDetails) userDetailsService.loadUserByUsername("test_teacher");
+    }
+
+    private static long liveHeap(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /** Discards what is written and counts the bytes, so neither path pays for holding the body. */
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.school.web;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Unenrolling and removing a student are one conditional DELETE each. A success is three statements: the
+ * DELETE, the class's enrollment-count decrement and the change-feed row (H2, which the tests run on, has
+ * no data-modifying CTE to fold them into one). A miss (not enrolled, not the owner) is that one DELETE
+ * and a 404.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Sql(scripts = "/test-users.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class UnenrollIntegrationTest {
+
+    private static final String TEACHER_USERNAME = "test_teacher";
+    private static final String OTHER_TEACHER_USERNAME = "auth_test_teacher";
+    private static final String STUDENT_USERNAME = "test_student";
+
+    /** DELETE, enrollment-count UPDATE, outbox INSERT. */
+    private static final int SUCCESS_STATEMENTS = 3;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private MockMvc mockMvc;
+
+    private Statistics statistics;
+
+    private Long classId;
+    private Long studentId;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Long teacherId = userId(TEACHER_USERNAME);
+        studentId = userId(STUDENT_USERNAME);
+        jdbcTemplate.update("INSERT INTO school_classes (name, teacher_id, enrollment_count) VALUES ('Unenroll', ?, 1)", teacherId);
+        classId = jdbcTemplate.queryForObject("SELECT id FROM school_classes WHERE name = 'Unenroll'", Long.class);
+        jdbcTemplate.update("INSERT INTO enrollments (student_id, school_class_id) VALUES (?, ?)", studentId, classId);
+    }
+
+    private Long userId(String username) {
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, username);
+    }
+
+    private int storedCount() {
+        return jdbcTemplate.queryForObject("SELECT enrollment_count FROM school_classes WHERE id = ?", Integer.class, classId);
+    }
+
+    private boolean enrolled() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM enrollments WHERE student_id = ? AND school_class_id = ?",
+                Integer.class, studentId, classId) > 0;
+    }
+
+    @Test
+    @DisplayName("DELETE /api/classes/{id}/enroll: DELETE, count UPDATE and outbox INSERT, then one DELETE and 404 on repeat")
+    @WithUserDetails(value = STUDENT_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
+    void unenroll_isThreeStatements() throws Exception {
+        statistics.clear();
+        mockMvc.perform(delete("/api/classes/" + classId + "/enroll")).andExpect(status().isNoContent());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(SUCCESS_STATEMENTS);
+        assertThat(enrolled()).isFalse();
+        assertThat(storedCount()).isZero();
+
+        statistics.clear();
+        mockMvc.perform(delete("/api/classes/" + classId + "/enroll")).andExpect(status().isNotFound());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(storedCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("DELETE /api/classes/{id}/enrollments/{studentId} by the owner: DELETE, count UPDATE and outbox INSERT")
+    @WithUserDetails(value = TEACHER_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
+    void removeStudent_byOwner_isThreeStatements() throws Exception {
+        statistics.clear();
+        mockMvc.perform(delete("/api/classes/" + classId + "/enrollments/" + studentId)).andExpect(status().isNoContent());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(SUCCESS_STATEMENTS);
+        assertThat(enrolled()).isFalse();
+        assertThat(storedCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("DELETE /api/classes/{id}/enrollments/{studentId} by another teacher: one DELETE that matches nothing, 404")
+    @WithUserDetails(value = OTHER_TEACHER_USERNAME, userDetailsServiceBeanName = "schoolUserDetailsService")
+    void removeStudent_byOtherTeacher_isNotFound() throws Exception {
+        statistics.clear();
+        mockMvc.perform(delete("/api/classes/" + classId + "/enrollments/" + studentId)).andExpect(status().isNotFound());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(enrolled()).isTrue();
+        assertThat(storedCount()).isEqualTo(1);
+    }
+}